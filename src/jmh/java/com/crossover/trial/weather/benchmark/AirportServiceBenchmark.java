@@ -0,0 +1,86 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.AirportServiceImpl;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The radius query as served by {@link AirportService#getAirportDataInRadius}, the validation,
+ * the cache lookup and the resolution of the cached codes included. Repeated queries are answered
+ * by the radius query cache, queries never seen before go through the coordinate table and fill
+ * the cache.
+ *
+ * @author Victor Polanco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AirportServiceBenchmark {
+
+  /** Centers of the repeated queries, few enough to stay in the cache */
+  private static final int HOT_CENTERS = 64;
+
+  @Param({"1000", "10000", "50000"})
+  private int airports;
+
+  @Param({"50", "500", "5000"})
+  private double radius;
+
+  private AirportService airportService;
+
+  private String[] codes;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    airportService = new AirportServiceImpl();
+    List<AirportData> airportData = BenchmarkData.randomAirports(airports, new Random(42));
+    codes = new String[airports];
+    for (int i = 0; i < airports; i++) {
+      AirportData airport = airportData.get(i);
+      codes[i] = airport.getIata();
+      airportService.addAirport(
+          codes[i], String.valueOf(airport.getLatitude()), String.valueOf(airport.getLongitude()));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (String code : codes) {
+      airportService.deleteAirport(code);
+    }
+  }
+
+  @Benchmark
+  public List<AirportData> repeatedQuery() {
+    next++;
+    return airportService.getAirportDataInRadius(codes[next % HOT_CENTERS], radius);
+  }
+
+  /** A radius off by a fraction of a meter on every call makes every query a new one */
+  @Benchmark
+  public List<AirportData> newQuery() {
+    next++;
+    return airportService.getAirportDataInRadius(codes[next % airports], radius + next * 1e-9);
+  }
+}
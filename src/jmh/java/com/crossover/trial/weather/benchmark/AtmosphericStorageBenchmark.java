@@ -0,0 +1,120 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.WeatherBinder;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.storage.AtmosphericInfoStorage;
+import com.crossover.trial.weather.model.storage.StorageBackend;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.AtmosphericInformationService;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response.Status;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Update and read throughput of the atmospheric information in every {@link StorageBackend}, on the
+ * heap keyed by string, on the heap keyed by the packed codes, off the heap with double readings
+ * and off the heap with float readings, at 100k stations. Run it with the gc profiler to compare
+ * the allocation rate and the collections of every storage, the heap ones keep seven objects per
+ * station alive where the off heap ones only keep the index entry.
+ *
+ * @author Victor Polanco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class AtmosphericStorageBenchmark {
+
+  private static final int STATIONS = 100_000;
+
+  private static final String[] POINT_TYPES = {
+    "wind", "temperature", "humidity", "pressure", "cloudcover", "precipitation"
+  };
+
+  @Param({"heap", "primitive", "offheap", "offheap-float32"})
+  private String storage;
+
+  private AtmosphericInformationService atmosphericInformationService;
+
+  private AtmosphericInfoStorage atmosphericInformationMap;
+
+  private String[] codes;
+
+  private DataPoint dataPoint;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // Every fork chooses the storage once
+    System.setProperty("weather.storage", storage.startsWith("offheap") ? "offheap" : storage);
+    System.setProperty("weather.storage.float32", String.valueOf(storage.endsWith("float32")));
+    // The services are wired like the server does
+    ServiceLocator serviceLocator =
+        ServiceLocatorUtilities.bind(new WeatherBinder(StorageBackend.configured()));
+    AirportService airportService = serviceLocator.getService(AirportService.class);
+    atmosphericInformationService = serviceLocator.getService(AtmosphericInformationService.class);
+    atmosphericInformationMap = serviceLocator.getService(AtmosphericInfoStorage.class);
+    codes = new String[STATIONS];
+    for (int i = 0; i < STATIONS; i++) {
+      codes[i] = BenchmarkData.code(i);
+      airportService.addAirport(codes[i], String.valueOf(i % 90), String.valueOf(i % 180));
+    }
+    dataPoint =
+        new DataPoint.Builder()
+            .withFirst(10)
+            .withMedian(20)
+            .withLast(30)
+            .withMean(22)
+            .withCount(10)
+            .build();
+    // Every station starts with all of its readings
+    for (int i = 0; i < STATIONS * POINT_TYPES.length; i++) {
+      atmosphericInformationService.updateAtmosphericInformationForAirport(
+          codes[i % STATIONS], POINT_TYPES[i % POINT_TYPES.length], dataPoint);
+    }
+  }
+
+  /** Per thread position in the stations */
+  @State(Scope.Thread)
+  public static class StationState {
+    private int next;
+  }
+
+  @Benchmark
+  public Status update(StationState stationState) {
+    stationState.next++;
+    return atmosphericInformationService.updateAtmosphericInformationForAirport(
+        codes[stationState.next % STATIONS],
+        POINT_TYPES[stationState.next % POINT_TYPES.length],
+        dataPoint);
+  }
+
+  /** Every core updating, spread over all the stations */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public Status updateAllCores(StationState stationState) {
+    return update(stationState);
+  }
+
+  @Benchmark
+  public AtmosphericInformation read(StationState stationState) {
+    stationState.next++;
+    return atmosphericInformationMap.get(codes[stationState.next % STATIONS]);
+  }
+}
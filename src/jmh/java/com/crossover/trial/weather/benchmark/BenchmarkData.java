@@ -0,0 +1,51 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.AirportData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic data shared by the benchmarks.
+ *
+ * @author Victor Polanco
+ */
+final class BenchmarkData {
+
+  private BenchmarkData() {}
+
+  /**
+   * Generate airports with unique codes spread over the globe, denser around the mid latitudes
+   * like the real ones.
+   *
+   * @param count amount of airports
+   * @param random seeded source so every run uses the same airports
+   * @return the generated airports
+   */
+  static List<AirportData> randomAirports(int count, Random random) {
+    List<AirportData> airports = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      AirportData airportData = new AirportData();
+      airportData.setIata(code(i));
+      airportData.setLatitude(Math.max(-90, Math.min(90, random.nextGaussian() * 30 + 20)));
+      airportData.setLongitude(random.nextDouble() * 360 - 180);
+      airports.add(airportData);
+    }
+    return airports;
+  }
+
+  /**
+   * Unique upper case code for the given index, 3 letters while there are enough of them.
+   *
+   * @param index of the airport
+   * @return the code
+   */
+  static String code(int index) {
+    StringBuilder code = new StringBuilder();
+    do {
+      code.append((char) ('A' + index % 26));
+      index /= 26;
+    } while (index > 0 || code.length() < 3);
+    return code.reverse().toString();
+  }
+}
@@ -0,0 +1,83 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.service.AirportServiceImpl;
+import com.crossover.trial.weather.service.AtmosphericInformationService;
+import com.crossover.trial.weather.service.AtmosphericInformationServiceImpl;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response.Status;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many collectors updating the same hub airport while queries read it. Writers serialize on the
+ * airport entry to publish their snapshot, readers never block.
+ *
+ * @author Victor Polanco
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HubContentionBenchmark {
+
+  private static final String HUB = "HUB";
+
+  private static final String[] POINT_TYPES = {
+    "wind", "temperature", "humidity", "pressure", "cloudcover", "precipitation"
+  };
+
+  private AtmosphericInformationService atmosphericInformationService;
+
+  private DataPoint dataPoint;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    new AirportServiceImpl().addAirport(HUB, "42.364347", "-71.005181");
+    atmosphericInformationService = new AtmosphericInformationServiceImpl();
+    dataPoint =
+        new DataPoint.Builder()
+            .withFirst(10)
+            .withMedian(20)
+            .withLast(30)
+            .withMean(22)
+            .withCount(10)
+            .build();
+  }
+
+  /** Per writer thread position in the point types, so writers hit different properties */
+  @State(Scope.Thread)
+  public static class WriterState {
+    private int next;
+  }
+
+  @Benchmark
+  @Group("hub")
+  @GroupThreads(7)
+  public Status write(WriterState writerState) {
+    writerState.next++;
+    return atmosphericInformationService.updateAtmosphericInformationForAirport(
+        HUB, POINT_TYPES[writerState.next % POINT_TYPES.length], dataPoint);
+  }
+
+  @Benchmark
+  @Group("hub")
+  @GroupThreads(1)
+  public AtmosphericInformation read() {
+    return atmosphericInformationService.getAtmosphericInformationForAirport(HUB);
+  }
+}
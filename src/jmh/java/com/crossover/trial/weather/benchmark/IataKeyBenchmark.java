@@ -0,0 +1,113 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.storage.IataKeyedMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup latency and footprint of the airports keyed by string in a {@link ConcurrentHashMap}
+ * against the packed codes of an {@link IataKeyedMap}. The lookups use codes equal to the stored
+ * ones but not the same instances, fresh builds a new string per lookup like a request does, so
+ * its hash isn't cached. The gc profiler's gc.alloc.rate.norm of the build benchmarks is the bytes
+ * a map of every airport takes, including the tables left behind while it grows.
+ *
+ * @author Victor Polanco
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IataKeyBenchmark {
+
+  /** Every 3 letter code up to ZZZ would be 17576, this is about the real amount of airports */
+  private static final int AIRPORTS = 10_000;
+
+  @Param({"cached", "fresh"})
+  private String keys;
+
+  private List<AirportData> airports;
+
+  private Map<String, AirportData> concurrentHashMap;
+
+  private Map<String, AirportData> iataKeyedMap;
+
+  private char[][] codes;
+
+  private String[] lookups;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    airports = BenchmarkData.randomAirports(AIRPORTS, new Random(42));
+    concurrentHashMap = buildConcurrentHashMap();
+    iataKeyedMap = buildIataKeyedMap();
+    codes = new char[AIRPORTS][];
+    lookups = new String[AIRPORTS];
+    // Shuffled so the lookups don't walk the tables in order
+    Random random = new Random(7);
+    for (int i = 0; i < AIRPORTS; i++) {
+      codes[i] = airports.get(random.nextInt(AIRPORTS)).getIata().toCharArray();
+      lookups[i] = new String(codes[i]);
+    }
+  }
+
+  @Benchmark
+  public AirportData lookupConcurrentHashMap() {
+    return concurrentHashMap.get(nextCode());
+  }
+
+  @Benchmark
+  public AirportData lookupIataKeyedMap() {
+    return iataKeyedMap.get(nextCode());
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 20)
+  @Measurement(iterations = 20)
+  public Map<String, AirportData> buildConcurrentHashMap() {
+    Map<String, AirportData> map = new ConcurrentHashMap<>();
+    for (AirportData airportData : airports) {
+      map.put(airportData.getIata(), airportData);
+    }
+    return map;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 20)
+  @Measurement(iterations = 20)
+  public Map<String, AirportData> buildIataKeyedMap() {
+    Map<String, AirportData> map = new IataKeyedMap<>();
+    for (AirportData airportData : airports) {
+      map.put(airportData.getIata(), airportData);
+    }
+    return map;
+  }
+
+  private String nextCode() {
+    next = (next + 1) % AIRPORTS;
+    return "fresh".equals(keys) ? new String(codes[next]) : lookups[next];
+  }
+}
@@ -0,0 +1,175 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.AirportServiceImpl;
+import com.crossover.trial.weather.service.AtmosphericInformationService;
+import com.crossover.trial.weather.service.AtmosphericInformationServiceImpl;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response.Status;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ingest throughput of the data point dispatch table against the reflective dispatch used before,
+ * which title cased the point type and looked up and invoked a setMeasured method on every update.
+ *
+ * @author Victor Polanco
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngestBenchmark {
+
+  private static final int AIRPORTS = 1000;
+
+  /** Point types as sent by the collectors, in mixed case */
+  private static final String[] POINT_TYPES = {
+    "wind", "Temperature", "humidity", "PRESSURE", "cloudcover", "precipitation"
+  };
+
+  private static final ConcurrentHashMap<String, LegacyAtmosphericInformation> LEGACY_STORAGE =
+      new ConcurrentHashMap<>();
+
+  private AtmosphericInformationService atmosphericInformationService;
+
+  private String[] codes;
+
+  private DataPoint dataPoint;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AirportService airportService = new AirportServiceImpl();
+    atmosphericInformationService = new AtmosphericInformationServiceImpl();
+    codes = new String[AIRPORTS];
+    for (int i = 0; i < AIRPORTS; i++) {
+      codes[i] = BenchmarkData.code(i);
+      airportService.addAirport(codes[i], String.valueOf(i % 90), String.valueOf(i % 180));
+    }
+    dataPoint =
+        new DataPoint.Builder()
+            .withFirst(10)
+            .withMedian(20)
+            .withLast(30)
+            .withMean(22)
+            .withCount(10)
+            .build();
+  }
+
+  @Benchmark
+  public Status dispatchTable() {
+    next++;
+    return atmosphericInformationService.updateAtmosphericInformationForAirport(
+        codes[next % AIRPORTS], POINT_TYPES[next % POINT_TYPES.length], dataPoint);
+  }
+
+  /** Every core updating, spread over all the airports */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public Status dispatchTableAllCores() {
+    next++;
+    return atmosphericInformationService.updateAtmosphericInformationForAirport(
+        codes[next % AIRPORTS], POINT_TYPES[next % POINT_TYPES.length], dataPoint);
+  }
+
+  @Benchmark
+  public Status reflection() {
+    next++;
+    return legacyUpdate(codes[next % AIRPORTS], POINT_TYPES[next % POINT_TYPES.length], dataPoint);
+  }
+
+  /** The reflective update as it was done before the dispatch table */
+  private static Status legacyUpdate(String iataCode, String pointType, DataPoint dataPoint) {
+    pointType = pointType.toLowerCase();
+    try {
+      LegacyAtmosphericInformation atmosphericInformation =
+          LEGACY_STORAGE.getOrDefault(iataCode, new LegacyAtmosphericInformation());
+      if (pointType.equalsIgnoreCase(DataPointType.CLOUDCOVER.name())) {
+        atmosphericInformation.setMeasuredCloudCover(dataPoint);
+      } else {
+        String propertyName =
+            Character.toUpperCase(pointType.charAt(0)) + pointType.substring(1);
+        Method method =
+            atmosphericInformation
+                .getClass()
+                .getMethod("setMeasured" + propertyName, DataPoint.class);
+        method.invoke(atmosphericInformation, dataPoint);
+      }
+      LEGACY_STORAGE.putIfAbsent(iataCode, atmosphericInformation);
+      return Status.OK;
+    } catch (ReflectiveOperationException e) {
+      return Status.BAD_REQUEST;
+    }
+  }
+
+  /** Mutable atmospheric information with the validating setters the reflection looked up */
+  public static class LegacyAtmosphericInformation {
+    private DataPoint temperature;
+    private DataPoint wind;
+    private DataPoint humidity;
+    private DataPoint precipitation;
+    private DataPoint pressure;
+    private DataPoint cloudCover;
+    private long lastUpdateTime;
+
+    public void setMeasuredTemperature(DataPoint temperature) {
+      if (temperature.getMean() >= -50 && temperature.getMean() < 100) {
+        this.temperature = temperature;
+        this.lastUpdateTime = System.currentTimeMillis();
+      }
+    }
+
+    public void setMeasuredWind(DataPoint wind) {
+      if (wind.getMean() >= 0) {
+        this.wind = wind;
+        this.lastUpdateTime = System.currentTimeMillis();
+      }
+    }
+
+    public void setMeasuredHumidity(DataPoint humidity) {
+      if (humidity.getMean() >= 0 && humidity.getMean() < 100) {
+        this.humidity = humidity;
+        this.lastUpdateTime = System.currentTimeMillis();
+      }
+    }
+
+    public void setMeasuredPrecipitation(DataPoint precipitation) {
+      if (precipitation.getMean() >= 0 && precipitation.getMean() < 100) {
+        this.precipitation = precipitation;
+        this.lastUpdateTime = System.currentTimeMillis();
+      }
+    }
+
+    public void setMeasuredPressure(DataPoint pressure) {
+      if (pressure.getMean() >= 650 && pressure.getMean() < 800) {
+        this.pressure = pressure;
+        this.lastUpdateTime = System.currentTimeMillis();
+      }
+    }
+
+    public void setMeasuredCloudCover(DataPoint cloudCover) {
+      if (cloudCover.getMean() >= 0 && cloudCover.getMean() < 100) {
+        this.cloudCover = cloudCover;
+        this.lastUpdateTime = System.currentTimeMillis();
+      }
+    }
+  }
+}
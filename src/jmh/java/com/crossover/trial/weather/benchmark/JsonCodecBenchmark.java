@@ -0,0 +1,95 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.utils.GsonFactory;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Json encoding and decoding of the collected data points through {@link GsonFactory}, against a
+ * new Gson per call as the factory did before, and the decoding of a weather query response as
+ * done by the clients. The encoding of the query responses is measured by {@link
+ * JsonWriterBenchmark}.
+ *
+ * @author Victor Polanco
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+  private static final Type ATMOSPHERIC_INFORMATION_LIST =
+      new TypeToken<List<AtmosphericInformation>>() {}.getType();
+
+  private DataPoint dataPoint;
+
+  private String dataPointJson;
+
+  private String weatherJson;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataPoint =
+        new DataPoint.Builder()
+            .withFirst(10)
+            .withMedian(20)
+            .withLast(30)
+            .withMean(22)
+            .withCount(10)
+            .build();
+    dataPointJson = GsonFactory.toJson(dataPoint);
+    List<AtmosphericInformation> atmosphericInformation = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      atmosphericInformation.add(
+          new AtmosphericInformation()
+              .withWind(dataPoint, i)
+              .withTemperature(dataPoint, i)
+              .withHumidity(dataPoint, i));
+    }
+    weatherJson = GsonFactory.toJson(atmosphericInformation);
+  }
+
+  @Benchmark
+  public DataPoint decodeDataPoint() {
+    return GsonFactory.getGsonFromJsonString(dataPointJson, DataPoint.class);
+  }
+
+  @Benchmark
+  public DataPoint decodeDataPointNewGson() {
+    return new Gson().fromJson(dataPointJson, DataPoint.class);
+  }
+
+  @Benchmark
+  public String encodeDataPoint() {
+    return GsonFactory.toJson(dataPoint);
+  }
+
+  @Benchmark
+  public String encodeDataPointNewGson() {
+    return new Gson().toJson(dataPoint);
+  }
+
+  @Benchmark
+  public List<AtmosphericInformation> decodeWeather() {
+    return GsonFactory.getGsonFromJsonString(weatherJson, ATMOSPHERIC_INFORMATION_LIST);
+  }
+}
@@ -0,0 +1,99 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.web.AtmosphericInformationJsonWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding of the weather query responses with the {@link AtmosphericInformationJsonWriter} against
+ * the Jackson databind serialization used through the JacksonFeature. The gc profiler of the
+ * benchmark profile reports the bytes allocated per operation.
+ *
+ * @author Victor Polanco
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonWriterBenchmark {
+
+  /** Airports in the response, from a single airport to a large radius */
+  @Param({"1", "50", "1000"})
+  private int airports;
+
+  private List<AtmosphericInformation> atmosphericInformation;
+
+  private ObjectMapper objectMapper;
+
+  /** Stands for the response stream, reused so only the encoding allocates */
+  private ByteArrayOutputStream outputStream;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    atmosphericInformation = new ArrayList<>(airports);
+    for (int i = 0; i < airports; i++) {
+      long updateTime = System.currentTimeMillis() - random.nextInt(3600000);
+      atmosphericInformation.add(
+          new AtmosphericInformation()
+              .withTemperature(dataPoint(random, -10, 40), updateTime)
+              .withWind(dataPoint(random, 0, 80), updateTime)
+              .withHumidity(dataPoint(random, 0, 100), updateTime)
+              .withPressure(dataPoint(random, 650, 800), updateTime));
+    }
+    objectMapper = new ObjectMapper();
+    outputStream = new ByteArrayOutputStream(airports * 512);
+  }
+
+  @Benchmark
+  public int jackson() throws IOException {
+    outputStream.reset();
+    objectMapper.writeValue(outputStream, atmosphericInformation);
+    return outputStream.size();
+  }
+
+  @Benchmark
+  public int streamingWriter() throws IOException {
+    outputStream.reset();
+    AtmosphericInformationJsonWriter.write(atmosphericInformation, outputStream);
+    return outputStream.size();
+  }
+
+  /** Collectors send integral means most of the time, one in four has a fraction */
+  private static DataPoint dataPoint(Random random, int min, int max) {
+    int first = min + random.nextInt(max - min);
+    DataPoint dataPoint =
+        new DataPoint.Builder()
+            .withFirst(first)
+            .withMedian(first + 1)
+            .withLast(first + 2)
+            .withMean(first + 1)
+            .withCount(1 + random.nextInt(100))
+            .build();
+    if (random.nextInt(4) == 0) {
+      dataPoint.setMean(first + random.nextDouble());
+    }
+    return dataPoint;
+  }
+}
@@ -0,0 +1,101 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.service.WeatherMetricsProvider;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the request metrics updates with one thread and with a thread per core, for the
+ * {@link WeatherMetricsProvider} counters against the get and put on boxed values used before.
+ * Most of the requests go to a few hub airports and radius, so the threads contend on the same
+ * keys. The adders should scale with the cores where the boxed values flatten out.
+ *
+ * @author Victor Polanco
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+  private static final String[] AIRPORTS = {"JFK", "LGA", "EWR", "BOS", "MMU", "ORD", "ATL", "LAX"};
+
+  private static final double[] RADIUS = {0, 50, 100, 250, 500};
+
+  /** Shared metrics, the providers are singletons */
+  @State(Scope.Benchmark)
+  public static class Metrics {
+    private final WeatherMetricsProvider weatherMetricsProvider =
+        WeatherMetricsProvider.getInstance();
+    private final ConcurrentHashMap<String, Integer> legacyAirportMetrics =
+        new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> legacyRadiusMetrics =
+        new ConcurrentHashMap<>();
+  }
+
+  /** Per thread position in the request sequence */
+  @State(Scope.Thread)
+  public static class Requests {
+    private int next;
+
+    /** Half of the requests go to the first airport */
+    private String nextAirport() {
+      next++;
+      return (next & 1) == 0 ? AIRPORTS[0] : AIRPORTS[(next >>> 1) % AIRPORTS.length];
+    }
+
+    private Double nextRadius() {
+      return RADIUS[next % RADIUS.length];
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void adders(Metrics metrics, Requests requests) {
+    update(metrics, requests);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void addersAllCores(Metrics metrics, Requests requests) {
+    update(metrics, requests);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void legacy(Metrics metrics, Requests requests) {
+    legacyUpdate(metrics, requests);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void legacyAllCores(Metrics metrics, Requests requests) {
+    legacyUpdate(metrics, requests);
+  }
+
+  private static void update(Metrics metrics, Requests requests) {
+    metrics.weatherMetricsProvider.updateAirportMetrics(requests.nextAirport());
+    metrics.weatherMetricsProvider.updateRadiusMetrics(requests.nextRadius());
+  }
+
+  /** The racy updates as they were done before, without the logging */
+  private static void legacyUpdate(Metrics metrics, Requests requests) {
+    String iataCode = requests.nextAirport();
+    Double radius = requests.nextRadius();
+    metrics.legacyAirportMetrics.put(
+        iataCode, metrics.legacyAirportMetrics.getOrDefault(iataCode, 0) + 1);
+    metrics.legacyRadiusMetrics.put(
+        radius.intValue(), metrics.legacyRadiusMetrics.getOrDefault(radius.intValue(), 0) + 1);
+  }
+}
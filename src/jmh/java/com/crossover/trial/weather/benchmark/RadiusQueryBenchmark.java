@@ -0,0 +1,89 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.storage.AirportCoordinateTable;
+import com.crossover.trial.weather.utils.ConstantHelper;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the radius query on top of the {@link AirportCoordinateTable} against the object stream
+ * over every {@link AirportData} with a haversine per pair used before.
+ *
+ * @author Victor Polanco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RadiusQueryBenchmark {
+
+  @Param({"1000", "10000", "50000"})
+  private int airports;
+
+  /** 20100 km is larger than half of the earth circumference so it hits every airport */
+  @Param({"50", "500", "5000", "20100"})
+  private double radius;
+
+  private List<AirportData> airportData;
+
+  private AirportCoordinateTable airportCoordinateTable;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    airportData = BenchmarkData.randomAirports(airports, new Random(42));
+    airportCoordinateTable = AirportCoordinateTable.getInstance();
+    airportCoordinateTable.clear();
+    airportData.forEach(airportCoordinateTable::add);
+  }
+
+  @Benchmark
+  public List<AirportData> objectStream() {
+    AirportData center = nextCenter();
+    return airportData
+        .stream()
+        .filter(airport -> calculateDistance(center, airport) <= radius)
+        .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<AirportData> coordinateTable() {
+    return airportCoordinateTable.getAirportsInRadius(nextCenter(), radius);
+  }
+
+  private AirportData nextCenter() {
+    next = (next + 1) % airportData.size();
+    return airportData.get(next);
+  }
+
+  /** The haversine formula as it was computed for every pair of airports */
+  private static double calculateDistance(AirportData ad1, AirportData ad2) {
+    double deltaLat = Math.toRadians(ad2.latitude - ad1.latitude);
+    double deltaLon = Math.toRadians(ad2.longitude - ad1.longitude);
+    double a =
+        Math.pow(Math.sin(deltaLat / 2), 2)
+            + Math.pow(Math.sin(deltaLon / 2), 2)
+                * Math.cos(Math.toRadians(ad1.latitude))
+                * Math.cos(Math.toRadians(ad2.latitude));
+    double c = 2 * Math.asin(Math.sqrt(a));
+    return ConstantHelper.R * c;
+  }
+}
@@ -0,0 +1,136 @@
+package com.crossover.trial.weather.benchmark;
+
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.persistence.Durability;
+import com.crossover.trial.weather.persistence.WriteAheadLog;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.AirportServiceImpl;
+import com.crossover.trial.weather.service.AtmosphericInformationService;
+import com.crossover.trial.weather.service.AtmosphericInformationServiceImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ingest throughput of the collector updates with the write-ahead log off, on with async requests
+ * and on with sync requests, every operation is an update followed by the wait the endpoint does
+ * before answering. A single sync collector pays a force per update, many of them share the forces
+ * of the group commit. The log is written to java.io.tmpdir, which should be on the disk under
+ * test.
+ *
+ * @author Victor Polanco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+
+  private static final int AIRPORTS = 1000;
+
+  private static final String[] POINT_TYPES = {
+    "wind", "temperature", "humidity", "pressure", "cloudcover", "precipitation"
+  };
+
+  @Param({"off", "async", "sync"})
+  private String durability;
+
+  private Path directory;
+
+  private WriteAheadLog writeAheadLog;
+
+  private Durability requestDurability;
+
+  private AtmosphericInformationService atmosphericInformationService;
+
+  private String[] codes;
+
+  private DataPoint dataPoint;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    // Every fork reads the configuration of the log once
+    if (!"off".equals(durability)) {
+      directory = Files.createTempDirectory("weather-wal");
+      System.setProperty("weather.wal.dir", directory.toString());
+      System.setProperty("weather.wal.durability", durability);
+    }
+    writeAheadLog = WriteAheadLog.getInstance();
+    writeAheadLog.start();
+    requestDurability = writeAheadLog.getDurability(null);
+
+    AirportService airportService = new AirportServiceImpl();
+    atmosphericInformationService = new AtmosphericInformationServiceImpl();
+    codes = new String[AIRPORTS];
+    for (int i = 0; i < AIRPORTS; i++) {
+      codes[i] = BenchmarkData.code(i);
+      airportService.addAirport(codes[i], String.valueOf(i % 90), String.valueOf(i % 180));
+    }
+    dataPoint =
+        new DataPoint.Builder()
+            .withFirst(10)
+            .withMedian(20)
+            .withLast(30)
+            .withMean(22)
+            .withCount(10)
+            .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    writeAheadLog.close();
+    if (directory != null) {
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          Files.delete(file);
+        }
+      }
+      Files.delete(directory);
+    }
+  }
+
+  /** Per collector thread position in the airports */
+  @State(Scope.Thread)
+  public static class CollectorState {
+    private int next;
+  }
+
+  @Benchmark
+  public boolean ingest(CollectorState collectorState) {
+    return update(collectorState);
+  }
+
+  /** Every core collecting, the sync requests share the forces */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public boolean ingestAllCores(CollectorState collectorState) {
+    return update(collectorState);
+  }
+
+  private boolean update(CollectorState collectorState) {
+    collectorState.next++;
+    atmosphericInformationService.updateAtmosphericInformationForAirport(
+        codes[collectorState.next % AIRPORTS],
+        POINT_TYPES[collectorState.next % POINT_TYPES.length],
+        dataPoint);
+    return writeAheadLog.await(requestDurability);
+  }
+}
@@ -1,36 +1,265 @@
 package com.crossover.trial.weather;
 
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.utils.AirportCsvParser;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A simple airport loader which reads a file from disk and sends entries to the webservice
  *
- * <p>TODO: Implement the Airport Loader
+ * <p>The file is memory mapped and split in chunks at line boundaries that are parsed by a pool of
+ * threads, every parsed airport is posted right away with an asynchronous request. The amount of
+ * requests in flight is bounded so the parsers wait for the server instead of queueing the whole
+ * file in memory. The loader can be tuned with the loader.url, loader.parsers and loader.inflight
+ * system properties.
  *
  * @author code test administrator
  */
 public class AirportLoader {
 
+  private static final String BASE_URI = System.getProperty("loader.url", "http://localhost:9090");
+
+  private static final int PARSERS =
+      Integer.getInteger("loader.parsers", Runtime.getRuntime().availableProcessors());
+
+  private static final int MAX_IN_FLIGHT = Integer.getInteger("loader.inflight", 64);
+
+  /** Lines handed to a parser at once when reading from a stream */
+  private static final int LINES_PER_BATCH = 1000;
+
+  /** Larger files are streamed instead of mapped */
+  private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+  /** Amount of rejected rows printed in the report */
+  private static final int REPORTED_REJECTIONS = 20;
+
   /** end point for read queries */
   private WebTarget query;
 
   /** end point to supply updates */
   private WebTarget collect;
 
+  private final Client client;
+
+  /** Permits of the requests in flight */
+  private final Semaphore inFlight;
+
+  private final LongAdder rows;
+
+  private final LongAdder loaded;
+
+  private final LongAdder rejected;
+
+  private final LongAdder failed;
+
+  private final Queue<String> rejections;
+
   public AirportLoader() {
-    Client client = ClientBuilder.newClient();
-    query = client.target("http://localhost:8080/query");
-    collect = client.target("http://localhost:8080/collect");
+    // HttpURLConnection keeps alive at most http.maxConnections connections per server
+    if (System.getProperty("http.maxConnections") == null) {
+      System.setProperty("http.maxConnections", String.valueOf(MAX_IN_FLIGHT));
+    }
+    client =
+        ClientBuilder.newClient(
+            new ClientConfig().property(ClientProperties.ASYNC_THREADPOOL_SIZE, MAX_IN_FLIGHT));
+    query = client.target(BASE_URI + "/query");
+    collect = client.target(BASE_URI + "/collect");
+    inFlight = new Semaphore(MAX_IN_FLIGHT);
+    rows = new LongAdder();
+    loaded = new LongAdder();
+    rejected = new LongAdder();
+    failed = new LongAdder();
+    rejections = new ConcurrentLinkedQueue<>();
   }
 
+  /**
+   * Upload the airports of a stream, the lines are read sequentially and parsed in parallel.
+   *
+   * @param airportDataStream the airports in the airports.dat format
+   */
   public void upload(InputStream airportDataStream) throws IOException {
-    BufferedReader reader = new BufferedReader(new InputStreamReader(airportDataStream));
+    ExecutorService parsers = Executors.newFixedThreadPool(PARSERS);
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(airportDataStream, StandardCharsets.UTF_8));
+    List<String> batch = new ArrayList<>(LINES_PER_BATCH);
     String l = null;
     while ((l = reader.readLine()) != null) {
-      break;
+      batch.add(l);
+      if (batch.size() == LINES_PER_BATCH) {
+        List<String> lines = batch;
+        parsers.execute(() -> lines.forEach(this::uploadLine));
+        batch = new ArrayList<>(LINES_PER_BATCH);
+      }
+    }
+    List<String> lines = batch;
+    parsers.execute(() -> lines.forEach(this::uploadLine));
+    awaitCompletion(parsers);
+  }
+
+  /**
+   * Upload the airports of a file, the file is memory mapped and parsed in parallel chunks.
+   *
+   * @param airportDataFile the airports in the airports.dat format
+   */
+  public void upload(Path airportDataFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(airportDataFile, StandardOpenOption.READ)) {
+      if (channel.size() > MAX_MAPPED_SIZE) {
+        try (InputStream airportDataStream = new FileInputStream(airportDataFile.toFile())) {
+          upload(airportDataStream);
+        }
+        return;
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      ExecutorService parsers = Executors.newFixedThreadPool(PARSERS);
+      // A few chunks per parser so an uneven chunk doesn't leave the others idle
+      int chunkSize = Math.max(1, buffer.limit() / (PARSERS * 4));
+      int start = 0;
+      while (start < buffer.limit()) {
+        int end = Math.min(buffer.limit(), start + chunkSize);
+        // Extend the chunk to the end of its last line
+        while (end < buffer.limit() && buffer.get(end - 1) != '\n') {
+          end++;
+        }
+        ByteBuffer chunk = buffer.duplicate();
+        chunk.position(start);
+        chunk.limit(end);
+        parsers.execute(() -> uploadChunk(chunk.slice()));
+        start = end;
+      }
+      awaitCompletion(parsers);
+    }
+  }
+
+  /** Parse and upload the lines of a chunk of the file */
+  private void uploadChunk(ByteBuffer chunk) {
+    String lines = StandardCharsets.UTF_8.decode(chunk).toString();
+    int start = 0;
+    while (start < lines.length()) {
+      int end = lines.indexOf('\n', start);
+      if (end < 0) {
+        end = lines.length();
+      }
+      int lineEnd = end > start && lines.charAt(end - 1) == '\r' ? end - 1 : end;
+      uploadLine(lines.substring(start, lineEnd));
+      start = end + 1;
+    }
+  }
+
+  /** Parse a line and post its airport */
+  private void uploadLine(String line) {
+    if (line.trim().isEmpty()) {
+      return;
+    }
+    rows.increment();
+    AirportData airportData;
+    try {
+      airportData = AirportCsvParser.parse(line);
+    } catch (IllegalArgumentException e) {
+      reject(line, e.getMessage());
+      return;
+    }
+    // Wait for a free request slot, this is what bounds the memory of the loader
+    inFlight.acquireUninterruptibly();
+    try {
+      collect
+          .path("/airport/{iata}/{lat}/{long}")
+          .resolveTemplate("iata", airportData.getIata())
+          .resolveTemplate("lat", airportData.getLatitude())
+          .resolveTemplate("long", airportData.getLongitude())
+          .request()
+          .async()
+          .post(Entity.text(""), new UploadCallback(line));
+    } catch (RuntimeException e) {
+      inFlight.release();
+      failed.increment();
+    }
+  }
+
+  private void reject(String line, String reason) {
+    rejected.increment();
+    if (rejections.size() < REPORTED_REJECTIONS) {
+      rejections.add(reason + ": " + line);
+    }
+  }
+
+  /** Wait for the parsers and then for the requests still in flight */
+  private void awaitCompletion(ExecutorService parsers) throws IOException {
+    parsers.shutdown();
+    try {
+      parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      inFlight.acquire(MAX_IN_FLIGHT);
+      inFlight.release(MAX_IN_FLIGHT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while uploading the airports");
+    }
+  }
+
+  /** Print the amount of rows loaded and rejected */
+  private void report(long elapsed) {
+    double seconds = Math.max(1, elapsed) / (double) TimeUnit.SECONDS.toNanos(1);
+    System.out.println(
+        String.format(
+            "%d rows in %.2f s, %.0f rows/s: %d loaded, %d rejected, %d failed",
+            rows.sum(),
+            seconds,
+            rows.sum() / seconds,
+            loaded.sum(),
+            rejected.sum(),
+            failed.sum()));
+    rejections.forEach(rejection -> System.out.println("  rejected " + rejection));
+  }
+
+  /** Counts the response of an airport upload and frees its request slot */
+  private class UploadCallback implements InvocationCallback<Response> {
+    private final String line;
+
+    private UploadCallback(String line) {
+      this.line = line;
+    }
+
+    @Override
+    public void completed(Response response) {
+      try {
+        if (response.getStatus() == Response.Status.OK.getStatusCode()) {
+          loaded.increment();
+        } else {
+          reject(line, "Server answered " + response.getStatus());
+        }
+        response.close();
+      } finally {
+        inFlight.release();
+      }
+    }
+
+    @Override
+    public void failed(Throwable throwable) {
+      failed.increment();
+      inFlight.release();
     }
   }
 
@@ -42,7 +271,10 @@ public class AirportLoader {
     }
 
     AirportLoader al = new AirportLoader();
-    al.upload(new FileInputStream(airportDataFile));
+    long start = System.nanoTime();
+    al.upload(airportDataFile.toPath());
+    al.report(System.nanoTime() - start);
+    al.client.close();
     System.exit(0);
   }
 }
@@ -0,0 +1,80 @@
+package com.crossover.trial.weather;
+
+import com.crossover.trial.weather.model.storage.AirportCoordinateTable;
+import com.crossover.trial.weather.model.storage.AirportDataStorage;
+import com.crossover.trial.weather.model.storage.AirportKdTree;
+import com.crossover.trial.weather.model.storage.AtmosphericInfoStorage;
+import com.crossover.trial.weather.model.storage.FreshnessTracker;
+import com.crossover.trial.weather.model.storage.ObservationHistory;
+import com.crossover.trial.weather.model.storage.RadiusQueryCache;
+import com.crossover.trial.weather.model.storage.RollingAggregates;
+import com.crossover.trial.weather.model.storage.StorageBackend;
+import com.crossover.trial.weather.persistence.SnapshotManager;
+import com.crossover.trial.weather.persistence.WriteAheadLog;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.AirportServiceImpl;
+import com.crossover.trial.weather.service.AtmosphericInformationService;
+import com.crossover.trial.weather.service.AtmosphericInformationServiceImpl;
+import com.crossover.trial.weather.service.AtmosphericInformationSweeper;
+import com.crossover.trial.weather.service.QueryExecutor;
+import com.crossover.trial.weather.service.WeatherMetricsProvider;
+import com.crossover.trial.weather.tracing.RequestTracer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Singleton;
+import org.glassfish.hk2.utilities.binding.AbstractBinder;
+
+/**
+ * Binds the services of the {@link WeatherServer} and everything they work on, so Jersey injects
+ * the same instances in every endpoint it creates instead of the endpoints creating their own
+ * services on every request. The services are singletons built by HK2 with their collaborators
+ * injected, the atmospheric information storage being the one of the {@link StorageBackend}
+ * picked with the weather.storage system property.
+ *
+ * <p>The storages, indexes, log, executor and tracer are bound as their shared instances. The
+ * sweeper, the snapshots and the metrics are singletons built by HK2 like the services, so they
+ * work on the storage of the backend of the binder rather than on the configured one. The server
+ * runs its startup, the snapshot restore, the log replay and the default airports, on the
+ * instances bound here.
+ *
+ * @author Victor Polanco
+ */
+public class WeatherBinder extends AbstractBinder {
+
+  public static final Logger LOGGER = Logger.getLogger(WeatherBinder.class.getName());
+
+  private final StorageBackend storageBackend;
+
+  /**
+   * Create a binder of the configured storage backend.
+   *
+   * @param storageBackend the backend of the atmospheric information
+   */
+  public WeatherBinder(StorageBackend storageBackend) {
+    this.storageBackend = storageBackend;
+  }
+
+  @Override
+  protected void configure() {
+    LOGGER.log(Level.INFO, "Atmospheric information kept in the " + storageBackend + " storage");
+    bind(storageBackend.getAtmosphericInfoStorage()).to(AtmosphericInfoStorage.class);
+    bind(AirportDataStorage.getInstance()).to(AirportDataStorage.class);
+    bind(AirportCoordinateTable.getInstance()).to(AirportCoordinateTable.class);
+    bind(AirportKdTree.getInstance()).to(AirportKdTree.class);
+    bind(RadiusQueryCache.getInstance()).to(RadiusQueryCache.class);
+    bind(ObservationHistory.getInstance()).to(ObservationHistory.class);
+    bind(RollingAggregates.getInstance()).to(RollingAggregates.class);
+    bind(FreshnessTracker.getInstance()).to(FreshnessTracker.class);
+    bind(WriteAheadLog.getInstance()).to(WriteAheadLog.class);
+    bind(QueryExecutor.getInstance()).to(QueryExecutor.class);
+    bind(RequestTracer.getInstance()).to(RequestTracer.class);
+    // Built on the storage bound above, like the services
+    bindAsContract(AtmosphericInformationSweeper.class).in(Singleton.class);
+    bindAsContract(SnapshotManager.class).in(Singleton.class);
+    bindAsContract(WeatherMetricsProvider.class).in(Singleton.class);
+    bind(AirportServiceImpl.class).to(AirportService.class).in(Singleton.class);
+    bind(AtmosphericInformationServiceImpl.class)
+        .to(AtmosphericInformationService.class)
+        .in(Singleton.class);
+  }
+}
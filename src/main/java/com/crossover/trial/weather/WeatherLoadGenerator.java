@@ -0,0 +1,309 @@
+package com.crossover.trial.weather;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.utils.GsonFactory;
+import com.crossover.trial.weather.utils.LatencyHistogram;
+import com.google.gson.reflect.TypeToken;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Load generator for capacity tests against a running {@link WeatherServer}. A number of threads
+ * send a mix of weather queries and data point updates for the known airports and report the
+ * throughput and the latency percentiles of every endpoint.
+ *
+ * <p>The load is configured with system properties:
+ *
+ * <ul>
+ *   <li>load.url, the server, http://localhost:9090 by default
+ *   <li>load.threads, the concurrent senders, 8 by default
+ *   <li>load.mode, closed (every sender waits for its response before the next request, the
+ *       default) or open (requests are sent on a fixed schedule whatever the responses take)
+ *   <li>load.rate, the target requests per second of all the senders, 0 for as fast as possible,
+ *       required by the open mode
+ *   <li>load.writes, the fraction of the requests updating a data point, 0.2 by default
+ *   <li>load.radius, the comma separated radius of the queries in km, picked uniformly, 0 by
+ *       default
+ *   <li>load.skew, the exponent of the Zipf distribution of the airports, 0 for uniform and 1 by
+ *       default so a few hubs get most of the requests
+ *   <li>load.warmup and load.duration, the seconds of unrecorded warm up and of measurement, 5 and
+ *       30 by default
+ * </ul>
+ *
+ * <p>The latencies of the open mode are measured from the time each request was scheduled, and
+ * the paced closed mode records the requests its senders couldn't send while waiting, so a stalled
+ * server shows up in the percentiles instead of pausing the measurement.
+ *
+ * @author Victor Polanco
+ */
+public class WeatherLoadGenerator {
+
+  private static final String[] POINT_TYPES = {
+    "wind", "temperature", "humidity", "pressure", "cloudcover", "precipitation"
+  };
+
+  /** Valid mean range of each point type, as [min, max) */
+  private static final int[][] POINT_RANGES = {
+    {0, 50}, {-10, 40}, {0, 100}, {650, 800}, {0, 100}, {0, 100}
+  };
+
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+  private final String baseUri = System.getProperty("load.url", "http://localhost:9090");
+
+  private final int threads = Integer.getInteger("load.threads", 8);
+
+  private final boolean openLoop = "open".equals(System.getProperty("load.mode", "closed"));
+
+  private final double rate = Double.parseDouble(System.getProperty("load.rate", "0"));
+
+  private final double writes = Double.parseDouble(System.getProperty("load.writes", "0.2"));
+
+  private final String[] radius = System.getProperty("load.radius", "0").split(",");
+
+  private final double skew = Double.parseDouble(System.getProperty("load.skew", "1"));
+
+  private final long warmup = TimeUnit.SECONDS.toNanos(Long.getLong("load.warmup", 5));
+
+  private final long duration = TimeUnit.SECONDS.toNanos(Long.getLong("load.duration", 30));
+
+  /** Latencies in microseconds of every endpoint, by name */
+  private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+
+  /** Time from sending each request to its response in microseconds, by endpoint name */
+  private final Map<String, LatencyHistogram> serviceTimes = new LinkedHashMap<>();
+
+  private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+
+  private final Client client;
+
+  private final WebTarget query;
+
+  private final WebTarget collect;
+
+  private String[] airports;
+
+  /** Cumulative probability of picking each airport */
+  private double[] airportDistribution;
+
+  public WeatherLoadGenerator() {
+    client = ClientBuilder.newClient();
+    query = client.target(baseUri + "/query");
+    collect = client.target(baseUri + "/collect");
+    for (String endpoint : new String[] {"query.weather", "collect.weather"}) {
+      latencies.put(endpoint, new LatencyHistogram());
+      serviceTimes.put(endpoint, new LatencyHistogram());
+      errors.put(endpoint, new LongAdder());
+    }
+  }
+
+  /**
+   * Run the load and print the report.
+   *
+   * @throws InterruptedException if interrupted while waiting for the senders
+   */
+  public void run() throws InterruptedException {
+    if (openLoop && rate <= 0) {
+      throw new IllegalArgumentException("The open mode needs a load.rate");
+    }
+    loadAirports();
+    System.out.println(
+        "Sending "
+            + (openLoop ? "open" : "closed")
+            + " loop load to "
+            + baseUri
+            + " with "
+            + threads
+            + " threads"
+            + (rate > 0 ? " at " + rate + " requests/s" : "")
+            + " over "
+            + airports.length
+            + " airports");
+
+    // Every sender takes its share of the rate, their schedules are staggered
+    long interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * threads / rate) : 0;
+    long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+    long recordFrom = start + warmup;
+    long end = recordFrom + duration;
+    List<Thread> senders = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      long offset = interval * i / threads;
+      Thread sender =
+          new Thread(() -> send(start + offset, interval, recordFrom, end), "load-sender-" + i);
+      sender.start();
+      senders.add(sender);
+    }
+    for (Thread sender : senders) {
+      sender.join();
+    }
+    report();
+    client.close();
+  }
+
+  /** Loop of a sender thread */
+  private void send(long firstSend, long interval, long recordFrom, long end) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long intended = firstSend;
+    while (true) {
+      long now = System.nanoTime();
+      if (interval > 0 && now < intended) {
+        LockSupport.parkNanos(intended - now);
+        now = System.nanoTime();
+      }
+      if (now >= end) {
+        return;
+      }
+      boolean write = random.nextDouble() < writes;
+      String endpoint = write ? "collect.weather" : "query.weather";
+      long sent = System.nanoTime();
+      boolean success;
+      try {
+        success = write ? update(random) : query(random);
+      } catch (RuntimeException e) {
+        success = false;
+      }
+      long received = System.nanoTime();
+      if (sent >= recordFrom) {
+        record(endpoint, success, intended, sent, received, interval);
+      }
+      if (interval > 0) {
+        // The open mode keeps its schedule, the closed one sends right away when late
+        intended = openLoop ? intended + interval : Math.max(intended + interval, received);
+      }
+    }
+  }
+
+  private void record(
+      String endpoint, boolean success, long intended, long sent, long received, long interval) {
+    if (!success) {
+      errors.get(endpoint).increment();
+    }
+    long serviceTime = TimeUnit.NANOSECONDS.toMicros(received - sent);
+    serviceTimes.get(endpoint).recordValue(serviceTime);
+    if (openLoop) {
+      // Waiting for a free sender is part of the latency the client sees
+      latencies.get(endpoint).recordValue(TimeUnit.NANOSECONDS.toMicros(received - intended));
+    } else {
+      latencies
+          .get(endpoint)
+          .recordValueWithExpectedInterval(serviceTime, TimeUnit.NANOSECONDS.toMicros(interval));
+    }
+  }
+
+  private boolean query(ThreadLocalRandom random) {
+    Response response =
+        query
+            .path("/weather/" + nextAirport(random) + "/" + radius[random.nextInt(radius.length)])
+            .request(MediaType.APPLICATION_JSON)
+            .get();
+    // Read the body, the latency includes the transfer of the response
+    response.readEntity(String.class);
+    return response.getStatus() == Response.Status.OK.getStatusCode();
+  }
+
+  private boolean update(ThreadLocalRandom random) {
+    int type = random.nextInt(POINT_TYPES.length);
+    int min = POINT_RANGES[type][0];
+    int max = POINT_RANGES[type][1];
+    int first = random.nextInt(min, max);
+    int last = random.nextInt(first, max);
+    DataPoint dataPoint =
+        new DataPoint.Builder()
+            .withFirst(first)
+            .withMedian((first + last) / 2)
+            .withLast(last)
+            .withMean((first + last) / 2)
+            .withCount(random.nextInt(1, 1000))
+            .build();
+    Response response =
+        collect
+            .path("/weather/" + nextAirport(random) + "/" + POINT_TYPES[type])
+            .request()
+            .post(Entity.entity(GsonFactory.toJson(dataPoint), MediaType.APPLICATION_JSON));
+    int status = response.getStatus();
+    response.close();
+    return status == Response.Status.OK.getStatusCode();
+  }
+
+  /** Fetch the known airports and rank them for the Zipf distribution */
+  private void loadAirports() {
+    String airportsJson =
+        collect.path("/airports").request(MediaType.APPLICATION_JSON).get(String.class);
+    List<AirportData> airportData =
+        GsonFactory.getGsonFromJsonString(
+            airportsJson, new TypeToken<List<AirportData>>() {}.getType());
+    if (airportData == null || airportData.isEmpty()) {
+      throw new IllegalStateException("The server at " + baseUri + " has no airports");
+    }
+    airports = airportData.stream().map(AirportData::getIata).sorted().toArray(String[]::new);
+    airportDistribution = new double[airports.length];
+    double total = 0;
+    for (int i = 0; i < airports.length; i++) {
+      total += 1 / Math.pow(i + 1, skew);
+      airportDistribution[i] = total;
+    }
+    for (int i = 0; i < airports.length; i++) {
+      airportDistribution[i] /= total;
+    }
+  }
+
+  private String nextAirport(ThreadLocalRandom random) {
+    int index = Arrays.binarySearch(airportDistribution, random.nextDouble());
+    // Not found gives the insertion point, the first airport with a larger cumulative probability
+    index = index >= 0 ? index : -index - 1;
+    return airports[Math.min(index, airports.length - 1)];
+  }
+
+  private void report() {
+    double seconds = (double) duration / TimeUnit.SECONDS.toNanos(1);
+    System.out.println();
+    for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+      String endpoint = entry.getKey();
+      LatencyHistogram serviceTime = serviceTimes.get(endpoint);
+      System.out.println(
+          String.format(
+              "%s: %d requests, %.1f requests/s, %d errors",
+              endpoint,
+              serviceTime.getTotalCount(),
+              serviceTime.getTotalCount() / seconds,
+              errors.get(endpoint).sum()));
+      printPercentiles("  latency (us)     ", entry.getValue());
+      if (openLoop) {
+        printPercentiles("  service time (us)", serviceTime);
+      }
+    }
+  }
+
+  private static void printPercentiles(String label, LatencyHistogram histogram) {
+    StringBuilder line = new StringBuilder(label);
+    line.append(String.format(" mean=%.0f", histogram.getMean()));
+    for (double percentile : PERCENTILES) {
+      line.append(" p")
+          .append(BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString())
+          .append('=')
+          .append(histogram.getValueAtPercentile(percentile));
+    }
+    line.append(" max=").append(histogram.getMaxValue());
+    System.out.println(line);
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    new WeatherLoadGenerator().run();
+    System.exit(0);
+  }
+}
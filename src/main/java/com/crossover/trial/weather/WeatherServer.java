@@ -2,8 +2,20 @@ package com.crossover.trial.weather;
 
 import com.crossover.trial.weather.controller.RestWeatherCollectorEndpoint;
 import com.crossover.trial.weather.controller.RestWeatherQueryEndpoint;
-import org.glassfish.grizzly.Connection;
-import org.glassfish.grizzly.http.server.*;
+import com.crossover.trial.weather.model.storage.StorageBackend;
+import com.crossover.trial.weather.persistence.SnapshotManager;
+import com.crossover.trial.weather.persistence.WriteAheadLog;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.AtmosphericInformationService;
+import com.crossover.trial.weather.service.QueryExecutor;
+import com.crossover.trial.weather.service.WeatherMetricsProvider;
+import com.crossover.trial.weather.tracing.RequestTracer;
+import com.crossover.trial.weather.tracing.TracingFilter;
+import com.crossover.trial.weather.web.AtmosphericInformationJsonWriter;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpContainer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpContainerProvider;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.jackson.JacksonFeature;
 import org.glassfish.jersey.server.ResourceConfig;
@@ -23,36 +35,71 @@ import static java.lang.String.*;
  */
 public class WeatherServer {
 
-  private static final String BASE_URL = "http://localhost:9090/";
-
   public static void main(String[] args) {
     try {
-      System.out.println("Starting Weather App local testing server: " + BASE_URL);
+      // Bind address, threads and keep alive, configured with the weather.server properties
+      WeatherServerConfiguration configuration = WeatherServerConfiguration.fromSystemProperties();
+      URI baseUri = configuration.getBaseUri();
+      System.out.println("Starting Weather App local testing server: " + baseUri);
 
       final ResourceConfig resourceConfig = new ResourceConfig();
       resourceConfig.register(RestWeatherCollectorEndpoint.class);
       resourceConfig.register(RestWeatherQueryEndpoint.class);
+      // Shared services on the storage backend picked with -Dweather.storage
+      resourceConfig.register(new WeatherBinder(StorageBackend.configured()));
       resourceConfig.register(JacksonFeature.class);
+      resourceConfig.register(AtmosphericInformationJsonWriter.class);
+      // Sampled request tracing, off unless -Dweather.tracing.rate is set
+      resourceConfig.register(TracingFilter.class);
 
-      // initialize the dummy method to add the default airports.
-      RestWeatherCollectorEndpoint.init();
+      // The container builds the application without starting the server, the startup below runs
+      // on the services bound for the endpoints
+      GrizzlyHttpContainer container =
+          new GrizzlyHttpContainerProvider()
+              .createContainer(GrizzlyHttpContainer.class, resourceConfig);
+      ServiceLocator serviceLocator = container.getApplicationHandler().getServiceLocator();
+      AirportService airportService = serviceLocator.getService(AirportService.class);
+      AtmosphericInformationService atmosphericInformationService =
+          serviceLocator.getService(AtmosphericInformationService.class);
 
-      HttpServer server =
-          GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URL), resourceConfig, false);
-      Runtime.getRuntime().addShutdownHook(new Thread(() -> server.shutdownNow()));
+      // Restore the last snapshot and replay the changes logged after it, or initialize the dummy
+      // method to add the default airports. The log is started first so they are logged as well.
+      SnapshotManager snapshotManager = serviceLocator.getService(SnapshotManager.class);
+      WriteAheadLog writeAheadLog = serviceLocator.getService(WriteAheadLog.class);
+      boolean restored = snapshotManager.restore(airportService);
+      restored |=
+          writeAheadLog.recover(
+                  snapshotManager.getLogSequence(), airportService, atmosphericInformationService)
+              > 0;
+      writeAheadLog.start();
+      WeatherMetricsProvider weatherMetricsProvider =
+          serviceLocator.getService(WeatherMetricsProvider.class);
+      if (restored) {
+        weatherMetricsProvider.initMetrics();
+      } else {
+        RestWeatherCollectorEndpoint.init(airportService, weatherMetricsProvider);
+      }
+      snapshotManager.start();
 
-      HttpServerProbe probe =
-          new HttpServerProbe.Adapter() {
-            public void onRequestReceiveEvent(
-                HttpServerFilter filter, Connection connection, Request request) {
-              System.out.println(request.getRequestURI());
-            }
-          };
-      server.getServerConfiguration().getMonitoringConfig().getWebServerConfig().addProbes(probe);
+      HttpServer server =
+          GrizzlyHttpServerFactory.createHttpServer(baseUri, container, false, null, false);
+      configuration.configure(server);
+      QueryExecutor queryExecutor = serviceLocator.getService(QueryExecutor.class);
+      RequestTracer requestTracer = serviceLocator.getService(RequestTracer.class);
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    server.shutdownNow();
+                    queryExecutor.close();
+                    snapshotManager.close();
+                    writeAheadLog.close();
+                    requestTracer.close();
+                  }));
 
       // the autograder waits for this output before running automated tests, please don't remove it
       server.start();
-      System.out.println(format("Weather Server started.\n url=%s\n", BASE_URL));
+      System.out.println(format("Weather Server started.\n url=%s\n", baseUri));
 
       // blocks until the process is terminated
       Thread.currentThread().join();
@@ -0,0 +1,167 @@
+package com.crossover.trial.weather;
+
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.http.KeepAlive;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+
+/**
+ * Transport and threading configuration of the {@link WeatherServer}, read from system
+ * properties. Every property is optional, the ones left out keep the defaults of Grizzly:
+ *
+ * <ul>
+ *   <li>weather.server.url, the address to bind, http://localhost:9090/ by default
+ *   <li>weather.server.selectors, the selector threads accepting and reading the connections,
+ *       sized on the cores by default
+ *   <li>weather.server.workers, the worker threads running the resource methods, sized on the
+ *       cores by default
+ *   <li>weather.server.queue, the requests waiting for a worker before new ones are refused,
+ *       unbounded by default
+ *   <li>weather.server.backlog, the connections waiting to be accepted, 4096 by default
+ *   <li>weather.server.keepalive.timeout, the seconds an idle connection is kept open, 30 by
+ *       default and -1 to never close it
+ *   <li>weather.server.keepalive.requests, the requests served on a connection before it's
+ *       closed, 256 by default and -1 for no limit
+ *   <li>weather.server.threads, platform to run the resource methods on the pool of worker threads,
+ *       the default, or virtual to run every request on a new virtual thread
+ * </ul>
+ *
+ * <p>Virtual threads need Java 21, the server falls back to the worker pool on older runtimes. The
+ * workers and queue properties don't apply to them. A sync request waiting for its log force waits
+ * on a lock condition of the {@link com.crossover.trial.weather.persistence.WriteAheadLog}, so its
+ * virtual thread unmounts instead of holding a carrier. Monitors still pin the carrier up to Java
+ * 23: the per airport compute of the storages, where an update also waits when the log buffer is
+ * full, and the places where Grizzly and Jersey synchronize; -Djdk.tracePinnedThreads=short shows
+ * where. The throughput measured in each mode is recorded with the virtual-threads profile of the
+ * pom.
+ *
+ * @author Victor Polanco
+ */
+public class WeatherServerConfiguration {
+
+  public static final Logger LOGGER = Logger.getLogger(WeatherServerConfiguration.class.getName());
+
+  private static final String DEFAULT_URL = "http://localhost:9090/";
+
+  /** Value of the numeric properties left out */
+  private static final int DEFAULT = Integer.MIN_VALUE;
+
+  private final URI baseUri;
+
+  private final int selectors;
+
+  private final int workers;
+
+  private final int queueLimit;
+
+  private final int backlog;
+
+  private final int keepAliveTimeout;
+
+  private final int keepAliveRequests;
+
+  private final boolean virtualThreads;
+
+  private WeatherServerConfiguration() {
+    baseUri = URI.create(System.getProperty("weather.server.url", DEFAULT_URL));
+    selectors = Integer.getInteger("weather.server.selectors", DEFAULT);
+    workers = Integer.getInteger("weather.server.workers", DEFAULT);
+    queueLimit = Integer.getInteger("weather.server.queue", DEFAULT);
+    backlog = Integer.getInteger("weather.server.backlog", DEFAULT);
+    keepAliveTimeout = Integer.getInteger("weather.server.keepalive.timeout", DEFAULT);
+    keepAliveRequests = Integer.getInteger("weather.server.keepalive.requests", DEFAULT);
+    String threads = System.getProperty("weather.server.threads", "platform");
+    virtualThreads = "virtual".equalsIgnoreCase(threads.trim());
+    if (!virtualThreads && !"platform".equalsIgnoreCase(threads.trim())) {
+      LOGGER.log(Level.WARNING, "Unknown server threads " + threads + ", using platform threads");
+    }
+  }
+
+  /**
+   * Read the configuration from the system properties.
+   *
+   * @return the configuration of the server
+   */
+  public static WeatherServerConfiguration fromSystemProperties() {
+    return new WeatherServerConfiguration();
+  }
+
+  /**
+   * Get the address the server binds.
+   *
+   * @return the base uri of the endpoints
+   */
+  public URI getBaseUri() {
+    return baseUri;
+  }
+
+  /**
+   * Apply the configuration to the listeners of a server that wasn't started yet.
+   *
+   * @param server to configure
+   */
+  public void configure(HttpServer server) {
+    for (NetworkListener listener : server.getListeners()) {
+      TCPNIOTransport transport = listener.getTransport();
+      if (selectors != DEFAULT) {
+        transport.setSelectorRunnersCount(selectors);
+      }
+      if (backlog != DEFAULT) {
+        transport.setServerConnectionBackLog(backlog);
+      }
+      KeepAlive keepAlive = listener.getKeepAlive();
+      if (keepAliveTimeout != DEFAULT) {
+        keepAlive.setIdleTimeoutInSeconds(keepAliveTimeout);
+      }
+      if (keepAliveRequests != DEFAULT) {
+        keepAlive.setMaxRequestsCount(keepAliveRequests);
+      }
+      ExecutorService virtualThreadExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+      if (virtualThreadExecutor != null) {
+        transport.setWorkerThreadPool(virtualThreadExecutor);
+      } else if (workers != DEFAULT || queueLimit != DEFAULT) {
+        ThreadPoolConfig workerConfig = transport.getWorkerThreadPoolConfig().copy();
+        if (workers != DEFAULT) {
+          workerConfig.setCorePoolSize(workers).setMaxPoolSize(workers);
+        }
+        if (queueLimit != DEFAULT) {
+          workerConfig.setQueueLimit(queueLimit);
+        }
+        transport.setWorkerThreadPoolConfig(workerConfig);
+      }
+      LOGGER.log(Level.INFO, "Listener " + listener.getName() + ": " + describe(transport));
+    }
+  }
+
+  private String describe(TCPNIOTransport transport) {
+    if (transport.getWorkerThreadPool() != null) {
+      return "virtual threads";
+    }
+    ThreadPoolConfig workerConfig = transport.getWorkerThreadPoolConfig();
+    return String.format(
+        "%d selectors, %d workers, queue limit %d",
+        transport.getSelectorRunnersCount(),
+        workerConfig.getMaxPoolSize(),
+        workerConfig.getQueueLimit());
+  }
+
+  /** An executor starting a virtual thread per task, null if the runtime doesn't have them */
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      // Looked up so the server still builds and runs for Java 8
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+      String version = System.getProperty("java.version");
+      LOGGER.log(Level.WARNING, "Virtual threads need Java 21, using the workers on " + version);
+      return null;
+    }
+  }
+}
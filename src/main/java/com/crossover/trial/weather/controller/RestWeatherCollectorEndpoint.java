@@ -4,11 +4,29 @@ import com.crossover.trial.weather.model.AirportData;
 import com.crossover.trial.weather.model.AtmosphericInformation;
 import com.crossover.trial.weather.model.DataPoint;
 import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.persistence.Durability;
+import com.crossover.trial.weather.persistence.WriteAheadLog;
 import com.crossover.trial.weather.service.*;
+import com.crossover.trial.weather.tracing.RequestTracer;
+import com.crossover.trial.weather.utils.AirportCsvParser;
 import com.crossover.trial.weather.utils.GsonFactory;
+import com.crossover.trial.weather.web.AirportImportSummary;
+import com.crossover.trial.weather.web.BatchRecordStatus;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -22,6 +40,10 @@ import java.util.logging.Logger;
  * A REST implementation of the WeatherCollector API. Accessible only to airport weather collection
  * sites via secure VPN.
  *
+ * <p>The requests changing the airports or their atmospheric information answer once the changes
+ * are as durable in the {@link WriteAheadLog} as the X-Weather-Durability header asks for, sync or
+ * async, or as the default of the log when the header is missing.
+ *
  * @author code test administrator
  */
 @Path("/collect")
@@ -46,11 +68,38 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
    */
   private WeatherMetricsProvider weatherMetricsProvider;
 
-  public RestWeatherCollectorEndpoint() {
-    LOGGER.log(Level.INFO, "New Rest Weather Collector Endpoint instantiated");
-    airportService = new AirportServiceImpl();
-    atmosphericInformationService = new AtmosphericInformationServiceImpl();
-    weatherMetricsProvider = WeatherMetricsProvider.getInstance();
+  /** Write-ahead log singleton of the changes */
+  private WriteAheadLog writeAheadLog;
+
+  /** Tracer of the sampled requests */
+  private RequestTracer requestTracer;
+
+  /** The durability requested by the collector, injected on every request */
+  @HeaderParam(WriteAheadLog.DURABILITY_HEADER)
+  private String durabilityHeader;
+
+  /**
+   * Create the endpoint on the services bound by the server. Jersey creates an endpoint per request
+   * for the durability header, which only costs the references to the shared services.
+   *
+   * @param airportService service of the airports
+   * @param atmosphericInformationService service of the atmospheric information
+   * @param weatherMetricsProvider provider of the health and status information
+   * @param writeAheadLog log of the changes
+   * @param requestTracer tracer of the sampled requests
+   */
+  @Inject
+  public RestWeatherCollectorEndpoint(
+      AirportService airportService,
+      AtmosphericInformationService atmosphericInformationService,
+      WeatherMetricsProvider weatherMetricsProvider,
+      WriteAheadLog writeAheadLog,
+      RequestTracer requestTracer) {
+    this.airportService = airportService;
+    this.atmosphericInformationService = atmosphericInformationService;
+    this.weatherMetricsProvider = weatherMetricsProvider;
+    this.writeAheadLog = writeAheadLog;
+    this.requestTracer = requestTracer;
   }
 
   /**
@@ -86,15 +135,94 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
       @PathParam("iata") String iataCode,
       @PathParam("pointType") String pointType,
       String datapointJson) {
+    Durability durability = writeAheadLog.getDurability(durabilityHeader);
+    if (durability == null) {
+      return invalidDurability();
+    }
     // Get the data point object from the provided Json.
     DataPoint dataPoint = GsonFactory.getGsonFromJsonString(datapointJson, DataPoint.class);
     // Update the atmospheric information on the given airport.
-    return Response.status(
-            atmosphericInformationService.updateAtmosphericInformationForAirport(
-                iataCode, pointType, dataPoint))
+    Response.Status status =
+        atmosphericInformationService.updateAtmosphericInformationForAirport(
+            iataCode, pointType, dataPoint);
+    return Response.status(awaitDurability(durability, status)).build();
+  }
+
+  /**
+   * Update the atmospheric information of many airports at once. The body is a json list of
+   * records, each one a dict with iata, pointType and dataPoint keys, that is parsed and applied
+   * one record at a time.
+   *
+   * @param records the json list of records
+   * @return HTTP Response code and a json formatted list with the status code of every record
+   */
+  @Override
+  @POST
+  @Path("/weather")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response updateWeatherBatch(InputStream records) {
+    Durability durability = writeAheadLog.getDurability(durabilityHeader);
+    if (durability == null) {
+      return invalidDurability();
+    }
+    List<BatchRecordStatus> statuses = new ArrayList<>();
+    // Stream the records instead of buffering the whole body
+    try (JsonReader jsonReader =
+        new JsonReader(new InputStreamReader(records, StandardCharsets.UTF_8))) {
+      jsonReader.beginArray();
+      while (jsonReader.hasNext()) {
+        statuses.add(updateWeatherRecord(jsonReader));
+      }
+      jsonReader.endArray();
+    } catch (IOException | JsonParseException | IllegalStateException e) {
+      // The records before the malformed one were applied, report them along with the error
+      LOGGER.log(Level.WARNING, "Malformed batch of weather records", e);
+      return Response.status(awaitDurability(durability, Response.Status.BAD_REQUEST))
+          .entity(statuses)
+          .build();
+    }
+    // A single wait covers every record of the batch
+    return Response.status(awaitDurability(durability, Response.Status.OK))
+        .entity(statuses)
         .build();
   }
 
+  /**
+   * Read and apply the next record of a batch update.
+   *
+   * @param jsonReader positioned right before the record
+   * @return the status of the record
+   */
+  private BatchRecordStatus updateWeatherRecord(JsonReader jsonReader) throws IOException {
+    String iataCode = null;
+    String pointType = null;
+    DataPoint dataPoint = null;
+
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String name = jsonReader.nextName();
+      if (jsonReader.peek() == JsonToken.NULL) {
+        jsonReader.nextNull();
+      } else if ("iata".equals(name)) {
+        iataCode = jsonReader.nextString();
+      } else if ("pointType".equals(name)) {
+        pointType = jsonReader.nextString();
+      } else if ("dataPoint".equals(name)) {
+        dataPoint = GsonFactory.getGsonFromJsonReader(jsonReader, DataPoint.class);
+      } else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+
+    Response.Status status =
+        iataCode == null
+            ? Response.Status.BAD_REQUEST
+            : atmosphericInformationService.updateAtmosphericInformationForAirport(
+                iataCode, pointType, dataPoint);
+    return new BatchRecordStatus(iataCode, pointType, status.getStatusCode());
+  }
+
   /**
    * Return a list of known airports as a json formatted list
    *
@@ -108,6 +236,62 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
     return Response.status(Response.Status.OK).entity(airportService.getAllAirportData()).build();
   }
 
+  /**
+   * Import many airports at once from a stream in the airports.dat format. The lines are parsed and
+   * validated on the server and the new airports are indexed once for the whole batch. They are
+   * published one by one afterwards, a concurrent reader may see part of the batch, but never an
+   * airport the radius and nearest queries don't find yet.
+   *
+   * @param airports the airports.dat lines
+   * @return HTTP Response code and a json formatted summary of the loaded, duplicated and rejected
+   *     airports
+   */
+  @Override
+  @POST
+  @Path("/airports")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response importAirports(InputStream airports) {
+    Durability durability = writeAheadLog.getDurability(durabilityHeader);
+    if (durability == null) {
+      return invalidDurability();
+    }
+    AirportImportSummary summary = new AirportImportSummary();
+    List<AirportData> parsed = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(airports, StandardCharsets.UTF_8))) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        try {
+          parsed.add(AirportCsvParser.parse(line));
+        } catch (IllegalArgumentException e) {
+          summary.reject(lineNumber, e.getMessage());
+        }
+      }
+    } catch (IOException e) {
+      // Nothing was published yet, the whole import is dropped
+      LOGGER.log(Level.WARNING, "Unable to read the airports to import", e);
+      return Response.status(Response.Status.BAD_REQUEST).entity(summary).build();
+    }
+
+    // The atmospheric information goes first so the airports are complete once they are visible,
+    // the entries of the codes already known are left untouched
+    for (AirportData airportData : parsed) {
+      atmosphericInformationService.addAtmosphericInformationForAirport(
+          airportData.getIata(), new AtmosphericInformation());
+    }
+    int loaded = airportService.addAirports(parsed).size();
+    summary.setLoaded(loaded);
+    summary.setDuplicates(parsed.size() - loaded);
+    return Response.status(awaitDurability(durability, Response.Status.OK))
+        .entity(summary)
+        .build();
+  }
+
   /**
    * Retrieve airport data, including latitude and longitude for a particular airport
    *
@@ -137,6 +321,10 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
       @PathParam("iata") String iata,
       @PathParam("lat") String latString,
       @PathParam("long") String longString) {
+    Durability durability = writeAheadLog.getDurability(durabilityHeader);
+    if (durability == null) {
+      return invalidDurability();
+    }
     // Add a new airport entry on the airport data storage.
     Response.Status status = airportService.addAirport(iata, latString, longString);
     // If the status is OK we add a new entry into the atmospheric information for the corresponding airport.
@@ -145,7 +333,7 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
       atmosphericInformationService.addAtmosphericInformationForAirport(
           iata, new AtmosphericInformation());
     }
-    return Response.status(status).build();
+    return Response.status(awaitDurability(durability, status)).build();
   }
 
   /**
@@ -158,7 +346,51 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
   @DELETE
   @Path("/airport/{iata}")
   public Response deleteAirport(@PathParam("iata") String iata) {
-    return Response.status(airportService.deleteAirport(iata)).build();
+    Durability durability = writeAheadLog.getDurability(durabilityHeader);
+    if (durability == null) {
+      return invalidDurability();
+    }
+    Response.Status status = airportService.deleteAirport(iata);
+    return Response.status(awaitDurability(durability, status)).build();
+  }
+
+  /**
+   * Wait for the changes of the request to be as durable as requested.
+   *
+   * @param durability the requested durability
+   * @param status the status of the changes
+   * @return the given status, or SERVICE_UNAVAILABLE if the log failed to write the changes
+   */
+  private Response.Status awaitDurability(Durability durability, Response.Status status) {
+    if (!writeAheadLog.await(durability)) {
+      LOGGER.warning("The changes of the request may not be on disk");
+      return Response.Status.SERVICE_UNAVAILABLE;
+    }
+    return status;
+  }
+
+  private Response invalidDurability() {
+    return Response.status(Response.Status.BAD_REQUEST)
+        .entity("Invalid " + WriteAheadLog.DURABILITY_HEADER + " " + durabilityHeader)
+        .build();
+  }
+
+  /**
+   * Change the sampling rate of the request tracing, 0 turns the tracing off.
+   *
+   * @param rateString the probability of tracing a request as a string [0, 1]
+   * @return HTTP Response code for the change
+   */
+  @Override
+  @POST
+  @Path("/tracing/{rate}")
+  public Response updateTracingRate(@PathParam("rate") String rateString) {
+    Double rate = RequestTracer.parseRate(rateString);
+    if (rate == null) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("Invalid rate string").build();
+    }
+    requestTracer.setSamplingRate(rate);
+    return Response.status(Response.Status.OK).build();
   }
 
   /** Starts up the Weather Collector service. */
@@ -178,14 +410,19 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
     return Response.noContent().build();
   }
 
-  /** Dummy method to init the service, this will be called once the server starts running. */
-  public static void init() {
-    AirportService airportService = new AirportServiceImpl();
+  /**
+   * Dummy method to init the service, this will be called once the server starts running.
+   *
+   * @param airportService the service of the airports bound by the server
+   * @param weatherMetricsProvider the metrics provider bound by the server
+   */
+  public static void init(
+      AirportService airportService, WeatherMetricsProvider weatherMetricsProvider) {
     airportService.addAirport("BOS", "42.364347", "-71.005181");
     airportService.addAirport("EWR", "40.6925", "-74.168667");
     airportService.addAirport("JFK", "40.639751", "-73.778925");
     airportService.addAirport("LGA", "40.777245", "-73.872608");
     airportService.addAirport("MMU", "40.79935", "-74.4148747");
-    WeatherMetricsProvider.getInstance().initMetrics();
+    weatherMetricsProvider.initMetrics();
   }
 }
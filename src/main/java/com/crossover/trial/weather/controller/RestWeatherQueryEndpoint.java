@@ -1,14 +1,25 @@
 package com.crossover.trial.weather.controller;
 
 import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPointType;
 import com.crossover.trial.weather.service.*;
+import com.crossover.trial.weather.tracing.RequestTracer;
 import com.crossover.trial.weather.utils.ConstantHelper;
 import com.crossover.trial.weather.utils.GsonFactory;
+import com.crossover.trial.weather.web.Aggregate;
+import com.crossover.trial.weather.web.Observation;
 
+import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.*;
@@ -22,6 +33,7 @@ import java.util.logging.Logger;
  * @author code test administrator
  */
 @Path("/query")
+@Singleton
 public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
 
   /** Logger for all logs inside this service */
@@ -39,16 +51,42 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
    */
   private WeatherMetricsProvider weatherMetricsProvider;
 
-  public RestWeatherQueryEndpoint() {
-    airportService = new AirportServiceImpl();
-    atmosphericInformationService = new AtmosphericInformationServiceImpl();
-    weatherMetricsProvider = WeatherMetricsProvider.getInstance();
+  /** Bounded executor of the asynchronous queries */
+  private QueryExecutor queryExecutor;
+
+  /** Tracer of the sampled requests */
+  private RequestTracer requestTracer;
+
+  /**
+   * Create the endpoint on the services bound by the server, it has no state of its own so a single
+   * instance serves every request.
+   *
+   * @param airportService service of the airports
+   * @param atmosphericInformationService service of the atmospheric information
+   * @param weatherMetricsProvider provider of the health and status information
+   * @param queryExecutor executor of the asynchronous queries
+   * @param requestTracer tracer of the sampled requests
+   */
+  @Inject
+  public RestWeatherQueryEndpoint(
+      AirportService airportService,
+      AtmosphericInformationService atmosphericInformationService,
+      WeatherMetricsProvider weatherMetricsProvider,
+      QueryExecutor queryExecutor,
+      RequestTracer requestTracer) {
+    this.airportService = airportService;
+    this.atmosphericInformationService = atmosphericInformationService;
+    this.weatherMetricsProvider = weatherMetricsProvider;
+    this.queryExecutor = queryExecutor;
+    this.requestTracer = requestTracer;
   }
 
   /**
    * Retrieve health and status information for the the query api. Returns information about how the
-   * number of data points currently held in memory, the frequency of requests for each IATA code
-   * and the frequency of requests for each radius.
+   * number of data points currently held in memory, the frequency of requests for each IATA code,
+   * the frequency of requests for each radius, the hits and misses of the radius query cache, the
+   * evictions of stale atmospheric information, the request tracing counters and the load of the
+   * asynchronous queries.
    *
    * @return a JSON formatted dict with health information.
    */
@@ -63,8 +101,18 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
     metrics.put("iata_freq", weatherMetricsProvider.getAirportMetrics());
     // Get the radius metrics
     metrics.put("radius_freq", weatherMetricsProvider.getRadiusMetrics());
-    // Log the metrics data.
-    LOGGER.log(Level.INFO, "Getting the metrics information " + metrics);
+    // Get the radius query cache hits and misses
+    metrics.put("radius_cache", weatherMetricsProvider.getRadiusCacheMetrics());
+    // Get the evictions of stale atmospheric information
+    metrics.put("evictions", weatherMetricsProvider.getEvictionMetrics());
+    // Get the request tracing rate and counters
+    metrics.put("tracing", requestTracer.getStatistics());
+    // Get the active, queued, rejected and timed out asynchronous queries
+    metrics.put("query_executor", weatherMetricsProvider.getQueryExecutorMetrics());
+    // The metrics list every airport, so they are only logged when asked for
+    if (LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.log(Level.FINE, "Getting the metrics information " + metrics);
+    }
     // Return a new Json file.
     return GsonFactory.toJson(metrics);
   }
@@ -83,7 +131,7 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
   public Response weather(
       @PathParam("iata") String iata, @PathParam("radius") String radiusString) {
     Double radius = ConstantHelper.getValidDouble(radiusString);
-    if (radius == Double.NaN) {
+    if (radius.isNaN()) {
       // Log a warning that a invalid radius was introduced.
       LOGGER.log(
           Level.WARNING,
@@ -97,12 +145,150 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
     updateRequestFrequency(iata, radius);
     // Get all airports in the given radius.
     List<AirportData> airportData = airportService.getAirportDataInRadius(iata, radius);
-    // Return all airports' atmospheric information for the given radius.
+    // Return all airports' atmospheric information for the given radius, the generic entity keeps
+    // the element type so the streaming writer handles the list
+    List<AtmosphericInformation> atmosphericInformation =
+        atmosphericInformationService.getAtmosphericInformationForAirports(airportData);
     return Response.status(Response.Status.OK)
-        .entity(atmosphericInformationService.getAtmosphericInformationForAirports(airportData))
+        .entity(new GenericEntity<List<AtmosphericInformation>>(atmosphericInformation) {})
         .build();
   }
 
+  /**
+   * Asynchronous variant of {@link #weather(String, String)}, the query and the serialization of
+   * its response run on the bounded {@link QueryExecutor} instead of the worker of the server. When
+   * the executor is saturated or the query times out the response is a 503 with a Retry-After.
+   *
+   * @param iata the iataCode
+   * @param radiusString the radius in km
+   * @param asyncResponse the suspended response, resumed with the list of atmospheric information
+   */
+  @Override
+  @GET
+  @Path("/weather/async/{iata}/{radius}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public void weatherAsync(
+      @PathParam("iata") String iata,
+      @PathParam("radius") String radiusString,
+      @Suspended AsyncResponse asyncResponse) {
+    queryExecutor.submit(asyncResponse, () -> weather(iata, radiusString));
+  }
+
+  /**
+   * Retrieve the airports closest to the given airport, sorted by distance.
+   *
+   * @param iata the three letter airport code
+   * @param countString the maximum amount of airports to return
+   * @return an HTTP Response and a list of {@link AirportData} closest first
+   */
+  @Override
+  @GET
+  @Path("/nearest/{iata}/{count}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response nearest(@PathParam("iata") String iata, @PathParam("count") String countString) {
+    Integer count = ConstantHelper.getValidCount(countString);
+    if (count == null) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("Invalid count string").build();
+    }
+    List<AirportData> airportData = airportService.getNearestAirports(iata, count);
+    // There's no resource for an unknown airport code
+    if (airportData == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    return Response.status(Response.Status.OK).entity(airportData).build();
+  }
+
+  /**
+   * Retrieve the airports closest to the given coordinates, sorted by distance.
+   *
+   * @param latString the latitude in degrees as a string [-90, 90]
+   * @param longString the longitude in degrees as a string [-180, 180]
+   * @param countString the maximum amount of airports to return
+   * @return an HTTP Response and a list of {@link AirportData} closest first
+   */
+  @Override
+  @GET
+  @Path("/nearest/{lat}/{long}/{count}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response nearestToLocation(
+      @PathParam("lat") String latString,
+      @PathParam("long") String longString,
+      @PathParam("count") String countString) {
+    double latitude = ConstantHelper.getValidDouble(latString);
+    double longitude = ConstantHelper.getValidDouble(longString);
+    Integer count = ConstantHelper.getValidCount(countString);
+    if (count == null || !ConstantHelper.isValidLocation(latitude, longitude)) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Invalid location or count string")
+          .build();
+    }
+    return Response.status(Response.Status.OK)
+        .entity(airportService.getNearestAirports(latitude, longitude, count))
+        .build();
+  }
+
+  /**
+   * Retrieve the observations of an airport for a point type collected in a time window, oldest
+   * first. The window defaults to the whole history kept for the airport.
+   *
+   * @param iata the three letter airport code
+   * @param pointType the point type, {@link DataPointType} for a complete list
+   * @param fromString the start of the window in milliseconds since UTC epoch, optional
+   * @param toString the end of the window in milliseconds since UTC epoch, optional
+   * @return an HTTP Response and a list of {@link Observation}
+   */
+  @Override
+  @GET
+  @Path("/history/{iata}/{pointType}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response history(
+      @PathParam("iata") String iata,
+      @PathParam("pointType") String pointType,
+      @QueryParam("from") String fromString,
+      @QueryParam("to") String toString) {
+    DataPointType dataPointType = DataPointType.fromName(pointType);
+    Long from = ConstantHelper.getValidTimestamp(fromString, 0);
+    Long to = ConstantHelper.getValidTimestamp(toString, Long.MAX_VALUE);
+    if (dataPointType == null || from == null || to == null) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Invalid point type or time window")
+          .build();
+    }
+    List<Observation> observations =
+        atmosphericInformationService.getObservationHistory(iata, dataPointType, from, to);
+    // There's no resource for an unknown airport code
+    if (observations == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    return Response.status(Response.Status.OK).entity(observations).build();
+  }
+
+  /**
+   * Retrieve the aggregates of the data point means of an airport for a point type over every
+   * configured window ending now, 1h, 6h and 24h by default.
+   *
+   * @param iata the three letter airport code
+   * @param pointType the point type, {@link DataPointType} for a complete list
+   * @return an HTTP Response and a list of {@link Aggregate}, one per window
+   */
+  @Override
+  @GET
+  @Path("/aggregates/{iata}/{pointType}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response aggregates(
+      @PathParam("iata") String iata, @PathParam("pointType") String pointType) {
+    DataPointType dataPointType = DataPointType.fromName(pointType);
+    if (dataPointType == null) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("Invalid point type").build();
+    }
+    List<Aggregate> aggregates = atmosphericInformationService.getAggregates(iata, dataPointType);
+    // There's no resource for an unknown airport code
+    if (aggregates == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    return Response.status(Response.Status.OK).entity(aggregates).build();
+  }
+
   /**
    * Records information about how often requests are made
    *
@@ -2,6 +2,7 @@ package com.crossover.trial.weather.controller;
 
 import com.crossover.trial.weather.model.AirportData;
 import com.crossover.trial.weather.model.DataPointType;
+import java.io.InputStream;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -40,6 +41,19 @@ public interface WeatherCollectorEndpoint {
       @PathParam("pointType") String pointType,
       String datapointJson);
 
+  /**
+   * Update the atmospheric information of many airports at once. The body is a json list of
+   * records, each one a dict with iata, pointType and dataPoint keys, that is parsed and applied
+   * one record at a time.
+   *
+   * @param records the json list of records
+   * @return HTTP Response code and a json formatted list with the status code of every record
+   */
+  @POST
+  @Path("/weather")
+  @Produces(MediaType.APPLICATION_JSON)
+  Response updateWeatherBatch(InputStream records);
+
   /**
    * Return a list of known airports as a json formatted list
    *
@@ -50,6 +64,21 @@ public interface WeatherCollectorEndpoint {
   @Produces(MediaType.APPLICATION_JSON)
   Response getAirports();
 
+  /**
+   * Import many airports at once from a stream in the airports.dat format. The lines are parsed and
+   * validated on the server and the new airports are indexed once for the whole batch. They are
+   * published one by one afterwards, a concurrent reader may see part of the batch, but never an
+   * airport the radius and nearest queries don't find yet.
+   *
+   * @param airports the airports.dat lines
+   * @return HTTP Response code and a json formatted summary of the loaded, duplicated and rejected
+   *     airports
+   */
+  @POST
+  @Path("/airports")
+  @Produces(MediaType.APPLICATION_JSON)
+  Response importAirports(InputStream airports);
+
   /**
    * Retrieve airport data, including latitude and longitude for a particular airport
    *
@@ -86,6 +115,16 @@ public interface WeatherCollectorEndpoint {
   @Path("/airport/{iata}")
   Response deleteAirport(@PathParam("iata") String iata);
 
+  /**
+   * Change the sampling rate of the request tracing, 0 turns the tracing off.
+   *
+   * @param rateString the probability of tracing a request as a string [0, 1]
+   * @return HTTP Response code for the change
+   */
+  @POST
+  @Path("/tracing/{rate}")
+  Response updateTracingRate(@PathParam("rate") String rateString);
+
   /** Shuts down the Weather service */
   @GET
   @Path("/exit")
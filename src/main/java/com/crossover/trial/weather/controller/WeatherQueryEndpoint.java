@@ -1,10 +1,17 @@
 package com.crossover.trial.weather.controller;
 
+import com.crossover.trial.weather.model.AirportData;
 import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.web.Aggregate;
+import com.crossover.trial.weather.web.Observation;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.jvnet.hk2.annotations.Contract;
@@ -40,4 +47,82 @@ public interface WeatherQueryEndpoint {
   @Path("/weather/{iata}/{radius}")
   @Produces(MediaType.APPLICATION_JSON)
   Response weather(@PathParam("iata") String iata, @PathParam("radius") String radiusString);
+
+  /**
+   * Retrieve the same atmospheric information as {@link #weather(String, String)} without holding
+   * a worker of the server, the query runs on a bounded executor and is rejected with a 503 and a
+   * Retry-After when the executor is saturated or the query times out.
+   *
+   * @param iata the three letter airport code
+   * @param radiusString the radius, in km, from which to collect weather data
+   * @param asyncResponse the suspended response, resumed with a list of {@link
+   *     AtmosphericInformation}
+   */
+  @GET
+  @Path("/weather/async/{iata}/{radius}")
+  @Produces(MediaType.APPLICATION_JSON)
+  void weatherAsync(
+      @PathParam("iata") String iata,
+      @PathParam("radius") String radiusString,
+      @Suspended AsyncResponse asyncResponse);
+
+  /**
+   * Retrieve the airports closest to the given airport, sorted by distance.
+   *
+   * @param iata the three letter airport code
+   * @param countString the maximum amount of airports to return
+   * @return an HTTP Response and a list of {@link AirportData} closest first
+   */
+  @GET
+  @Path("/nearest/{iata}/{count}")
+  @Produces(MediaType.APPLICATION_JSON)
+  Response nearest(@PathParam("iata") String iata, @PathParam("count") String countString);
+
+  /**
+   * Retrieve the airports closest to the given coordinates, sorted by distance.
+   *
+   * @param latString the latitude in degrees as a string [-90, 90]
+   * @param longString the longitude in degrees as a string [-180, 180]
+   * @param countString the maximum amount of airports to return
+   * @return an HTTP Response and a list of {@link AirportData} closest first
+   */
+  @GET
+  @Path("/nearest/{lat}/{long}/{count}")
+  @Produces(MediaType.APPLICATION_JSON)
+  Response nearestToLocation(
+      @PathParam("lat") String latString,
+      @PathParam("long") String longString,
+      @PathParam("count") String countString);
+
+  /**
+   * Retrieve the observations of an airport for a point type collected in a time window, oldest
+   * first. The window defaults to the whole history kept for the airport.
+   *
+   * @param iata the three letter airport code
+   * @param pointType the point type, {@link DataPointType} for a complete list
+   * @param fromString the start of the window in milliseconds since UTC epoch, optional
+   * @param toString the end of the window in milliseconds since UTC epoch, optional
+   * @return an HTTP Response and a list of {@link Observation}
+   */
+  @GET
+  @Path("/history/{iata}/{pointType}")
+  @Produces(MediaType.APPLICATION_JSON)
+  Response history(
+      @PathParam("iata") String iata,
+      @PathParam("pointType") String pointType,
+      @QueryParam("from") String fromString,
+      @QueryParam("to") String toString);
+
+  /**
+   * Retrieve the aggregates of the data point means of an airport for a point type over every
+   * configured window ending now, 1h, 6h and 24h by default.
+   *
+   * @param iata the three letter airport code
+   * @param pointType the point type, {@link DataPointType} for a complete list
+   * @return an HTTP Response and a list of {@link Aggregate}, one per window
+   */
+  @GET
+  @Path("/aggregates/{iata}/{pointType}")
+  @Produces(MediaType.APPLICATION_JSON)
+  Response aggregates(@PathParam("iata") String iata, @PathParam("pointType") String pointType);
 }
@@ -1,145 +1,114 @@
 package com.crossover.trial.weather.model;
 
-/** encapsulates sensor information for a particular location */
+/**
+ * Encapsulates sensor information for a particular location. Instances are immutable snapshots,
+ * an update creates a new snapshot with the updated data point so readers always see a consistent
+ * combination of readings.
+ */
 public class AtmosphericInformation {
 
   /** temperature in degrees celsius */
-  private DataPoint temperature;
+  private final DataPoint temperature;
 
   /** wind speed in km/h */
-  private DataPoint wind;
+  private final DataPoint wind;
 
   /** humidity in percent */
-  private DataPoint humidity;
+  private final DataPoint humidity;
 
   /** precipitation in cm */
-  private DataPoint precipitation;
+  private final DataPoint precipitation;
 
   /** pressure in mmHg */
-  private DataPoint pressure;
+  private final DataPoint pressure;
 
   /** cloud cover percent from 0 - 100 (integer) */
-  private DataPoint cloudCover;
+  private final DataPoint cloudCover;
 
   /** the last time this data was updated, in milliseconds since UTC epoch */
-  private long lastUpdateTime;
+  private final long lastUpdateTime;
 
-  public AtmosphericInformation() {}
+  /** Create an empty atmospheric information that was never updated */
+  public AtmosphericInformation() {
+    this(null, null, null, null, null, null, 0);
+  }
 
-  protected AtmosphericInformation(
+  /** Create an atmospheric information with the given readings, used to restore a snapshot */
+  public AtmosphericInformation(
       DataPoint temperature,
       DataPoint wind,
       DataPoint humidity,
-      DataPoint percipitation,
+      DataPoint precipitation,
       DataPoint pressure,
-      DataPoint cloudCover) {
+      DataPoint cloudCover,
+      long lastUpdateTime) {
     this.temperature = temperature;
     this.wind = wind;
     this.humidity = humidity;
-    this.precipitation = percipitation;
+    this.precipitation = precipitation;
     this.pressure = pressure;
     this.cloudCover = cloudCover;
-    this.lastUpdateTime = System.currentTimeMillis();
+    this.lastUpdateTime = lastUpdateTime;
   }
 
   public DataPoint getTemperature() {
     return temperature;
   }
 
-  public void setTemperature(DataPoint temperature) {
-    this.temperature = temperature;
+  public AtmosphericInformation withTemperature(DataPoint temperature, long lastUpdateTime) {
+    return new AtmosphericInformation(
+        temperature, wind, humidity, precipitation, pressure, cloudCover, lastUpdateTime);
   }
 
   public DataPoint getWind() {
     return wind;
   }
 
-  public void setWind(DataPoint wind) {
-    this.wind = wind;
+  public AtmosphericInformation withWind(DataPoint wind, long lastUpdateTime) {
+    return new AtmosphericInformation(
+        temperature, wind, humidity, precipitation, pressure, cloudCover, lastUpdateTime);
   }
 
   public DataPoint getHumidity() {
     return humidity;
   }
 
-  public void setHumidity(DataPoint humidity) {
-    this.humidity = humidity;
+  public AtmosphericInformation withHumidity(DataPoint humidity, long lastUpdateTime) {
+    return new AtmosphericInformation(
+        temperature, wind, humidity, precipitation, pressure, cloudCover, lastUpdateTime);
   }
 
   public DataPoint getPrecipitation() {
     return precipitation;
   }
 
-  public void setPrecipitation(DataPoint precipitation) {
-    this.precipitation = precipitation;
+  public AtmosphericInformation withPrecipitation(DataPoint precipitation, long lastUpdateTime) {
+    return new AtmosphericInformation(
+        temperature, wind, humidity, precipitation, pressure, cloudCover, lastUpdateTime);
   }
 
   public DataPoint getPressure() {
     return pressure;
   }
 
-  public void setPressure(DataPoint pressure) {
-    this.pressure = pressure;
+  public AtmosphericInformation withPressure(DataPoint pressure, long lastUpdateTime) {
+    return new AtmosphericInformation(
+        temperature, wind, humidity, precipitation, pressure, cloudCover, lastUpdateTime);
   }
 
   public DataPoint getCloudCover() {
     return cloudCover;
   }
 
-  public void setCloudCover(DataPoint cloudCover) {
-    this.cloudCover = cloudCover;
-  }
-
-  public void setMeasuredTemperature(DataPoint temperature) {
-    if (temperature.getMean() >= -50 && temperature.getMean() < 100) {
-      this.temperature = temperature;
-      this.setLastUpdateTime(System.currentTimeMillis());
-    }
-  }
-
-  public void setMeasuredWind(DataPoint wind) {
-    if (wind.getMean() >= 0) {
-      this.wind = wind;
-      this.setLastUpdateTime(System.currentTimeMillis());
-    }
-  }
-
-  public void setMeasuredHumidity(DataPoint humidity) {
-    if (humidity.getMean() >= 0 && humidity.getMean() < 100) {
-      this.humidity = humidity;
-      this.setLastUpdateTime(System.currentTimeMillis());
-    }
-  }
-
-  public void setMeasuredPrecipitation(DataPoint precipitation) {
-    if (precipitation.getMean() >= 0 && precipitation.getMean() < 100) {
-      this.precipitation = precipitation;
-      this.setLastUpdateTime(System.currentTimeMillis());
-    }
-  }
-
-  public void setMeasuredPressure(DataPoint pressure) {
-    if (pressure.getMean() >= 650 && pressure.getMean() < 800) {
-      this.pressure = pressure;
-      this.setLastUpdateTime(System.currentTimeMillis());
-    }
-  }
-
-  public void setMeasuredCloudCover(DataPoint cloudCover) {
-    if (cloudCover.getMean() >= 0 && cloudCover.getMean() < 100) {
-      this.cloudCover = cloudCover;
-      this.setLastUpdateTime(System.currentTimeMillis());
-    }
+  public AtmosphericInformation withCloudCover(DataPoint cloudCover, long lastUpdateTime) {
+    return new AtmosphericInformation(
+        temperature, wind, humidity, precipitation, pressure, cloudCover, lastUpdateTime);
   }
 
   public long getLastUpdateTime() {
     return this.lastUpdateTime;
   }
 
-  public void setLastUpdateTime(long lastUpdateTime) {
-    this.lastUpdateTime = lastUpdateTime;
-  }
-
   @Override
   public String toString() {
     return "AtmosphericInformation{"
@@ -6,10 +6,43 @@ package com.crossover.trial.weather.model;
  * @author code test administrator
  */
 public enum DataPointType {
-  WIND,
-  TEMPERATURE,
-  HUMIDTY,
-  PRESSURE,
-  CLOUDCOVER,
-  PRECIPITATION
+  WIND("wind"),
+  TEMPERATURE("temperature"),
+  HUMIDTY("humidity"),
+  PRESSURE("pressure"),
+  CLOUDCOVER("cloudcover"),
+  PRECIPITATION("precipitation");
+
+  /** Cached copy of the values, {@link #values()} clones the array on every call */
+  private static final DataPointType[] TYPES = values();
+
+  /** The name used by the collectors on the REST API */
+  private final String pointName;
+
+  DataPointType(String pointName) {
+    this.pointName = pointName;
+  }
+
+  public String getPointName() {
+    return pointName;
+  }
+
+  /**
+   * Find the data point type for the given name ignoring the case, accepts both the REST API name
+   * and the name of the constant.
+   *
+   * @param name of the data point type
+   * @return the {@link DataPointType} or null if there's no type with the given name
+   */
+  public static DataPointType fromName(String name) {
+    if (name == null) {
+      return null;
+    }
+    for (DataPointType type : TYPES) {
+      if (type.pointName.equalsIgnoreCase(name) || type.name().equalsIgnoreCase(name)) {
+        return type;
+      }
+    }
+    return null;
+  }
 }
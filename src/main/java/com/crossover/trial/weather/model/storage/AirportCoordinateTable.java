@@ -0,0 +1,408 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.utils.ConstantHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Primitive, structure of arrays table with the coordinates of the known airports. Every airport
+ * owns a slot in a set of parallel arrays holding its position as a unit vector, computed once when
+ * the airport is added.
+ *
+ * <p>Radius queries narrow the slots to check with the {@link AirportGridIndex} and then compare
+ * the chord between the unit vectors against the chord of the radius, which only needs a few
+ * multiplications per airport and no trigonometry. Writers are serialized by a {@link StampedLock},
+ * readers run optimistically and only fall back to the read lock when a write overlapped them.
+ *
+ * @author Victor Polanco
+ */
+public class AirportCoordinateTable {
+
+  /** Initial amount of slots of the table */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /** Radius queries with more candidates than 1 / SCAN_RATIO of the table do a full scan */
+  private static final int SCAN_RATIO = 8;
+
+  /** Lock serializing the writers and validating the optimistic readers */
+  private final StampedLock lock;
+
+  /** Grid of slots used to narrow the radius queries, guarded by the lock */
+  private final AirportGridIndex gridIndex;
+
+  /** Slot of every airport in the table, guarded by the lock */
+  private final Map<AirportData, Integer> slots;
+
+  /** Stack of released slots to reuse, guarded by the lock */
+  private int[] freeSlots;
+
+  private int freeSlotCount;
+
+  /** The parallel arrays, replaced when the table grows */
+  private volatile Columns columns;
+
+  /** Amount of slots ever used, slots past this one are empty */
+  private volatile int size;
+
+  /** Per thread buffers used by the queries so the kernels don't allocate */
+  private final ThreadLocal<Scratch> scratch;
+
+  /** Private constructor preventing other classes to instantiate the class */
+  private AirportCoordinateTable() {
+    lock = new StampedLock();
+    gridIndex = new AirportGridIndex();
+    slots = new IdentityHashMap<>();
+    freeSlots = new int[16];
+    columns = new Columns(INITIAL_CAPACITY);
+    scratch = ThreadLocal.withInitial(Scratch::new);
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the AirportCoordinateTable.
+   */
+  public static AirportCoordinateTable getInstance() {
+    return TableHolder.INSTANCE;
+  }
+
+  /**
+   * Add an airport to the table and to the grid index.
+   *
+   * @param airportData the airport to add
+   */
+  public void add(AirportData airportData) {
+    long stamp = lock.writeLock();
+    try {
+      if (slots.containsKey(airportData)) {
+        return;
+      }
+      int slot = freeSlotCount > 0 ? freeSlots[--freeSlotCount] : size;
+      if (slot == columns.capacity()) {
+        columns = columns.grow(slot * 2);
+      }
+      columns.set(slot, airportData);
+      if (slot == size) {
+        size = slot + 1;
+      }
+      slots.put(airportData, slot);
+      gridIndex.add(slot, airportData.getLatitude(), airportData.getLongitude());
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Add a batch of airports to the table and to the grid index under a single write lock, the
+   * columns grow at most once for the whole batch.
+   *
+   * @param airports the airports to add
+   */
+  public void addAll(Collection<AirportData> airports) {
+    long stamp = lock.writeLock();
+    try {
+      int required = size + Math.max(0, airports.size() - freeSlotCount);
+      if (required > columns.capacity()) {
+        columns = columns.grow(Math.max(required, columns.capacity() * 2));
+      }
+      int nextSize = size;
+      for (AirportData airportData : airports) {
+        if (slots.containsKey(airportData)) {
+          continue;
+        }
+        int slot = freeSlotCount > 0 ? freeSlots[--freeSlotCount] : nextSize++;
+        columns.set(slot, airportData);
+        slots.put(airportData, slot);
+        gridIndex.add(slot, airportData.getLatitude(), airportData.getLongitude());
+      }
+      // Publish the new size once the slots are filled
+      size = nextSize;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Remove an airport from the table and from the grid index.
+   *
+   * @param airportData the exact instance previously added to the table
+   */
+  public void remove(AirportData airportData) {
+    long stamp = lock.writeLock();
+    try {
+      Integer slot = slots.remove(airportData);
+      if (slot == null) {
+        return;
+      }
+      columns.clear(slot);
+      gridIndex.remove(slot, airportData.getLatitude(), airportData.getLongitude());
+      if (freeSlotCount == freeSlots.length) {
+        freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+      }
+      freeSlots[freeSlotCount++] = slot;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /** Remove every airport from the table. */
+  public void clear() {
+    long stamp = lock.writeLock();
+    try {
+      slots.clear();
+      gridIndex.clear();
+      freeSlotCount = 0;
+      columns = new Columns(INITIAL_CAPACITY);
+      size = 0;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Get all airports around the given airport in the given radius, including the airport itself.
+   *
+   * @param center the airport in the center of the radius
+   * @param radius in km
+   * @return a list of {@link AirportData} in the radius
+   */
+  public List<AirportData> getAirportsInRadius(AirportData center, double radius) {
+    // Discard negative and NaN radius, no airport can be inside of them
+    if (!(radius >= 0)) {
+      return new ArrayList<>();
+    }
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        List<AirportData> airports = collect(center, radius);
+        if (lock.validate(stamp)) {
+          return airports;
+        }
+      } catch (ArrayIndexOutOfBoundsException e) {
+        // A writer replaced the columns under our feet, retry holding the read lock
+      }
+    }
+    stamp = lock.readLock();
+    try {
+      return collect(center, radius);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Get the position of an airport as a unit vector, computed like the positions of the table.
+   *
+   * @param airportData the airport
+   * @return the x, y and z of the position
+   */
+  public static double[] unitVector(AirportData airportData) {
+    double latitude = Math.toRadians(airportData.getLatitude());
+    double longitude = Math.toRadians(airportData.getLongitude());
+    return new double[] {
+      Math.cos(latitude) * Math.cos(longitude),
+      Math.cos(latitude) * Math.sin(longitude),
+      Math.sin(latitude)
+    };
+  }
+
+  /**
+   * Check whether a position is in the radius of a center with the exact test of the radius
+   * queries, so the callers agree with the table on the airports at the boundary.
+   *
+   * @param center unit vector of the center
+   * @param position unit vector of the position to check
+   * @param chordSquared the squared chord of the radius, see {@link #chordSquared(double)}
+   * @return true if a radius query of the center would find the position
+   */
+  public static boolean isInRadius(double[] center, double[] position, double chordSquared) {
+    double dx = position[0] - center[0];
+    double dy = position[1] - center[1];
+    double dz = position[2] - center[2];
+    return dx * dx + dy * dy + dz * dz <= chordSquared;
+  }
+
+  /**
+   * Collect the airports in the radius of the given center, may see an inconsistent state when
+   * called without holding the lock, callers have to validate the result.
+   */
+  private List<AirportData> collect(AirportData center, double radius) {
+    Columns current = columns;
+    int limit = Math.min(size, current.capacity());
+    double latitude = Math.toRadians(center.getLatitude());
+    double longitude = Math.toRadians(center.getLongitude());
+    double x = Math.cos(latitude) * Math.cos(longitude);
+    double y = Math.cos(latitude) * Math.sin(longitude);
+    double z = Math.sin(latitude);
+    double threshold = chordSquared(radius);
+
+    Scratch buffers = scratch.get();
+    buffers.ensureCapacity(limit);
+    List<int[]> cells =
+        gridIndex.getCandidateCells(center.getLatitude(), center.getLongitude(), radius);
+    // Gathering scattered slots only pays off while the cells hold a small share of the table
+    int count =
+        cells == null || candidateCount(cells) > limit / SCAN_RATIO
+            ? current.scan(limit, x, y, z, threshold, buffers)
+            : current.gather(cells, limit, x, y, z, threshold, buffers);
+
+    List<AirportData> airports = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      AirportData airportData = current.airports[buffers.hits[i]];
+      if (airportData != null) {
+        airports.add(airportData);
+      }
+    }
+    return airports;
+  }
+
+  private static int candidateCount(List<int[]> cells) {
+    int count = 0;
+    for (int[] cell : cells) {
+      count += cell.length;
+    }
+    return count;
+  }
+
+  /**
+   * Get the squared chord between two unit vectors separated by the given distance on the sphere.
+   *
+   * @param radius in km
+   * @return the squared chord, or infinity if the radius covers the whole sphere
+   */
+  public static double chordSquared(double radius) {
+    double angle = radius / ConstantHelper.R;
+    if (angle >= Math.PI) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double chord = 2 * Math.sin(angle / 2);
+    return chord * chord;
+  }
+
+  /** The parallel arrays of the table, an empty slot has NaN coordinates */
+  private static class Columns {
+    private final AirportData[] airports;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+
+    private Columns(int capacity) {
+      airports = new AirportData[capacity];
+      x = new double[capacity];
+      y = new double[capacity];
+      z = new double[capacity];
+      for (int slot = 0; slot < capacity; slot++) {
+        clear(slot);
+      }
+    }
+
+    private Columns(Columns columns, int capacity) {
+      this(capacity);
+      int length = columns.capacity();
+      System.arraycopy(columns.airports, 0, airports, 0, length);
+      System.arraycopy(columns.x, 0, x, 0, length);
+      System.arraycopy(columns.y, 0, y, 0, length);
+      System.arraycopy(columns.z, 0, z, 0, length);
+    }
+
+    private int capacity() {
+      return airports.length;
+    }
+
+    private Columns grow(int capacity) {
+      return new Columns(this, capacity);
+    }
+
+    private void set(int slot, AirportData airportData) {
+      double lat = Math.toRadians(airportData.getLatitude());
+      double lon = Math.toRadians(airportData.getLongitude());
+      x[slot] = Math.cos(lat) * Math.cos(lon);
+      y[slot] = Math.cos(lat) * Math.sin(lon);
+      z[slot] = Math.sin(lat);
+      airports[slot] = airportData;
+    }
+
+    private void clear(int slot) {
+      airports[slot] = null;
+      x[slot] = Double.NaN;
+      y[slot] = Double.NaN;
+      z[slot] = Double.NaN;
+    }
+
+    /**
+     * Check every slot of the table, the first loop has no branches so the JIT can vectorise it and
+     * the second one compacts the hits without branching. Empty slots have a NaN distance which
+     * never passes the threshold.
+     */
+    private int scan(int limit, double cx, double cy, double cz, double threshold, Scratch buffers) {
+      double[] distances = buffers.distances;
+      int[] hits = buffers.hits;
+      for (int slot = 0; slot < limit; slot++) {
+        double dx = x[slot] - cx;
+        double dy = y[slot] - cy;
+        double dz = z[slot] - cz;
+        distances[slot] = dx * dx + dy * dy + dz * dz;
+      }
+      int count = 0;
+      for (int slot = 0; slot < limit; slot++) {
+        hits[count] = slot;
+        count += distances[slot] <= threshold ? 1 : 0;
+      }
+      return count;
+    }
+
+    /** Check only the slots of the given grid cells. */
+    private int gather(
+        List<int[]> cells,
+        int limit,
+        double cx,
+        double cy,
+        double cz,
+        double threshold,
+        Scratch buffers) {
+      int[] hits = buffers.hits;
+      int count = 0;
+      for (int[] cell : cells) {
+        for (int slot : cell) {
+          // The cell may be newer than the columns when read without the lock
+          if (slot >= limit || count == limit) {
+            continue;
+          }
+          double dx = x[slot] - cx;
+          double dy = y[slot] - cy;
+          double dz = z[slot] - cz;
+          hits[count] = slot;
+          count += dx * dx + dy * dy + dz * dz <= threshold ? 1 : 0;
+        }
+      }
+      return count;
+    }
+  }
+
+  /** Reusable buffers of a query thread */
+  private static class Scratch {
+    private double[] distances = new double[0];
+    private int[] hits = new int[0];
+
+    private void ensureCapacity(int capacity) {
+      if (hits.length < capacity) {
+        distances = new double[capacity];
+        hits = new int[capacity];
+      }
+    }
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class TableHolder {
+    private static final AirportCoordinateTable INSTANCE = new AirportCoordinateTable();
+  }
+}
@@ -0,0 +1,23 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.AirportData;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Storage of the airports by airport code. Like in a {@link java.util.concurrent.ConcurrentHashMap}
+ * the compute methods run their function once and atomically for the key, the services rely on it
+ * to order the changes of an airport with its indexes and its log records.
+ *
+ * @author Victor Polanco
+ */
+public interface AirportDataStorage extends ConcurrentMap<String, AirportData> {
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the storage.
+   */
+  static AirportDataStorage getInstance() {
+    return ConcurrentAirportDataStorage.getInstance();
+  }
+}
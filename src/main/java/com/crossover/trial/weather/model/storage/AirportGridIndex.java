@@ -0,0 +1,170 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.utils.ConstantHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatial index of the known airports, the globe is split in a grid of fixed size latitude /
+ * longitude cells and every airport slot of the {@link AirportCoordinateTable} is bucketed in the
+ * cell containing its coordinates. Radius queries only visit the cells overlapping the bounding box
+ * of the requested spherical cap.
+ *
+ * <p>Cells are copy on write arrays so they can be read while the owning table is being modified,
+ * all the writes are serialized by the table.
+ *
+ * @author Victor Polanco
+ */
+class AirportGridIndex {
+
+  /** Size of the edge of a cell in degrees */
+  private static final double CELL_DEGREES = 1.0;
+
+  /** Number of cells on the latitude axis */
+  private static final int LATITUDE_CELLS = (int) Math.ceil(180 / CELL_DEGREES);
+
+  /** Number of cells on the longitude axis */
+  private static final int LONGITUDE_CELLS = (int) Math.ceil(360 / CELL_DEGREES);
+
+  /** Slack added to the bounding box to absorb floating point errors on the cell borders */
+  private static final double EPSILON_DEGREES = 1e-9;
+
+  /** The non empty cells of the grid, keyed by cell number */
+  private final ConcurrentHashMap<Integer, int[]> cells;
+
+  AirportGridIndex() {
+    cells = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Add a slot to the cell containing the given coordinates.
+   *
+   * @param slot the table slot of the airport
+   * @param latitude in degrees
+   * @param longitude in degrees
+   */
+  void add(int slot, double latitude, double longitude) {
+    cells.compute(
+        cellOf(latitude, longitude),
+        (cell, slots) -> {
+          if (slots == null) {
+            return new int[] {slot};
+          }
+          int[] grown = Arrays.copyOf(slots, slots.length + 1);
+          grown[slots.length] = slot;
+          return grown;
+        });
+  }
+
+  /**
+   * Remove a slot from the cell containing the given coordinates.
+   *
+   * @param slot the table slot of the airport
+   * @param latitude in degrees
+   * @param longitude in degrees
+   */
+  void remove(int slot, double latitude, double longitude) {
+    cells.computeIfPresent(
+        cellOf(latitude, longitude),
+        (cell, slots) -> {
+          int[] shrunk = Arrays.stream(slots).filter(value -> value != slot).toArray();
+          return shrunk.length == 0 ? null : shrunk;
+        });
+  }
+
+  /** Remove every slot from the index. */
+  void clear() {
+    cells.clear();
+  }
+
+  /**
+   * Get the cells overlapping the bounding box of the given spherical cap, the slots of the result
+   * are a superset of the airports in the radius so an exact distance filter still has to be
+   * applied by the caller.
+   *
+   * @param latitude of the center in degrees
+   * @param longitude of the center in degrees
+   * @param radius in km
+   * @return the slots of the candidate cells, or null when the cap covers the whole grid
+   */
+  List<int[]> getCandidateCells(double latitude, double longitude, double radius) {
+    List<int[]> candidates = new ArrayList<>();
+    // Discard negative and NaN radius, no airport can be inside of them
+    if (!(radius >= 0)) {
+      return candidates;
+    }
+
+    double angularRadius = radius / ConstantHelper.R;
+    double deltaLatitude = Math.toDegrees(angularRadius) + EPSILON_DEGREES;
+    double minLatitude = latitude - deltaLatitude;
+    double maxLatitude = latitude + deltaLatitude;
+
+    // If the cap contains a pole or wraps around the whole globe every longitude is a candidate
+    double cosLatitude = Math.cos(Math.toRadians(latitude));
+    double deltaLongitude = 180;
+    if (minLatitude > -90 && maxLatitude < 90 && Math.sin(angularRadius) < cosLatitude) {
+      deltaLongitude =
+          Math.toDegrees(Math.asin(Math.sin(angularRadius) / cosLatitude)) + EPSILON_DEGREES;
+    }
+
+    int firstRow = latitudeRow(Math.max(minLatitude, -90));
+    int lastRow = latitudeRow(Math.min(maxLatitude, 90));
+    int firstColumn = (int) Math.floor((longitude - deltaLongitude + 180) / CELL_DEGREES);
+    int lastColumn = (int) Math.floor((longitude + deltaLongitude + 180) / CELL_DEGREES);
+    int columns = Math.min(lastColumn - firstColumn + 1, LONGITUDE_CELLS);
+
+    if (firstRow == 0 && lastRow == LATITUDE_CELLS - 1 && columns == LONGITUDE_CELLS) {
+      return null;
+    }
+
+    // When the box spans more cells than the populated ones walk the populated cells instead
+    if ((long) (lastRow - firstRow + 1) * columns >= cells.size()) {
+      cells.forEach(
+          (cell, slots) -> {
+            int row = cell / LONGITUDE_CELLS;
+            int column = cell % LONGITUDE_CELLS;
+            if (row >= firstRow
+                && row <= lastRow
+                && Math.floorMod(column - firstColumn, LONGITUDE_CELLS) < columns) {
+              candidates.add(slots);
+            }
+          });
+      return candidates;
+    }
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column < firstColumn + columns; column++) {
+        int[] slots = cells.get(row * LONGITUDE_CELLS + Math.floorMod(column, LONGITUDE_CELLS));
+        if (slots != null) {
+          candidates.add(slots);
+        }
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Get the number of the cell containing the given coordinates.
+   *
+   * @param latitude in degrees
+   * @param longitude in degrees
+   * @return the cell number
+   */
+  private static int cellOf(double latitude, double longitude) {
+    int column = Math.floorMod((int) Math.floor((longitude + 180) / CELL_DEGREES), LONGITUDE_CELLS);
+    return latitudeRow(latitude) * LONGITUDE_CELLS + column;
+  }
+
+  /**
+   * Get the row of the grid containing the given latitude, the north pole belongs to the last row.
+   *
+   * @param latitude in degrees
+   * @return the row number
+   */
+  private static int latitudeRow(double latitude) {
+    int row = (int) Math.floor((latitude + 90) / CELL_DEGREES);
+    return Math.max(0, Math.min(row, LATITUDE_CELLS - 1));
+  }
+}
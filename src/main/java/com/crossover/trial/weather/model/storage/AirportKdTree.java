@@ -0,0 +1,355 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.AirportData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Nearest neighbour index of the known airports. Airports are mapped to unit vectors on the sphere
+ * and stored in a balanced KD tree, the straight line (chord) distance between two unit vectors
+ * grows with the great circle distance so the closest vectors are the closest airports.
+ *
+ * <p>The tree itself is immutable, new airports are kept in a small pending list and removed ones
+ * in a tombstone set, both are folded into a new tree once they grow past the square root of the
+ * tree size so the lookups stay logarithmic and the rebuild cost is amortized.
+ *
+ * @author Victor Polanco
+ */
+public class AirportKdTree {
+
+  /** Minimum amount of pending changes before rebuilding the tree */
+  private static final int MIN_PENDING_CHANGES = 32;
+
+  /** The current state of the index, replaced on every change */
+  private volatile Snapshot snapshot;
+
+  /** Private constructor preventing other classes to instantiate the class */
+  private AirportKdTree() {
+    snapshot = new Snapshot(new Tree(new AirportData[0]), new AirportData[0], identitySet());
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the AirportKdTree.
+   */
+  public static AirportKdTree getInstance() {
+    return TreeHolder.INSTANCE;
+  }
+
+  /**
+   * Add an airport to the index.
+   *
+   * @param airportData the airport to index
+   */
+  public synchronized void add(AirportData airportData) {
+    Snapshot current = snapshot;
+    AirportData[] pending = Arrays.copyOf(current.pending, current.pending.length + 1);
+    pending[current.pending.length] = airportData;
+    publish(new Snapshot(current.tree, pending, current.removed));
+  }
+
+  /**
+   * Add a batch of airports to the index, the tree is rebuilt once with the batch and every pending
+   * change instead of going through the pending list airport by airport.
+   *
+   * @param airports the airports to index
+   */
+  public synchronized void addAll(Collection<AirportData> airports) {
+    if (airports.isEmpty()) {
+      return;
+    }
+    Snapshot current = snapshot;
+    List<AirportData> merged =
+        new ArrayList<>(current.tree.size() + current.pending.length + airports.size());
+    for (AirportData airportData : current.tree.airports) {
+      if (!current.removed.contains(airportData)) {
+        merged.add(airportData);
+      }
+    }
+    Collections.addAll(merged, current.pending);
+    merged.addAll(airports);
+    snapshot =
+        new Snapshot(new Tree(merged.toArray(new AirportData[0])), new AirportData[0], identitySet());
+  }
+
+  /**
+   * Remove an airport from the index.
+   *
+   * @param airportData the exact instance previously added to the index
+   */
+  public synchronized void remove(AirportData airportData) {
+    Snapshot current = snapshot;
+    for (int i = 0; i < current.pending.length; i++) {
+      if (current.pending[i] == airportData) {
+        AirportData[] pending = new AirportData[current.pending.length - 1];
+        System.arraycopy(current.pending, 0, pending, 0, i);
+        System.arraycopy(current.pending, i + 1, pending, i, pending.length - i);
+        publish(new Snapshot(current.tree, pending, current.removed));
+        return;
+      }
+    }
+    if (current.tree.contains(airportData)) {
+      Set<AirportData> removed = identitySet();
+      removed.addAll(current.removed);
+      removed.add(airportData);
+      publish(new Snapshot(current.tree, current.pending, removed));
+    }
+  }
+
+  /** Remove every airport from the index. */
+  public synchronized void clear() {
+    snapshot = new Snapshot(new Tree(new AirportData[0]), new AirportData[0], identitySet());
+  }
+
+  /**
+   * Get the airports closest to the given coordinates sorted by distance.
+   *
+   * @param latitude in degrees
+   * @param longitude in degrees
+   * @param count the maximum amount of airports to return
+   * @param excluded airport to leave out of the result, may be null
+   * @return at most count airports, closest first
+   */
+  public List<AirportData> getNearest(
+      double latitude, double longitude, int count, AirportData excluded) {
+    Snapshot current = snapshot;
+    // There can't be more neighbours than indexed airports
+    Neighbours neighbours =
+        new Neighbours(Math.min(count, current.tree.size() + current.pending.length));
+
+    double lat = Math.toRadians(latitude);
+    double lon = Math.toRadians(longitude);
+    double x = Math.cos(lat) * Math.cos(lon);
+    double y = Math.cos(lat) * Math.sin(lon);
+    double z = Math.sin(lat);
+
+    current.tree.search(
+        0, current.tree.size(), 0, new double[] {x, y, z}, neighbours, current.removed, excluded);
+    for (AirportData airportData : current.pending) {
+      if (airportData != excluded) {
+        neighbours.offer(airportData, chordSquared(airportData, x, y, z));
+      }
+    }
+    return neighbours.toList();
+  }
+
+  /**
+   * Publish a new snapshot, folding the pending changes into a new tree when there are too many.
+   *
+   * @param next the snapshot to publish
+   */
+  private void publish(Snapshot next) {
+    int pendingChanges = next.pending.length + next.removed.size();
+    if (pendingChanges > Math.max(MIN_PENDING_CHANGES, (int) Math.sqrt(next.tree.size()))) {
+      List<AirportData> airports = new ArrayList<>(next.tree.size() + next.pending.length);
+      for (AirportData airportData : next.tree.airports) {
+        if (!next.removed.contains(airportData)) {
+          airports.add(airportData);
+        }
+      }
+      Collections.addAll(airports, next.pending);
+      next =
+          new Snapshot(
+              new Tree(airports.toArray(new AirportData[0])), new AirportData[0], identitySet());
+    }
+    snapshot = next;
+  }
+
+  private static Set<AirportData> identitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  private static double chordSquared(AirportData airportData, double x, double y, double z) {
+    double lat = Math.toRadians(airportData.getLatitude());
+    double lon = Math.toRadians(airportData.getLongitude());
+    double dx = Math.cos(lat) * Math.cos(lon) - x;
+    double dy = Math.cos(lat) * Math.sin(lon) - y;
+    double dz = Math.sin(lat) - z;
+    return dx * dx + dy * dy + dz * dz;
+  }
+
+  /** Immutable state of the index */
+  private static class Snapshot {
+    private final Tree tree;
+    private final AirportData[] pending;
+    private final Set<AirportData> removed;
+
+    private Snapshot(Tree tree, AirportData[] pending, Set<AirportData> removed) {
+      this.tree = tree;
+      this.pending = pending;
+      this.removed = removed;
+    }
+  }
+
+  /**
+   * Immutable balanced KD tree stored in a flat array, the root of every range is its middle
+   * element and the splitting axis rotates with the depth.
+   */
+  private static class Tree {
+    private final AirportData[] airports;
+    private final double[][] coordinates;
+    private final Set<AirportData> members;
+
+    private Tree(AirportData[] airports) {
+      this.airports = airports;
+      this.coordinates = new double[3][airports.length];
+      this.members = identitySet();
+      Collections.addAll(members, airports);
+      for (int i = 0; i < airports.length; i++) {
+        double lat = Math.toRadians(airports[i].getLatitude());
+        double lon = Math.toRadians(airports[i].getLongitude());
+        coordinates[0][i] = Math.cos(lat) * Math.cos(lon);
+        coordinates[1][i] = Math.cos(lat) * Math.sin(lon);
+        coordinates[2][i] = Math.sin(lat);
+      }
+      build(0, airports.length, 0);
+    }
+
+    private int size() {
+      return airports.length;
+    }
+
+    private boolean contains(AirportData airportData) {
+      return members.contains(airportData);
+    }
+
+    /** Arrange the range so its middle element splits it on the axis of the given depth */
+    private void build(int from, int to, int depth) {
+      if (to - from <= 1) {
+        return;
+      }
+      int axis = depth % 3;
+      int middle = (from + to) >>> 1;
+      select(from, to - 1, middle, coordinates[axis]);
+      build(from, middle, depth + 1);
+      build(middle + 1, to, depth + 1);
+    }
+
+    /** Quick select, moves the k-th smallest value on the axis of the range to position k */
+    private void select(int left, int right, int k, double[] axis) {
+      while (left < right) {
+        double pivot = axis[(left + right) >>> 1];
+        int i = left;
+        int j = right;
+        while (i <= j) {
+          while (axis[i] < pivot) {
+            i++;
+          }
+          while (axis[j] > pivot) {
+            j--;
+          }
+          if (i <= j) {
+            swap(i++, j--);
+          }
+        }
+        if (k <= j) {
+          right = j;
+        } else if (k >= i) {
+          left = i;
+        } else {
+          return;
+        }
+      }
+    }
+
+    private void swap(int i, int j) {
+      AirportData airportData = airports[i];
+      airports[i] = airports[j];
+      airports[j] = airportData;
+      for (double[] axis : coordinates) {
+        double value = axis[i];
+        axis[i] = axis[j];
+        axis[j] = value;
+      }
+    }
+
+    private void search(
+        int from,
+        int to,
+        int depth,
+        double[] target,
+        Neighbours neighbours,
+        Set<AirportData> removed,
+        AirportData excluded) {
+      if (from >= to) {
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      AirportData airportData = airports[middle];
+      if (airportData != excluded && !removed.contains(airportData)) {
+        double dx = coordinates[0][middle] - target[0];
+        double dy = coordinates[1][middle] - target[1];
+        double dz = coordinates[2][middle] - target[2];
+        neighbours.offer(airportData, dx * dx + dy * dy + dz * dz);
+      }
+
+      // Visit first the side of the split containing the target, the other side only when the
+      // splitting plane is closer than the worst neighbour found so far
+      int axis = depth % 3;
+      double delta = target[axis] - coordinates[axis][middle];
+      if (delta < 0) {
+        search(from, middle, depth + 1, target, neighbours, removed, excluded);
+        if (delta * delta < neighbours.worst()) {
+          search(middle + 1, to, depth + 1, target, neighbours, removed, excluded);
+        }
+      } else {
+        search(middle + 1, to, depth + 1, target, neighbours, removed, excluded);
+        if (delta * delta < neighbours.worst()) {
+          search(from, middle, depth + 1, target, neighbours, removed, excluded);
+        }
+      }
+    }
+  }
+
+  /** Bounded list of the best neighbours found, kept sorted by distance */
+  private static class Neighbours {
+    private final AirportData[] airports;
+    private final double[] distances;
+    private int size;
+
+    private Neighbours(int capacity) {
+      airports = new AirportData[Math.max(capacity, 0)];
+      distances = new double[Math.max(capacity, 0)];
+    }
+
+    /** @return the distance a candidate has to beat to get into the list */
+    private double worst() {
+      if (airports.length == 0) {
+        return Double.NEGATIVE_INFINITY;
+      }
+      return size < airports.length ? Double.POSITIVE_INFINITY : distances[size - 1];
+    }
+
+    private void offer(AirportData airportData, double distance) {
+      if (distance >= worst()) {
+        return;
+      }
+      int position = size < airports.length ? size++ : size - 1;
+      while (position > 0 && distances[position - 1] > distance) {
+        airports[position] = airports[position - 1];
+        distances[position] = distances[position - 1];
+        position--;
+      }
+      airports[position] = airportData;
+      distances[position] = distance;
+    }
+
+    private List<AirportData> toList() {
+      return new ArrayList<>(Arrays.asList(airports).subList(0, size));
+    }
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class TreeHolder {
+    private static final AirportKdTree INSTANCE = new AirportKdTree();
+  }
+}
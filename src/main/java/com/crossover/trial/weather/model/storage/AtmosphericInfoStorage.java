@@ -0,0 +1,26 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Storage of the atmospheric information of the airports by airport code. Like in a {@link
+ * java.util.concurrent.ConcurrentHashMap} the compute methods run their function once and
+ * atomically for the key, the services rely on it to serialize the updates of an airport, and the
+ * views are weakly consistent.
+ *
+ * <p>The weather.storage system property picks the implementation, see {@link StorageBackend}.
+ *
+ * @author Victor Polanco
+ */
+public interface AtmosphericInfoStorage extends ConcurrentMap<String, AtmosphericInformation> {
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the configured storage.
+   */
+  static AtmosphericInfoStorage getInstance() {
+    return StorageBackend.configured().getAtmosphericInfoStorage();
+  }
+}
@@ -1,15 +1,15 @@
 package com.crossover.trial.weather.model.storage;
 
-import java.util.concurrent.ConcurrentHashMap;
+import com.crossover.trial.weather.model.AirportData;
 
 /**
  * The implementation of the Airport Data Storage which will serve as a cache of the data of the
- * airports
+ * airports, keyed by the packed airport codes of an {@link IataKeyedMap}
  *
  * @author Victor Polanco
  */
-public class ConcurrentAirportDataStorage<String, AirportData>
-    extends ConcurrentHashMap<String, AirportData> {
+public class ConcurrentAirportDataStorage extends IataKeyedMap<AirportData>
+    implements AirportDataStorage {
 
   /** Private constructor preventing other classes to instantiate the class */
 
@@ -33,6 +33,6 @@ public class ConcurrentAirportDataStorage<String, AirportData>
    * */
 
   private static class StorageHolder {
-    private static ConcurrentAirportDataStorage INSTANCE = new ConcurrentAirportDataStorage<>();
+    private static ConcurrentAirportDataStorage INSTANCE = new ConcurrentAirportDataStorage();
   }
 }
@@ -1,15 +1,16 @@
 package com.crossover.trial.weather.model.storage;
 
-import java.util.concurrent.ConcurrentHashMap;
+import com.crossover.trial.weather.model.AtmosphericInformation;
 
 /**
  * The implementation of the Atmospheric Information Storage which will serve as a cache of the
- * Atmospheric information data of the airports
+ * Atmospheric information data of the airports, keyed by the packed airport codes of an {@link
+ * IataKeyedMap}
  *
  * @author Victor Polanco
  */
-public class ConcurrentAtmosphericInfoStorage<String, AtmosphericInformation>
-    extends ConcurrentHashMap<String, AtmosphericInformation> {
+public class ConcurrentAtmosphericInfoStorage extends IataKeyedMap<AtmosphericInformation>
+    implements AtmosphericInfoStorage {
 
   /** Private constructor preventing other classes to instantiate the class */
 
@@ -35,6 +36,6 @@ public class ConcurrentAtmosphericInfoStorage<String, AtmosphericInformation>
   private static class StorageHolder {
     // Actual instance of the storage
     private static ConcurrentAtmosphericInfoStorage INSTANCE =
-        new ConcurrentAtmosphericInfoStorage<>();
+        new ConcurrentAtmosphericInfoStorage();
   }
 }
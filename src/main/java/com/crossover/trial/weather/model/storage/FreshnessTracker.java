@@ -0,0 +1,171 @@
+package com.crossover.trial.weather.model.storage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count of the atmospheric information updated within the last day, kept up to date on every
+ * update instead of scanning the storage. A timing wheel of a slot per minute of the day counts the
+ * entries whose last update fell in that minute, an update moves its entry from the slot of the
+ * previous update to the slot of the current one and a slot is subtracted from the count as soon
+ * as its minute is more than a day old. The count is precise to the minute.
+ *
+ * <p>Every slot packs the minute it counts with its count in a single long, so the updates of
+ * different airports only race on a compare and set of the slot they touch. An update landing on
+ * a slot still holding a minute of the previous day expires it first, the remaining stale slots are
+ * expired when the count is read.
+ *
+ * @author Victor Polanco
+ */
+public class FreshnessTracker {
+
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+  /** A slot per minute of a day */
+  private static final int SLOTS = (int) TimeUnit.DAYS.toMinutes(1);
+
+  /** Count bit of an expired slot, its entries were already subtracted from the count */
+  private static final long EXPIRED = 1L << 31;
+
+  private static final long COUNT_MASK = EXPIRED - 1;
+
+  /** The minute in the high half and the count in the low half of every slot */
+  private final AtomicLongArray slots;
+
+  /** Entries counted in the slots that are not expired */
+  private final LongAdder fresh;
+
+  /** Every minute up to this one was expired */
+  private long expiredThrough;
+
+  /** Package private constructor, the rest of the system shares the instance */
+  FreshnessTracker() {
+    slots = new AtomicLongArray(SLOTS);
+    fresh = new LongAdder();
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the FreshnessTracker.
+   */
+  public static FreshnessTracker getInstance() {
+    return TrackerHolder.INSTANCE;
+  }
+
+  /**
+   * Move an entry from the minute of its previous update to the minute of its new one, the updates
+   * of an entry have to be serialized by the caller.
+   *
+   * @param previousUpdateTime the previous update time in milliseconds since UTC epoch, 0 if the
+   *     entry was never updated
+   * @param updateTime the new update time in milliseconds since UTC epoch
+   */
+  public void update(long previousUpdateTime, long updateTime) {
+    if (previousUpdateTime > 0) {
+      release(previousUpdateTime / MINUTE);
+    }
+    acquire(updateTime / MINUTE);
+  }
+
+  /**
+   * Stop counting an entry that was removed from the storage.
+   *
+   * @param previousUpdateTime the last update time of the entry in milliseconds since UTC epoch
+   */
+  public void remove(long previousUpdateTime) {
+    if (previousUpdateTime > 0) {
+      release(previousUpdateTime / MINUTE);
+    }
+  }
+
+  /**
+   * Get the amount of entries updated within the last day, only the minutes that became stale
+   * since the last call are visited.
+   *
+   * @param now the current time in milliseconds since UTC epoch
+   * @return the amount of fresh entries
+   */
+  public long getFreshCount(long now) {
+    expire(now / MINUTE - SLOTS);
+    return fresh.sum();
+  }
+
+  /** Forget every entry. */
+  public synchronized void clear() {
+    for (int i = 0; i < SLOTS; i++) {
+      slots.set(i, 0);
+    }
+    fresh.reset();
+    expiredThrough = 0;
+  }
+
+  /** Count an entry in the slot of the given minute */
+  private void acquire(long minute) {
+    int index = (int) (minute % SLOTS);
+    while (true) {
+      long slot = slots.get(index);
+      long slotMinute = slot >>> 32;
+      if (slotMinute > minute || (slotMinute == minute && (slot & EXPIRED) != 0)) {
+        // The minute is more than a day old, the entry is not fresh
+        return;
+      }
+      if (slotMinute == minute) {
+        if (slots.compareAndSet(index, slot, slot + 1)) {
+          fresh.increment();
+          return;
+        }
+      } else if (slots.compareAndSet(index, slot, minute << 32 | 1)) {
+        // The slot held a minute of the previous day, subtract it unless it was already expired
+        fresh.add((slot & EXPIRED) == 0 ? 1 - (slot & COUNT_MASK) : 1);
+        return;
+      }
+    }
+  }
+
+  /** Stop counting an entry in the slot of the given minute, if the slot still counts it */
+  private void release(long minute) {
+    int index = (int) (minute % SLOTS);
+    while (true) {
+      long slot = slots.get(index);
+      if (slot >>> 32 != minute || (slot & EXPIRED) != 0 || (slot & COUNT_MASK) == 0) {
+        return;
+      }
+      if (slots.compareAndSet(index, slot, slot - 1)) {
+        fresh.decrement();
+        return;
+      }
+    }
+  }
+
+  /** Expire the slots of the minutes up to the given one */
+  private synchronized void expire(long throughMinute) {
+    // Only the last day of minutes can still be in the slots
+    long minute = Math.max(expiredThrough + 1, throughMinute - SLOTS + 1);
+    for (; minute <= throughMinute; minute++) {
+      int index = (int) (minute % SLOTS);
+      while (true) {
+        long slot = slots.get(index);
+        long slotMinute = slot >>> 32;
+        if (slotMinute > minute || (slotMinute == minute && (slot & EXPIRED) != 0)) {
+          break;
+        }
+        // Older minutes are tagged with this one too, so a late update can't count it any more
+        if (slots.compareAndSet(index, slot, minute << 32 | EXPIRED)) {
+          fresh.add((slot & EXPIRED) == 0 ? -(slot & COUNT_MASK) : 0);
+          break;
+        }
+      }
+    }
+    expiredThrough = Math.max(expiredThrough, throughMinute);
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class TrackerHolder {
+    private static final FreshnessTracker INSTANCE = new FreshnessTracker();
+  }
+}
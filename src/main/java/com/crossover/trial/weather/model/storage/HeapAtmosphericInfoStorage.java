@@ -0,0 +1,33 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The implementation of the Atmospheric Information Storage keyed by the airport codes in a plain
+ * {@link ConcurrentHashMap}, the baseline the packed and off heap storages are measured against.
+ *
+ * @author Victor Polanco
+ */
+public class HeapAtmosphericInfoStorage extends ConcurrentHashMap<String, AtmosphericInformation>
+    implements AtmosphericInfoStorage {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Private constructor preventing other classes to instantiate the class */
+  private HeapAtmosphericInfoStorage() {}
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the HeapAtmosphericInfoStorage.
+   */
+  public static HeapAtmosphericInfoStorage getInstance() {
+    return StorageHolder.INSTANCE;
+  }
+
+  /** Private static inner class holder of the instance of the storage */
+  private static class StorageHolder {
+    private static final HeapAtmosphericInfoStorage INSTANCE = new HeapAtmosphericInfoStorage();
+  }
+}
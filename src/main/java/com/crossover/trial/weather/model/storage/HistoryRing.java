@@ -0,0 +1,124 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.web.Observation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Fixed size ring of the last observations of a single data point type, oldest entries are
+ * overwritten once the ring is full. The fields of the observations are kept in parallel primitive
+ * arrays allocated up front, so appending only copies a few values and never allocates.
+ *
+ * <p>Appends are expected from a single writer at a time, readers copy a window optimistically and
+ * only fall back to the read lock when an append overlapped them.
+ *
+ * @author Victor Polanco
+ */
+public class HistoryRing {
+
+  private final StampedLock lock;
+
+  private final long[] timestamps;
+
+  private final double[] means;
+
+  private final int[] firsts;
+
+  private final int[] seconds;
+
+  private final int[] thirds;
+
+  private final int[] counts;
+
+  /** Amount of observations ever appended, the next one goes to written % capacity */
+  private long written;
+
+  public HistoryRing(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Invalid capacity " + capacity);
+    }
+    lock = new StampedLock();
+    timestamps = new long[capacity];
+    means = new double[capacity];
+    firsts = new int[capacity];
+    seconds = new int[capacity];
+    thirds = new int[capacity];
+    counts = new int[capacity];
+  }
+
+  public int capacity() {
+    return timestamps.length;
+  }
+
+  /**
+   * Append an observation, overwriting the oldest one if the ring is full.
+   *
+   * @param timestamp the time the data point was collected, in milliseconds since UTC epoch
+   * @param dataPoint the data point
+   */
+  public void append(long timestamp, DataPoint dataPoint) {
+    long stamp = lock.writeLock();
+    try {
+      int index = (int) (written % timestamps.length);
+      timestamps[index] = timestamp;
+      means[index] = dataPoint.getMean();
+      firsts[index] = dataPoint.getFirst();
+      seconds[index] = dataPoint.getSecond();
+      thirds[index] = dataPoint.getThird();
+      counts[index] = dataPoint.getCount();
+      written++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Get the observations collected in the given window, oldest first.
+   *
+   * @param from the start of the window, inclusive, in milliseconds since UTC epoch
+   * @param to the end of the window, inclusive, in milliseconds since UTC epoch
+   * @return the observations in the window
+   */
+  public List<Observation> getWindow(long from, long to) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      List<Observation> observations = collect(from, to);
+      if (lock.validate(stamp)) {
+        return observations;
+      }
+    }
+    stamp = lock.readLock();
+    try {
+      return collect(from, to);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Copy the observations in the window, may see an inconsistent state when called without holding
+   * the lock, callers have to validate the result.
+   */
+  private List<Observation> collect(long from, long to) {
+    long end = written;
+    long start = Math.max(0, end - timestamps.length);
+    List<Observation> observations = new ArrayList<>((int) (end - start));
+    for (long i = start; i < end; i++) {
+      int index = (int) (i % timestamps.length);
+      long timestamp = timestamps[index];
+      if (timestamp >= from && timestamp <= to) {
+        observations.add(
+            new Observation(
+                timestamp,
+                means[index],
+                firsts[index],
+                seconds[index],
+                thirds[index],
+                counts[index]));
+      }
+    }
+    return observations;
+  }
+}
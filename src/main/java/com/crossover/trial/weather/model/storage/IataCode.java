@@ -0,0 +1,65 @@
+package com.crossover.trial.weather.model.storage;
+
+/**
+ * Packs the airport codes in an int so the storages hash and compare them as primitives. Every
+ * upper case letter takes 5 bits, from 1 for A to 26 for Z, which fits the 3 letter IATA codes in
+ * 15 bits and codes up to 6 letters in 30 bits. No packed code is zero, the empty slot of an {@link
+ * IntOpenHashMap}.
+ *
+ * <p>Codes with other characters or other lengths don't pack, the storages keep them by their
+ * string, so a lower case code stays a different airport like it always was.
+ *
+ * @author Victor Polanco
+ */
+public final class IataCode {
+
+  /** Packed value of the codes that can't be packed */
+  public static final int NONE = 0;
+
+  /** Longest code that fits in an int */
+  public static final int MAX_LENGTH = 6;
+
+  private static final int BITS = 5;
+
+  private static final int MASK = (1 << BITS) - 1;
+
+  private IataCode() {}
+
+  /**
+   * Pack a code.
+   *
+   * @param code of the airport
+   * @return the packed code, {@link #NONE} if it isn't 1 to 6 upper case letters
+   */
+  public static int pack(String code) {
+    int length = code.length();
+    if (length == 0 || length > MAX_LENGTH) {
+      return NONE;
+    }
+    int packed = 0;
+    for (int i = 0; i < length; i++) {
+      char letter = code.charAt(i);
+      if (letter < 'A' || letter > 'Z') {
+        return NONE;
+      }
+      packed = (packed << BITS) | (letter - 'A' + 1);
+    }
+    return packed;
+  }
+
+  /**
+   * Unpack a code.
+   *
+   * @param packed code, not {@link #NONE}
+   * @return the code as it was packed
+   */
+  public static String unpack(int packed) {
+    char[] letters = new char[MAX_LENGTH];
+    int start = MAX_LENGTH;
+    while (packed != 0) {
+      letters[--start] = (char) ('A' - 1 + (packed & MASK));
+      packed >>>= BITS;
+    }
+    return new String(letters, start, MAX_LENGTH - start);
+  }
+}
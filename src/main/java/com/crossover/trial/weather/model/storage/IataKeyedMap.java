@@ -0,0 +1,248 @@
+package com.crossover.trial.weather.model.storage;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Concurrent map of values by airport code that keeps the codes packed by {@link IataCode} in an
+ * {@link IntOpenHashMap}, so a lookup packs a few chars and probes an int array instead of hashing
+ * and comparing strings. The codes that don't pack are kept by their string in a {@link
+ * ConcurrentHashMap}, the callers see a string keyed map either way.
+ *
+ * <p>Like in a {@link ConcurrentHashMap} the compute methods run their function once and
+ * atomically for the key, and the views are weakly consistent. The keys of the views are unpacked
+ * as they are walked.
+ *
+ * @param <V> the type of the values
+ * @author Victor Polanco
+ */
+public class IataKeyedMap<V> extends AbstractMap<String, V> implements ConcurrentMap<String, V> {
+
+  private final IntOpenHashMap<V> packed;
+
+  private final ConcurrentHashMap<String, V> unpacked;
+
+  /** Creates an empty map */
+  public IataKeyedMap() {
+    packed = new IntOpenHashMap<>();
+    unpacked = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public int size() {
+    return packed.size() + unpacked.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public V get(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int code = IataCode.pack((String) key);
+    return code != IataCode.NONE ? packed.get(code) : unpacked.get(key);
+  }
+
+  @Override
+  public V put(String key, V value) {
+    Objects.requireNonNull(value);
+    Object[] previous = new Object[1];
+    compute(
+        key,
+        (code, current) -> {
+          previous[0] = current;
+          return value;
+        });
+    return cast(previous[0]);
+  }
+
+  @Override
+  public V putIfAbsent(String key, V value) {
+    Objects.requireNonNull(value);
+    V current = get(key);
+    if (current != null) {
+      return current;
+    }
+    Object[] previous = new Object[1];
+    compute(
+        key,
+        (code, existing) -> {
+          previous[0] = existing;
+          return existing != null ? existing : value;
+        });
+    return cast(previous[0]);
+  }
+
+  @Override
+  public V remove(Object key) {
+    if (!containsKey(key)) {
+      return null;
+    }
+    Object[] previous = new Object[1];
+    compute(
+        (String) key,
+        (code, current) -> {
+          previous[0] = current;
+          return null;
+        });
+    return cast(previous[0]);
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    if (value == null || !containsKey(key)) {
+      return false;
+    }
+    boolean[] removed = new boolean[1];
+    compute(
+        (String) key,
+        (code, current) -> {
+          removed[0] = value.equals(current);
+          return removed[0] ? null : current;
+        });
+    return removed[0];
+  }
+
+  @Override
+  public boolean replace(String key, V oldValue, V newValue) {
+    Objects.requireNonNull(oldValue);
+    Objects.requireNonNull(newValue);
+    boolean[] replaced = new boolean[1];
+    computeIfPresent(
+        key,
+        (code, current) -> {
+          replaced[0] = oldValue.equals(current);
+          return replaced[0] ? newValue : current;
+        });
+    return replaced[0];
+  }
+
+  @Override
+  public V replace(String key, V value) {
+    Objects.requireNonNull(value);
+    Object[] previous = new Object[1];
+    computeIfPresent(
+        key,
+        (code, current) -> {
+          previous[0] = current;
+          return value;
+        });
+    return cast(previous[0]);
+  }
+
+  @Override
+  public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+    V current = get(key);
+    if (current != null) {
+      return current;
+    }
+    return compute(
+        key, (code, existing) -> existing != null ? existing : mappingFunction.apply(code));
+  }
+
+  @Override
+  public V computeIfPresent(
+      String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+    if (!containsKey(key)) {
+      return null;
+    }
+    return compute(
+        key, (code, current) -> current != null ? remappingFunction.apply(code, current) : null);
+  }
+
+  @Override
+  public V compute(
+      String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+    int code = IataCode.pack(key);
+    if (code == IataCode.NONE) {
+      return unpacked.compute(key, remappingFunction);
+    }
+    return packed.compute(code, current -> remappingFunction.apply(key, current));
+  }
+
+  @Override
+  public void clear() {
+    packed.clear();
+    unpacked.clear();
+  }
+
+  @Override
+  public Set<Map.Entry<String, V>> entrySet() {
+    return new AbstractSet<Map.Entry<String, V>>() {
+      @Override
+      public Iterator<Map.Entry<String, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return IataKeyedMap.this.size();
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> V cast(Object value) {
+    return (V) value;
+  }
+
+  /** Walks the packed codes and then the codes kept by their string */
+  private class EntryIterator implements Iterator<Map.Entry<String, V>> {
+    private final IntOpenHashMap.Cursor<V> cursor = packed.cursor();
+
+    private final Iterator<Map.Entry<String, V>> others = unpacked.entrySet().iterator();
+
+    private Map.Entry<String, V> next;
+
+    private Map.Entry<String, V> last;
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        if (cursor.advance()) {
+          next = new SimpleImmutableEntry<>(IataCode.unpack(cursor.key()), cursor.value());
+        } else if (others.hasNext()) {
+          next = others.next();
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<String, V> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      next = null;
+      return last;
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      IataKeyedMap.this.remove(last.getKey(), last.getValue());
+      last = null;
+    }
+  }
+}
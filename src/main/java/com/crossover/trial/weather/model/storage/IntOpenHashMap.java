@@ -0,0 +1,392 @@
+package com.crossover.trial.weather.model.storage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent map of int keys to values with open addressing and linear probing, the keys live in
+ * an int array next to an array of values instead of in a node per entry with a boxed key.
+ *
+ * <p>The reads don't lock, they probe the current table until the key or an empty slot. The
+ * writers of a key are serialized by one of 64 striped locks, which they hold while the compute
+ * function runs, so it runs once and atomically for the key like in a {@link
+ * java.util.concurrent.ConcurrentHashMap}. A new key claims its empty slot with a compare and set
+ * because keys of other stripes probe the same slots, then the value is published. Removing a key
+ * clears its value and keeps the key in the slot, a later value of the key reuses the slot, and the
+ * removed keys are dropped when the table is rebuilt.
+ *
+ * <p>The table grows before three quarters of it hold keys. The writer that would go over the limit
+ * drops its stripe lock before running its function and rebuilds the table holding every stripe,
+ * so the values never change while they are copied.
+ *
+ * @param <V> the type of the values
+ * @author Victor Polanco
+ */
+public class IntOpenHashMap<V> {
+
+  /** The key of the empty slots, it can't be used as a key */
+  public static final int EMPTY = 0;
+
+  private static final int STRIPES = 64;
+
+  private static final int MIN_CAPACITY = 16;
+
+  private final ReentrantLock[] locks;
+
+  /** Amount of keys with a value */
+  private final AtomicInteger size;
+
+  private volatile Table<V> table;
+
+  /** Creates an empty map */
+  public IntOpenHashMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates an empty map sized for the expected amount of keys.
+   *
+   * @param expectedSize amount of keys that fit without growing the table
+   */
+  public IntOpenHashMap(int expectedSize) {
+    locks = new ReentrantLock[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      locks[i] = new ReentrantLock();
+    }
+    size = new AtomicInteger();
+    table = new Table<>(capacityFor(expectedSize));
+  }
+
+  /**
+   * Get the value of a key.
+   *
+   * @param key of the value
+   * @return the value, null if the key has none
+   */
+  public V get(int key) {
+    Table<V> current = table;
+    int slot = current.find(key);
+    return slot < 0 ? null : current.values.get(slot);
+  }
+
+  /**
+   * Check whether a key has a value.
+   *
+   * @param key to check
+   * @return true if the key has a value
+   */
+  public boolean containsKey(int key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Get the amount of keys with a value.
+   *
+   * @return the size of the map
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Get the amount of slots of the table, the footprint is 4 bytes per slot for the keys and a
+   * reference per slot for the values.
+   *
+   * @return the capacity of the current table
+   */
+  public int capacity() {
+    return table.keys.length();
+  }
+
+  /**
+   * Compute the new value of a key, the function runs once holding the lock of the key.
+   *
+   * @param key of the value, not {@link #EMPTY}
+   * @param remappingFunction from the current value, null if there is none, to the new value, null
+   *     to remove it
+   * @return the new value
+   */
+  public V compute(int key, UnaryOperator<V> remappingFunction) {
+    if (key == EMPTY) {
+      throw new IllegalArgumentException("The empty key can't be used");
+    }
+    ReentrantLock lock = locks[spread(key) & (STRIPES - 1)];
+    while (true) {
+      Table<V> full;
+      lock.lock();
+      try {
+        Table<V> current = table;
+        int slot = current.find(key);
+        if (slot >= 0 || current.reserve()) {
+          return update(current, slot, key, remappingFunction);
+        }
+        full = current;
+      } finally {
+        lock.unlock();
+      }
+      resize(full);
+    }
+  }
+
+  /**
+   * Set the value of a key.
+   *
+   * @param key of the value, not {@link #EMPTY}
+   * @param value the new value
+   * @return the previous value, null if there was none
+   */
+  public V put(int key, V value) {
+    Object[] previous = new Object[1];
+    compute(
+        key,
+        current -> {
+          previous[0] = current;
+          return value;
+        });
+    return cast(previous[0]);
+  }
+
+  /**
+   * Remove the value of a key.
+   *
+   * @param key of the value
+   * @return the removed value, null if there was none
+   */
+  public V remove(int key) {
+    if (key == EMPTY || get(key) == null) {
+      return null;
+    }
+    Object[] previous = new Object[1];
+    compute(
+        key,
+        current -> {
+          previous[0] = current;
+          return null;
+        });
+    return cast(previous[0]);
+  }
+
+  /** Remove every key */
+  public void clear() {
+    lockAll();
+    try {
+      table = new Table<>(MIN_CAPACITY);
+      size.set(0);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /**
+   * Get a cursor over the keys with a value. It walks the table of the moment it was created, so
+   * like the iterators of a {@link java.util.concurrent.ConcurrentHashMap} it never fails and may
+   * miss the changes made while it walks.
+   *
+   * @return the cursor, before the first key
+   */
+  public Cursor<V> cursor() {
+    return new Cursor<>(table);
+  }
+
+  /** Apply the function to the slot of the key, or to a reserved empty slot when slot is -1 */
+  private V update(Table<V> current, int slot, int key, UnaryOperator<V> remappingFunction) {
+    V previous = slot < 0 ? null : current.values.get(slot);
+    V next;
+    try {
+      next = remappingFunction.apply(previous);
+    } catch (RuntimeException | Error e) {
+      if (slot < 0) {
+        current.release();
+      }
+      throw e;
+    }
+    if (slot < 0) {
+      if (next == null) {
+        current.release();
+        return null;
+      }
+      slot = current.claim(key);
+    } else if (next == previous) {
+      return next;
+    }
+    current.values.set(slot, next);
+    if (previous == null && next != null) {
+      size.incrementAndGet();
+    } else if (previous != null && next == null) {
+      size.decrementAndGet();
+    }
+    return next;
+  }
+
+  /** Rebuild a full table without its removed keys, unless another writer already did */
+  private void resize(Table<V> full) {
+    lockAll();
+    try {
+      if (table != full) {
+        return;
+      }
+      Table<V> grown = new Table<>(capacityFor(size.get() + 1));
+      for (int i = 0; i < full.keys.length(); i++) {
+        V value = full.values.get(i);
+        if (value != null) {
+          grown.reserve();
+          grown.values.set(grown.claim(full.keys.get(i)), value);
+        }
+      }
+      table = grown;
+    } finally {
+      unlockAll();
+    }
+  }
+
+  private void lockAll() {
+    for (ReentrantLock lock : locks) {
+      lock.lock();
+    }
+  }
+
+  private void unlockAll() {
+    for (ReentrantLock lock : locks) {
+      lock.unlock();
+    }
+  }
+
+  /** Power of two capacity that keeps the expected keys under a third of the slots */
+  private static int capacityFor(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < expectedSize * 3L && capacity < 1 << 30) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /** Spreads the packed codes, which differ in the low bits, over the table and the stripes */
+  private static int spread(int key) {
+    int hash = key * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> V cast(Object value) {
+    return (V) value;
+  }
+
+  /** The slots of the map, replaced as a whole when the map grows */
+  private static final class Table<V> {
+    private final AtomicIntegerArray keys;
+
+    private final AtomicReferenceArray<V> values;
+
+    private final int mask;
+
+    /** Most keys the table takes before it has to grow */
+    private final int limit;
+
+    /** Slots holding a key, with or without a value, and the slots reserved for new keys */
+    private final AtomicInteger used;
+
+    private Table(int capacity) {
+      keys = new AtomicIntegerArray(capacity);
+      values = new AtomicReferenceArray<>(capacity);
+      mask = capacity - 1;
+      limit = capacity / 4 * 3;
+      used = new AtomicInteger();
+    }
+
+    /** The slot of a key, -1 if the table doesn't have it */
+    private int find(int key) {
+      for (int slot = spread(key) & mask; ; slot = (slot + 1) & mask) {
+        int slotKey = keys.get(slot);
+        if (slotKey == key) {
+          return slot;
+        }
+        if (slotKey == EMPTY) {
+          return -1;
+        }
+      }
+    }
+
+    /** Reserve a slot for a new key, false if the table is full */
+    private boolean reserve() {
+      if (used.incrementAndGet() > limit) {
+        used.decrementAndGet();
+        return false;
+      }
+      return true;
+    }
+
+    /** Give back a reservation that wasn't used */
+    private void release() {
+      used.decrementAndGet();
+    }
+
+    /** Claim the first empty slot for a key that holds a reservation */
+    private int claim(int key) {
+      for (int slot = spread(key) & mask; ; slot = (slot + 1) & mask) {
+        if (keys.get(slot) == EMPTY && keys.compareAndSet(slot, EMPTY, key)) {
+          return slot;
+        }
+      }
+    }
+  }
+
+  /**
+   * Walks the keys with a value of a table.
+   *
+   * @param <V> the type of the values
+   */
+  public static final class Cursor<V> {
+    private final Table<V> table;
+
+    private int slot = -1;
+
+    private int key;
+
+    private V value;
+
+    private Cursor(Table<V> table) {
+      this.table = table;
+    }
+
+    /**
+     * Move to the next key with a value.
+     *
+     * @return false when there are no more keys
+     */
+    public boolean advance() {
+      while (++slot < table.keys.length()) {
+        int slotKey = table.keys.get(slot);
+        if (slotKey != EMPTY) {
+          V slotValue = table.values.get(slot);
+          if (slotValue != null) {
+            key = slotKey;
+            value = slotValue;
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Get the key the cursor is on.
+     *
+     * @return the key
+     */
+    public int key() {
+      return key;
+    }
+
+    /**
+     * Get the value the cursor is on.
+     *
+     * @return the value
+     */
+    public V value() {
+      return value;
+    }
+  }
+}
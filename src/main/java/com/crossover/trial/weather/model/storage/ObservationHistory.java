@@ -0,0 +1,104 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.web.Observation;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * History of the last observations of every airport, a {@link HistoryRing} per airport and data
+ * point type. The rings of an airport are allocated together on its first observation, so every
+ * airport takes a fixed amount of memory set by the weather.history.size system property, the
+ * observations kept per data point type.
+ *
+ * @author Victor Polanco
+ */
+public class ObservationHistory {
+
+  /** Observations kept per airport and data point type */
+  private static final int HISTORY_SIZE = Integer.getInteger("weather.history.size", 64);
+
+  private static final int TYPES = DataPointType.values().length;
+
+  /** The rings of every airport, indexed by the ordinal of the data point type */
+  private final ConcurrentHashMap<String, HistoryRing[]> rings;
+
+  /** Private constructor preventing other classes to instantiate the class */
+  private ObservationHistory() {
+    rings = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the ObservationHistory.
+   */
+  public static ObservationHistory getInstance() {
+    return HistoryHolder.INSTANCE;
+  }
+
+  /**
+   * Append an observation to the history of an airport, the appends of an airport have to be
+   * serialized by the caller.
+   *
+   * @param iataCode the airport code
+   * @param pointType the type of the data point
+   * @param dataPoint the data point
+   * @param timestamp the time the data point was collected, in milliseconds since UTC epoch
+   */
+  public void append(String iataCode, DataPointType pointType, DataPoint dataPoint, long timestamp) {
+    HistoryRing[] airportRings = rings.get(iataCode);
+    if (airportRings == null) {
+      airportRings = rings.computeIfAbsent(iataCode, code -> newRings());
+    }
+    airportRings[pointType.ordinal()].append(timestamp, dataPoint);
+  }
+
+  /**
+   * Get the observations of an airport collected in the given window, oldest first.
+   *
+   * @param iataCode the airport code
+   * @param pointType the type of the data point
+   * @param from the start of the window, inclusive, in milliseconds since UTC epoch
+   * @param to the end of the window, inclusive, in milliseconds since UTC epoch
+   * @return the observations in the window, or null if the airport has no history
+   */
+  public List<Observation> getWindow(String iataCode, DataPointType pointType, long from, long to) {
+    HistoryRing[] airportRings = rings.get(iataCode);
+    if (airportRings == null) {
+      return null;
+    }
+    return airportRings[pointType.ordinal()].getWindow(from, to);
+  }
+
+  /**
+   * Drop the history of an airport.
+   *
+   * @param iataCode the airport code
+   */
+  public void remove(String iataCode) {
+    rings.remove(iataCode);
+  }
+
+  /** Drop the history of every airport. */
+  public void clear() {
+    rings.clear();
+  }
+
+  private static HistoryRing[] newRings() {
+    HistoryRing[] airportRings = new HistoryRing[TYPES];
+    for (int i = 0; i < TYPES; i++) {
+      airportRings[i] = new HistoryRing(HISTORY_SIZE);
+    }
+    return airportRings;
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class HistoryHolder {
+    private static final ObservationHistory INSTANCE = new ObservationHistory();
+  }
+}
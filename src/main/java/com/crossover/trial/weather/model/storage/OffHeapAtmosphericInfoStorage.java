@@ -0,0 +1,528 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Atmospheric information storage keeping every airport in a fixed size record outside of the
+ * heap, so the heap holds an index entry per airport instead of an {@link AtmosphericInformation}
+ * and its six {@link DataPoint} objects and the garbage collector has less to trace. The values
+ * are decoded on every read, they are copies and never the instances that were stored.
+ *
+ * <p>The records live in direct buffers of 1024 slots each, allocated as the airports come, and
+ * the index maps every code to its slot and the generation of the slot, which changes when the
+ * slot is freed so a reader never decodes the record of the next owner. A record is a header with
+ * the generation, a mask of the readings present and the last update time, followed by a reading
+ * per data point type with the mean, the three quartiles, the count and the update time of the
+ * reading. The values are doubles, or floats when the weather.storage.float32 system property is
+ * true, which makes the record a third smaller at the cost of the precision of the values.
+ *
+ * <p>The writers of an airport are serialized by the compute of its index entry. A record is only
+ * written holding the write lock of its stripe, readers decode it optimistically and retry with the
+ * read lock if a writer got in the way, like a sequence lock.
+ *
+ * @author Victor Polanco
+ */
+public class OffHeapAtmosphericInfoStorage extends AbstractMap<String, AtmosphericInformation>
+    implements AtmosphericInfoStorage {
+
+  private static final int CHUNK_SHIFT = 10;
+
+  private static final int CHUNK_SLOTS = 1 << CHUNK_SHIFT;
+
+  private static final int STRIPES = 64;
+
+  /** Generation, mask of the readings present and last update time */
+  private static final int HEADER_SIZE = 16;
+
+  private static final int GENERATION = 0;
+
+  private static final int MASK = 4;
+
+  private static final int LAST_UPDATE_TIME = 8;
+
+  /** Readings in the order of the record */
+  private static final int READINGS = 6;
+
+  /** True to store the values as floats */
+  private final boolean float32;
+
+  /** Size of a value, 4 or 8 bytes */
+  private final int valueSize;
+
+  private final int readingSize;
+
+  private final int recordSize;
+
+  /** Slot and generation of every airport, the generation in the high half */
+  private final IataKeyedMap<Long> index;
+
+  private final StampedLock[] locks;
+
+  /** Chunks of records, replaced by a larger copy when full */
+  private volatile ByteBuffer[] chunks;
+
+  /** Guards the allocation of slots */
+  private final Object allocationLock;
+
+  /** Slots handed out so far */
+  private int allocated;
+
+  /** Slots freed, reused before allocating new ones */
+  private int[] free;
+
+  private int freeCount;
+
+  /** Private constructor preventing other classes to instantiate the class */
+  private OffHeapAtmosphericInfoStorage() {
+    this(Boolean.getBoolean("weather.storage.float32"));
+  }
+
+  /**
+   * Create an empty storage, the rest of the system shares the instance.
+   *
+   * @param float32 true to store the values as floats
+   */
+  OffHeapAtmosphericInfoStorage(boolean float32) {
+    this.float32 = float32;
+    valueSize = float32 ? 4 : 8;
+    // Mean, quartiles and count, the update time aligned to 8 bytes
+    readingSize = ((4 * valueSize + 4 + 7) & ~7) + 8;
+    recordSize = HEADER_SIZE + READINGS * readingSize;
+    index = new IataKeyedMap<>();
+    locks = new StampedLock[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      locks[i] = new StampedLock();
+    }
+    chunks = new ByteBuffer[0];
+    allocationLock = new Object();
+    free = new int[16];
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the OffHeapAtmosphericInfoStorage.
+   */
+  public static OffHeapAtmosphericInfoStorage getInstance() {
+    return StorageHolder.INSTANCE;
+  }
+
+  /** @return the bytes of a record */
+  public int getRecordSize() {
+    return recordSize;
+  }
+
+  /** @return the bytes allocated outside of the heap */
+  public long getAllocatedBytes() {
+    return (long) chunks.length * CHUNK_SLOTS * recordSize;
+  }
+
+  @Override
+  public int size() {
+    return index.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return index.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return index.containsKey(key);
+  }
+
+  @Override
+  public AtmosphericInformation get(Object key) {
+    Long handle = index.get(key);
+    return handle != null ? read(handle) : null;
+  }
+
+  @Override
+  public AtmosphericInformation put(String key, AtmosphericInformation value) {
+    Objects.requireNonNull(value);
+    AtmosphericInformation[] previous = new AtmosphericInformation[1];
+    compute(
+        key,
+        (code, current) -> {
+          previous[0] = current;
+          return value;
+        });
+    return previous[0];
+  }
+
+  @Override
+  public AtmosphericInformation putIfAbsent(String key, AtmosphericInformation value) {
+    Objects.requireNonNull(value);
+    AtmosphericInformation[] previous = new AtmosphericInformation[1];
+    compute(
+        key,
+        (code, current) -> {
+          previous[0] = current;
+          return current != null ? current : value;
+        });
+    return previous[0];
+  }
+
+  @Override
+  public AtmosphericInformation remove(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    AtmosphericInformation[] previous = new AtmosphericInformation[1];
+    compute(
+        (String) key,
+        (code, current) -> {
+          previous[0] = current;
+          return null;
+        });
+    return previous[0];
+  }
+
+  /** The values are copies, they are compared with equals */
+  @Override
+  public boolean remove(Object key, Object value) {
+    if (!(key instanceof String) || value == null) {
+      return false;
+    }
+    boolean[] removed = new boolean[1];
+    computeIfPresent(
+        (String) key,
+        (code, current) -> {
+          removed[0] = current.equals(value);
+          return removed[0] ? null : current;
+        });
+    return removed[0];
+  }
+
+  @Override
+  public boolean replace(
+      String key, AtmosphericInformation oldValue, AtmosphericInformation newValue) {
+    Objects.requireNonNull(oldValue);
+    Objects.requireNonNull(newValue);
+    boolean[] replaced = new boolean[1];
+    computeIfPresent(
+        key,
+        (code, current) -> {
+          replaced[0] = current.equals(oldValue);
+          return replaced[0] ? newValue : current;
+        });
+    return replaced[0];
+  }
+
+  @Override
+  public AtmosphericInformation replace(String key, AtmosphericInformation value) {
+    Objects.requireNonNull(value);
+    AtmosphericInformation[] previous = new AtmosphericInformation[1];
+    computeIfPresent(
+        key,
+        (code, current) -> {
+          previous[0] = current;
+          return value;
+        });
+    return previous[0];
+  }
+
+  @Override
+  public AtmosphericInformation computeIfAbsent(
+      String key, Function<? super String, ? extends AtmosphericInformation> mappingFunction) {
+    AtmosphericInformation current = get(key);
+    if (current != null) {
+      return current;
+    }
+    return compute(key, (code, value) -> value != null ? value : mappingFunction.apply(code));
+  }
+
+  @Override
+  public AtmosphericInformation computeIfPresent(
+      String key,
+      BiFunction<? super String, ? super AtmosphericInformation, ? extends AtmosphericInformation>
+          remappingFunction) {
+    if (!index.containsKey(key)) {
+      return null;
+    }
+    return compute(
+        key, (code, value) -> value != null ? remappingFunction.apply(code, value) : null);
+  }
+
+  /**
+   * Compute the new value of an airport, the function runs once holding the index entry of the
+   * airport so the writers of the same airport are serialized. The record is only written when the
+   * function returns a value other than the decoded one.
+   */
+  @Override
+  public AtmosphericInformation compute(
+      String key,
+      BiFunction<? super String, ? super AtmosphericInformation, ? extends AtmosphericInformation>
+          remappingFunction) {
+    Objects.requireNonNull(key);
+    AtmosphericInformation[] result = new AtmosphericInformation[1];
+    index.compute(
+        key,
+        (code, handle) -> {
+          // The writers of the airport are serialized here, the record is stable
+          AtmosphericInformation current = handle != null ? decode(handle) : null;
+          AtmosphericInformation next = remappingFunction.apply(code, current);
+          result[0] = next;
+          if (next == current) {
+            return handle;
+          }
+          if (next == null) {
+            release(handle);
+            return null;
+          }
+          long target = handle != null ? handle : allocate();
+          write(target, current, next);
+          return target;
+        });
+    return result[0];
+  }
+
+  @Override
+  public void clear() {
+    for (String key : index.keySet()) {
+      remove(key);
+    }
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return Collections.unmodifiableSet(index.keySet());
+  }
+
+  /** Weakly consistent view of the airports, the values are decoded as the view is iterated */
+  @Override
+  public Set<Map.Entry<String, AtmosphericInformation>> entrySet() {
+    return new AbstractSet<Map.Entry<String, AtmosphericInformation>>() {
+      @Override
+      public Iterator<Map.Entry<String, AtmosphericInformation>> iterator() {
+        return new EntryIterator(index.entrySet().iterator());
+      }
+
+      @Override
+      public int size() {
+        return index.size();
+      }
+    };
+  }
+
+  /** Decode a record without a writer getting in the way */
+  private AtmosphericInformation read(long handle) {
+    StampedLock lock = locks[slotOf(handle) & STRIPES - 1];
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      AtmosphericInformation value = decode(handle);
+      if (lock.validate(stamp)) {
+        return value;
+      }
+    }
+    stamp = lock.readLock();
+    try {
+      return decode(handle);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Decode a record, a record read while a writer changes it may hold any value and has to be
+   * validated.
+   *
+   * @return the atmospheric information or null if the slot changed owner
+   */
+  private AtmosphericInformation decode(long handle) {
+    int slot = slotOf(handle);
+    ByteBuffer chunk = chunks[slot >>> CHUNK_SHIFT];
+    int offset = (slot & CHUNK_SLOTS - 1) * recordSize;
+    if (chunk.getInt(offset + GENERATION) != generationOf(handle)) {
+      return null;
+    }
+    int mask = chunk.getInt(offset + MASK);
+    DataPoint[] dataPoints = new DataPoint[READINGS];
+    for (int i = 0; i < READINGS; i++) {
+      if ((mask & 1 << i) != 0) {
+        int reading = offset + HEADER_SIZE + i * readingSize;
+        DataPoint dataPoint = new DataPoint();
+        dataPoint.mean = getValue(chunk, reading);
+        dataPoint.first = (int) getValue(chunk, reading + valueSize);
+        dataPoint.second = (int) getValue(chunk, reading + 2 * valueSize);
+        dataPoint.third = (int) getValue(chunk, reading + 3 * valueSize);
+        dataPoint.count = chunk.getInt(reading + 4 * valueSize);
+        dataPoints[i] = dataPoint;
+      }
+    }
+    return new AtmosphericInformation(
+        dataPoints[0],
+        dataPoints[1],
+        dataPoints[2],
+        dataPoints[3],
+        dataPoints[4],
+        dataPoints[5],
+        chunk.getLong(offset + LAST_UPDATE_TIME));
+  }
+
+  /**
+   * Write the record of an airport, the readings that changed since the current value take the
+   * last update time as their update time.
+   */
+  private void write(long handle, AtmosphericInformation current, AtmosphericInformation next) {
+    DataPoint[] previous = current != null ? dataPointsOf(current) : new DataPoint[READINGS];
+    DataPoint[] dataPoints = dataPointsOf(next);
+    int slot = slotOf(handle);
+    ByteBuffer chunk = chunks[slot >>> CHUNK_SHIFT];
+    int offset = (slot & CHUNK_SLOTS - 1) * recordSize;
+    int mask = 0;
+    StampedLock lock = locks[slot & STRIPES - 1];
+    long stamp = lock.writeLock();
+    try {
+      for (int i = 0; i < READINGS; i++) {
+        DataPoint dataPoint = dataPoints[i];
+        if (dataPoint == null) {
+          continue;
+        }
+        mask |= 1 << i;
+        if (dataPoint == previous[i]) {
+          continue;
+        }
+        int reading = offset + HEADER_SIZE + i * readingSize;
+        putValue(chunk, reading, dataPoint.getMean());
+        putValue(chunk, reading + valueSize, dataPoint.getFirst());
+        putValue(chunk, reading + 2 * valueSize, dataPoint.getSecond());
+        putValue(chunk, reading + 3 * valueSize, dataPoint.getThird());
+        chunk.putInt(reading + 4 * valueSize, dataPoint.getCount());
+        chunk.putLong(reading + readingSize - 8, next.getLastUpdateTime());
+      }
+      chunk.putInt(offset + MASK, mask);
+      chunk.putLong(offset + LAST_UPDATE_TIME, next.getLastUpdateTime());
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  private double getValue(ByteBuffer chunk, int offset) {
+    return float32 ? chunk.getFloat(offset) : chunk.getDouble(offset);
+  }
+
+  private void putValue(ByteBuffer chunk, int offset, double value) {
+    if (float32) {
+      chunk.putFloat(offset, (float) value);
+    } else {
+      chunk.putDouble(offset, value);
+    }
+  }
+
+  /** Hand out a free slot, growing the chunks when every slot is taken */
+  private long allocate() {
+    synchronized (allocationLock) {
+      int slot;
+      if (freeCount > 0) {
+        slot = free[--freeCount];
+      } else {
+        slot = allocated++;
+        if (slot >>> CHUNK_SHIFT == chunks.length) {
+          ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+          grown[chunks.length] = ByteBuffer.allocateDirect(CHUNK_SLOTS * recordSize);
+          chunks = grown;
+        }
+      }
+      int offset = (slot & CHUNK_SLOTS - 1) * recordSize;
+      return (long) chunks[slot >>> CHUNK_SHIFT].getInt(offset + GENERATION) << 32 | slot;
+    }
+  }
+
+  /** Free the slot of a removed airport, the readers still holding its handle get null */
+  private void release(long handle) {
+    int slot = slotOf(handle);
+    ByteBuffer chunk = chunks[slot >>> CHUNK_SHIFT];
+    int offset = (slot & CHUNK_SLOTS - 1) * recordSize;
+    StampedLock lock = locks[slot & STRIPES - 1];
+    long stamp = lock.writeLock();
+    try {
+      chunk.putInt(offset + GENERATION, generationOf(handle) + 1);
+      chunk.putInt(offset + MASK, 0);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+    synchronized (allocationLock) {
+      if (freeCount == free.length) {
+        free = Arrays.copyOf(free, free.length * 2);
+      }
+      free[freeCount++] = slot;
+    }
+  }
+
+  private static int slotOf(long handle) {
+    return (int) handle;
+  }
+
+  private static int generationOf(long handle) {
+    return (int) (handle >>> 32);
+  }
+
+  /** The data points in the order of the record */
+  private static DataPoint[] dataPointsOf(AtmosphericInformation atmosphericInformation) {
+    return new DataPoint[] {
+      atmosphericInformation.getTemperature(),
+      atmosphericInformation.getWind(),
+      atmosphericInformation.getHumidity(),
+      atmosphericInformation.getPrecipitation(),
+      atmosphericInformation.getPressure(),
+      atmosphericInformation.getCloudCover()
+    };
+  }
+
+  /** Decodes the entries of the index, skipping the airports removed while iterating */
+  private class EntryIterator implements Iterator<Map.Entry<String, AtmosphericInformation>> {
+    private final Iterator<Map.Entry<String, Long>> handles;
+    private Map.Entry<String, AtmosphericInformation> next;
+
+    private EntryIterator(Iterator<Map.Entry<String, Long>> handles) {
+      this.handles = handles;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && handles.hasNext()) {
+        Map.Entry<String, Long> entry = handles.next();
+        AtmosphericInformation value = read(entry.getValue());
+        if (value != null) {
+          next = new SimpleImmutableEntry<>(entry.getKey(), value);
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<String, AtmosphericInformation> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<String, AtmosphericInformation> entry = next;
+      next = null;
+      return entry;
+    }
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class StorageHolder {
+    private static final OffHeapAtmosphericInfoStorage INSTANCE =
+        new OffHeapAtmosphericInfoStorage();
+  }
+}
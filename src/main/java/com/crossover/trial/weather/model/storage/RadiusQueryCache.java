@@ -0,0 +1,256 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.AirportData;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the resolved radius queries, maps an airport code and a radius to the codes of
+ * the airports in that radius. The cache is split in segments with their own LRU eviction so
+ * concurrent queries don't contend on a single lock.
+ *
+ * <p>Entries are invalidated precisely when the set of airports changes, adding an airport evicts
+ * the entries whose radius contains it and deleting an airport evicts the entries listing it. Every
+ * change bumps a version so a query resolved before the change is never cached after it.
+ *
+ * @author Victor Polanco
+ */
+public class RadiusQueryCache {
+
+  /** Maximum amount of entries held by the cache */
+  private static final int CAPACITY = Integer.getInteger("weather.radius.cache.size", 4096);
+
+  /** Amount of independently locked segments */
+  private static final int SEGMENTS = 16;
+
+  private final Segment[] segments;
+
+  /** Version of the set of airports, increased on every change */
+  private final AtomicLong version;
+
+  private final LongAdder hits;
+
+  private final LongAdder misses;
+
+  /** Private constructor preventing other classes to instantiate the class */
+  private RadiusQueryCache() {
+    segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(Math.max(1, CAPACITY / SEGMENTS));
+    }
+    version = new AtomicLong();
+    hits = new LongAdder();
+    misses = new LongAdder();
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the RadiusQueryCache.
+   */
+  public static RadiusQueryCache getInstance() {
+    return CacheHolder.INSTANCE;
+  }
+
+  /**
+   * Get the version of the set of airports, it has to be read before resolving a query that will be
+   * put in the cache.
+   *
+   * @return the current version
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Get the cached codes of the airports in the radius of the given airport.
+   *
+   * @param iataCode 3 letter code of the center
+   * @param radius in km
+   * @return the codes of the airports in the radius or null if not cached
+   */
+  public List<String> get(String iataCode, double radius) {
+    Key key = new Key(iataCode, radius);
+    Entry entry = segmentOf(key).get(key);
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.iataCodes;
+  }
+
+  /**
+   * Cache the codes of the airports in the radius of the given airport, ignored if the airports
+   * changed since the given version.
+   *
+   * @param center the airport in the center of the radius
+   * @param radius in km
+   * @param iataCodes the codes of the airports in the radius
+   * @param resolvedVersion the version read before resolving the query
+   */
+  public void put(AirportData center, double radius, List<String> iataCodes, long resolvedVersion) {
+    Key key = new Key(center.getIata(), radius);
+    Entry entry =
+        new Entry(
+            AirportCoordinateTable.unitVector(center),
+            AirportCoordinateTable.chordSquared(radius),
+            Collections.unmodifiableList(iataCodes));
+    Segment segment = segmentOf(key);
+    synchronized (segment) {
+      if (version.get() == resolvedVersion) {
+        segment.put(key, entry);
+      }
+    }
+  }
+
+  /**
+   * Evict the entries whose radius contains a newly added airport, with the same test as the radius
+   * queries of the {@link AirportCoordinateTable}. It has to be called once the airport is in the
+   * table, an entry cached in between is evicted here.
+   *
+   * @param added the added airport
+   */
+  public void invalidateAdded(AirportData added) {
+    double[] position = AirportCoordinateTable.unitVector(added);
+    version.incrementAndGet();
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment
+            .entrySet()
+            .removeIf(
+                entry ->
+                    AirportCoordinateTable.isInRadius(
+                        entry.getValue().center, position, entry.getValue().chordSquared));
+      }
+    }
+  }
+
+  /**
+   * Evict the entries centered in or listing a deleted airport.
+   *
+   * @param removed the deleted airport
+   */
+  public void invalidateRemoved(AirportData removed) {
+    version.incrementAndGet();
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment
+            .entrySet()
+            .removeIf(
+                entry ->
+                    entry.getKey().iataCode.equals(removed.getIata())
+                        || entry.getValue().iataCodes.contains(removed.getIata()));
+      }
+    }
+  }
+
+  /** Evict every entry, used when many airports change at once. */
+  public void clear() {
+    version.incrementAndGet();
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  /**
+   * Get the hit and miss counters of the cache.
+   *
+   * @return {@link Map} with the hits, misses and size of the cache.
+   */
+  public Map<String, Long> getStatistics() {
+    Map<String, Long> statistics = new HashMap<>();
+    statistics.put("hits", hits.sum());
+    statistics.put("misses", misses.sum());
+    long size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    statistics.put("size", size);
+    return statistics;
+  }
+
+  private Segment segmentOf(Key key) {
+    return segments[(key.hashCode() & Integer.MAX_VALUE) % SEGMENTS];
+  }
+
+  /** Access ordered map evicting its least recently used entry when full */
+  private static class Segment extends LinkedHashMap<Key, Entry> {
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    private Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    /** Access ordered gets reorder the map, so they have to be serialized as well */
+    @Override
+    public synchronized Entry get(Object key) {
+      return super.get(key);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+      return size() > capacity;
+    }
+  }
+
+  /** Cache key, a center airport code and a radius */
+  private static class Key {
+    private final String iataCode;
+    private final double radius;
+
+    private Key(String iataCode, double radius) {
+      this.iataCode = iataCode;
+      this.radius = radius;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return iataCode.equals(key.iataCode)
+          && Double.doubleToLongBits(radius) == Double.doubleToLongBits(key.radius);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(iataCode, radius);
+    }
+  }
+
+  /** Cached query result, keeps the position of the center and the chord of the radius */
+  private static class Entry {
+    private final double[] center;
+    private final double chordSquared;
+    private final List<String> iataCodes;
+
+    private Entry(double[] center, double chordSquared, List<String> iataCodes) {
+      this.center = center;
+      this.chordSquared = chordSquared;
+      this.iataCodes = iataCodes;
+    }
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class CacheHolder {
+    private static final RadiusQueryCache INSTANCE = new RadiusQueryCache();
+  }
+}
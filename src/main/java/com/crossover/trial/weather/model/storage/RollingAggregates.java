@@ -0,0 +1,204 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.utils.ConstantHelper;
+import com.crossover.trial.weather.web.Aggregate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sliding window aggregates of the data point means of every airport and point type, a {@link
+ * RollingWindow} per configured window. The windows are given by the weather.aggregates.windows
+ * system property as a comma separated list of lengths in minutes, hours or days, 1h,6h,24h by
+ * default, and split in weather.aggregates.buckets buckets, 12 by default, so a window moves
+ * forward a twelfth of its length at a time.
+ *
+ * @author Victor Polanco
+ */
+public class RollingAggregates {
+
+  /** Logger for all logs inside this service */
+  public static final Logger LOGGER = Logger.getLogger(RollingAggregates.class.getName());
+
+  private static final String DEFAULT_WINDOWS = "1h,6h,24h";
+
+  private static final int BUCKETS = Integer.getInteger("weather.aggregates.buckets", 12);
+
+  private static final int TYPES = DataPointType.values().length;
+
+  /** The names and lengths in milliseconds of the windows */
+  private final String[] windowNames;
+
+  private final long[] windowLengths;
+
+  /** The aggregates of every airport, indexed by the ordinal of the data point type */
+  private final ConcurrentHashMap<String, Windows[]> aggregates;
+
+  /** Private constructor preventing other classes to instantiate the class */
+  private RollingAggregates() {
+    String windows = System.getProperty("weather.aggregates.windows", DEFAULT_WINDOWS);
+    long[] lengths;
+    try {
+      lengths = parseWindows(windows);
+    } catch (IllegalArgumentException e) {
+      LOGGER.log(Level.WARNING, "Invalid aggregate windows " + windows + ", using the defaults", e);
+      windows = DEFAULT_WINDOWS;
+      lengths = parseWindows(windows);
+    }
+    windowNames = windows.replace(" ", "").split(",");
+    windowLengths = lengths;
+    aggregates = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the RollingAggregates.
+   */
+  public static RollingAggregates getInstance() {
+    return AggregatesHolder.INSTANCE;
+  }
+
+  /**
+   * Add a data point mean to every window of an airport, the additions of an airport have to be
+   * serialized by the caller.
+   *
+   * @param iataCode the airport code
+   * @param pointType the type of the data point
+   * @param timestamp the time the data point was collected, in milliseconds since UTC epoch
+   * @param mean the mean of the data point
+   */
+  public void add(String iataCode, DataPointType pointType, long timestamp, double mean) {
+    Windows[] airportWindows = aggregates.get(iataCode);
+    if (airportWindows == null) {
+      airportWindows = aggregates.computeIfAbsent(iataCode, code -> newWindows());
+    }
+    airportWindows[pointType.ordinal()].add(timestamp, mean);
+  }
+
+  /**
+   * Get the aggregates of every window of an airport ending at the given time.
+   *
+   * @param iataCode the airport code
+   * @param pointType the type of the data point
+   * @param now the end of the windows in milliseconds since UTC epoch
+   * @return an {@link Aggregate} per window, shortest first as configured
+   */
+  public List<Aggregate> getAggregates(String iataCode, DataPointType pointType, long now) {
+    Windows[] airportWindows = aggregates.get(iataCode);
+    if (airportWindows == null) {
+      List<Aggregate> empty = new ArrayList<>(windowNames.length);
+      for (String windowName : windowNames) {
+        empty.add(new Aggregate(windowName, 0, null, null, null));
+      }
+      return empty;
+    }
+    return airportWindows[pointType.ordinal()].aggregate(now);
+  }
+
+  /**
+   * Drop the aggregates of an airport.
+   *
+   * @param iataCode the airport code
+   */
+  public void remove(String iataCode) {
+    aggregates.remove(iataCode);
+  }
+
+  /** Drop the aggregates of every airport. */
+  public void clear() {
+    aggregates.clear();
+  }
+
+  /**
+   * Parse a comma separated list of window lengths, like 30m,1h,7d.
+   *
+   * @param windows the list of lengths
+   * @return the lengths in milliseconds
+   * @throws IllegalArgumentException if a length is not valid
+   */
+  static long[] parseWindows(String windows) {
+    String[] names = windows.split(",");
+    long[] lengths = new long[names.length];
+    for (int i = 0; i < names.length; i++) {
+      lengths[i] = ConstantHelper.parseDuration(names[i]);
+      if (lengths[i] < BUCKETS) {
+        throw new IllegalArgumentException("Invalid window " + names[i]);
+      }
+    }
+    return lengths;
+  }
+
+  private Windows[] newWindows() {
+    Windows[] airportWindows = new Windows[TYPES];
+    for (int i = 0; i < TYPES; i++) {
+      airportWindows[i] = new Windows(windowNames, windowLengths);
+    }
+    return airportWindows;
+  }
+
+  /**
+   * The windows of an airport and point type, appends are expected from a single writer at a time
+   * and readers aggregate optimistically, falling back to the read lock when an append overlapped
+   * them.
+   */
+  private static class Windows {
+    private final StampedLock lock;
+    private final RollingWindow[] windows;
+
+    private Windows(String[] names, long[] lengths) {
+      lock = new StampedLock();
+      windows = new RollingWindow[lengths.length];
+      for (int i = 0; i < lengths.length; i++) {
+        windows[i] = new RollingWindow(names[i], lengths[i], BUCKETS);
+      }
+    }
+
+    private void add(long timestamp, double mean) {
+      long stamp = lock.writeLock();
+      try {
+        for (RollingWindow window : windows) {
+          window.add(timestamp, mean);
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    private List<Aggregate> aggregate(long now) {
+      long stamp = lock.tryOptimisticRead();
+      if (stamp != 0) {
+        List<Aggregate> aggregates = collect(now);
+        if (lock.validate(stamp)) {
+          return aggregates;
+        }
+      }
+      stamp = lock.readLock();
+      try {
+        return collect(now);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    private List<Aggregate> collect(long now) {
+      List<Aggregate> aggregates = new ArrayList<>(windows.length);
+      for (RollingWindow window : windows) {
+        aggregates.add(window.aggregate(now));
+      }
+      return aggregates;
+    }
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class AggregatesHolder {
+    private static final RollingAggregates INSTANCE = new RollingAggregates();
+  }
+}
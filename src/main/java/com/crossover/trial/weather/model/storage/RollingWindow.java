@@ -0,0 +1,107 @@
+package com.crossover.trial.weather.model.storage;
+
+import com.crossover.trial.weather.web.Aggregate;
+import java.util.Arrays;
+
+/**
+ * Sliding window aggregate of a series of values split in a fixed amount of time buckets. Every
+ * bucket keeps the count, sum, minimum and maximum of the values collected in its span of time and
+ * the span it belongs to, so a bucket left behind by the window is simply reset when the ring comes
+ * back to it and skipped by the reads meanwhile, no bucket is ever rescanned to expire values.
+ *
+ * <p>The window covers the current bucket and the previous ones up to the window length, so it
+ * moves forward a bucket at a time. The class is not thread safe, the callers guard it.
+ *
+ * @author Victor Polanco
+ */
+public class RollingWindow {
+
+  private final String name;
+
+  private final long bucketMillis;
+
+  /** The span of every bucket, as the time of the bucket divided by the bucket length */
+  private final long[] spans;
+
+  private final long[] counts;
+
+  private final double[] sums;
+
+  private final double[] mins;
+
+  private final double[] maxs;
+
+  /**
+   * Create an empty window.
+   *
+   * @param name the name of the window shown to the clients
+   * @param windowMillis the length of the window in milliseconds
+   * @param buckets the amount of buckets the window is split in
+   */
+  public RollingWindow(String name, long windowMillis, int buckets) {
+    if (buckets <= 0 || windowMillis < buckets) {
+      throw new IllegalArgumentException("Invalid window " + windowMillis + "ms/" + buckets);
+    }
+    this.name = name;
+    this.bucketMillis = windowMillis / buckets;
+    spans = new long[buckets];
+    // No span is negative, so no bucket starts as part of the window
+    Arrays.fill(spans, -1);
+    counts = new long[buckets];
+    sums = new double[buckets];
+    mins = new double[buckets];
+    maxs = new double[buckets];
+  }
+
+  /**
+   * Add a value to the bucket of its time, in constant time.
+   *
+   * @param timestamp the time of the value in milliseconds since UTC epoch
+   * @param value the value
+   */
+  public void add(long timestamp, double value) {
+    long span = timestamp / bucketMillis;
+    int bucket = (int) (span % spans.length);
+    if (spans[bucket] > span) {
+      // The bucket was already reused by a newer span, the value is out of every window
+      return;
+    }
+    if (spans[bucket] < span) {
+      spans[bucket] = span;
+      counts[bucket] = 0;
+      sums[bucket] = 0;
+      mins[bucket] = Double.POSITIVE_INFINITY;
+      maxs[bucket] = Double.NEGATIVE_INFINITY;
+    }
+    counts[bucket]++;
+    sums[bucket] += value;
+    mins[bucket] = Math.min(mins[bucket], value);
+    maxs[bucket] = Math.max(maxs[bucket], value);
+  }
+
+  /**
+   * Aggregate the values of the window ending at the given time.
+   *
+   * @param now the end of the window in milliseconds since UTC epoch
+   * @return the aggregate of the values in the window
+   */
+  public Aggregate aggregate(long now) {
+    long current = now / bucketMillis;
+    long count = 0;
+    double sum = 0;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < spans.length; i++) {
+      // Only the buckets of the last spans are part of the window
+      if (spans[i] > current - spans.length && spans[i] <= current) {
+        count += counts[i];
+        sum += sums[i];
+        min = Math.min(min, mins[i]);
+        max = Math.max(max, maxs[i]);
+      }
+    }
+    return count == 0
+        ? new Aggregate(name, 0, null, null, null)
+        : new Aggregate(name, count, min, max, sum / count);
+  }
+}
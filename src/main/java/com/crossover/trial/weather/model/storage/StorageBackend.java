@@ -0,0 +1,79 @@
+package com.crossover.trial.weather.model.storage;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The implementations of the {@link AtmosphericInfoStorage}, the weather.storage system property
+ * picks the one of the server when it starts:
+ *
+ * <ul>
+ *   <li>heap, the objects in a {@link HeapAtmosphericInfoStorage} keyed by string
+ *   <li>primitive, the default, the objects in a {@link ConcurrentAtmosphericInfoStorage} keyed by
+ *       the packed airport codes
+ *   <li>offheap, fixed size records outside of the heap in an {@link
+ *       OffHeapAtmosphericInfoStorage}, weather.storage.float32 stores their values as floats
+ * </ul>
+ *
+ * @author Victor Polanco
+ */
+public enum StorageBackend {
+  HEAP {
+    @Override
+    public AtmosphericInfoStorage getAtmosphericInfoStorage() {
+      return HeapAtmosphericInfoStorage.getInstance();
+    }
+  },
+  PRIMITIVE {
+    @Override
+    public AtmosphericInfoStorage getAtmosphericInfoStorage() {
+      return ConcurrentAtmosphericInfoStorage.getInstance();
+    }
+  },
+  OFFHEAP {
+    @Override
+    public AtmosphericInfoStorage getAtmosphericInfoStorage() {
+      return OffHeapAtmosphericInfoStorage.getInstance();
+    }
+  };
+
+  private static final Logger LOGGER = Logger.getLogger(StorageBackend.class.getName());
+
+  /**
+   * Get the storage of this backend, every backend has a single instance.
+   *
+   * @return the atmospheric information storage
+   */
+  public abstract AtmosphericInfoStorage getAtmosphericInfoStorage();
+
+  /**
+   * Get the backend the weather.storage system property asked for when it was first read.
+   *
+   * @return the backend of the server
+   */
+  public static StorageBackend configured() {
+    return BackendHolder.BACKEND;
+  }
+
+  /**
+   * Find the backend of a value of the weather.storage property.
+   *
+   * @param name of the backend, ignoring the case
+   * @return the backend, or primitive if the name is unknown
+   */
+  static StorageBackend fromName(String name) {
+    for (StorageBackend backend : values()) {
+      if (backend.name().equalsIgnoreCase(name.trim())) {
+        return backend;
+      }
+    }
+    LOGGER.log(Level.WARNING, "Unknown storage " + name + ", using the primitive storage");
+    return PRIMITIVE;
+  }
+
+  /** Private static inner class holder of the configured backend, read once */
+  private static class BackendHolder {
+    private static final StorageBackend BACKEND =
+        fromName(System.getProperty("weather.storage", "primitive"));
+  }
+}
@@ -0,0 +1,31 @@
+package com.crossover.trial.weather.persistence;
+
+/**
+ * How long a collector request waits for its changes to reach the write-ahead log.
+ *
+ * @author Victor Polanco
+ */
+public enum Durability {
+  /** Answer once the change is applied, the log writes it to disk with the next group */
+  ASYNC,
+  /** Answer once the group holding the change was forced to disk */
+  SYNC;
+
+  /**
+   * Find the durability for the given name ignoring the case.
+   *
+   * @param name of the durability
+   * @return the {@link Durability} or null if there's none with the given name
+   */
+  public static Durability fromName(String name) {
+    if (name == null) {
+      return null;
+    }
+    for (Durability durability : values()) {
+      if (durability.name().equalsIgnoreCase(name.trim())) {
+        return durability;
+      }
+    }
+    return null;
+  }
+}
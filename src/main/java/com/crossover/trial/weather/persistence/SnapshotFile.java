@@ -0,0 +1,263 @@
+package com.crossover.trial.weather.persistence;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the airports and their atmospheric information. The file starts with a magic
+ * number and a format version, followed by the airports, the atmospheric information and a CRC32
+ * of everything before it:
+ *
+ * <pre>
+ * int magic, int version, long creation time, long sequence of the write-ahead log
+ * int airports, then per airport: code, double latitude, double longitude
+ * int readings, then per airport: code, long last update time, byte mask of the data points
+ *     present, then per data point in the order temperature, wind, humidity, precipitation,
+ *     pressure and cloud cover: double mean, int first, int second, int third, int count
+ * int CRC32
+ * </pre>
+ *
+ * <p>Codes are a byte with the length followed by the UTF-8 bytes. A snapshot is written to a
+ * temporary file that replaces the previous snapshot once it's on disk, so a crash while writing
+ * leaves the previous one intact. Reading maps the file in memory, checks it and decodes it in
+ * place. The log sequence is where the replay of the {@link WriteAheadLog} starts after the
+ * snapshot is restored.
+ *
+ * @author Victor Polanco
+ */
+public final class SnapshotFile {
+
+  /** WTHR in ASCII */
+  static final int MAGIC = 0x57544852;
+
+  static final int VERSION = 2;
+
+  private static final int DATA_POINTS = 6;
+
+  private SnapshotFile() {}
+
+  /**
+   * Write a snapshot, replacing the given file atomically. The collections must not change while
+   * the snapshot is written.
+   *
+   * @param file the snapshot file
+   * @param airports the airports to write
+   * @param atmosphericInformation the atmospheric information to write, by airport code
+   * @param logSequence the sequence of the first change of the log the snapshot may miss
+   * @throws IOException if the snapshot can't be written, the previous one is left untouched
+   */
+  public static void write(
+      Path file,
+      Collection<AirportData> airports,
+      Collection<Map.Entry<String, AtmosphericInformation>> atmosphericInformation,
+      long logSequence)
+      throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (FileOutputStream fileOutput = new FileOutputStream(temporary.toFile())) {
+        CRC32 crc = new CRC32();
+        DataOutputStream output =
+            new DataOutputStream(
+                new CheckedOutputStream(new BufferedOutputStream(fileOutput, 1 << 16), crc));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(System.currentTimeMillis());
+        output.writeLong(logSequence);
+
+        output.writeInt(airports.size());
+        for (AirportData airportData : airports) {
+          writeCode(output, airportData.getIata());
+          output.writeDouble(airportData.getLatitude());
+          output.writeDouble(airportData.getLongitude());
+        }
+
+        output.writeInt(atmosphericInformation.size());
+        for (Map.Entry<String, AtmosphericInformation> entry : atmosphericInformation) {
+          writeCode(output, entry.getKey());
+          writeAtmosphericInformation(output, entry.getValue());
+        }
+
+        output.flush();
+        // The checksum is not part of itself
+        output.writeInt((int) crc.getValue());
+        output.flush();
+        fileOutput.getChannel().force(true);
+      }
+      Files.move(
+          temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Read a snapshot, the airports and the atmospheric information are handed to the given
+   * consumers as they are decoded.
+   *
+   * @param file the snapshot file
+   * @param airports consumer of the airports
+   * @param atmosphericInformation consumer of the atmospheric information and its airport code
+   * @return the sequence of the write-ahead log the replay has to start from
+   * @throws IOException if the file can't be read or is not a valid snapshot, the checksum of the
+   *     whole file is verified before calling the consumers
+   */
+  public static long read(
+      Path file,
+      Consumer<AirportData> airports,
+      BiConsumer<String, AtmosphericInformation> atmosphericInformation)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot too large " + file);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      try {
+        return read(buffer, airports, atmosphericInformation);
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        throw new IOException("Corrupted snapshot " + file, e);
+      }
+    }
+  }
+
+  private static long read(
+      ByteBuffer buffer,
+      Consumer<AirportData> airports,
+      BiConsumer<String, AtmosphericInformation> atmosphericInformation)
+      throws IOException {
+    if (buffer.limit() < 32) {
+      throw new IOException("Truncated snapshot");
+    }
+    int checksum = buffer.getInt(buffer.limit() - 4);
+    ByteBuffer body = buffer.duplicate();
+    body.limit(buffer.limit() - 4);
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    if ((int) crc.getValue() != checksum) {
+      throw new IOException("Snapshot checksum mismatch");
+    }
+
+    buffer.limit(buffer.limit() - 4);
+    if (buffer.getInt() != MAGIC) {
+      throw new IOException("Not a weather snapshot");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported snapshot version " + version);
+    }
+    // The creation time is informative
+    buffer.getLong();
+    long logSequence = buffer.getLong();
+
+    int airportCount = buffer.getInt();
+    for (int i = 0; i < airportCount; i++) {
+      AirportData airportData = new AirportData();
+      airportData.setIata(readCode(buffer));
+      airportData.setLatitude(buffer.getDouble());
+      airportData.setLongitude(buffer.getDouble());
+      airports.accept(airportData);
+    }
+
+    int readingCount = buffer.getInt();
+    for (int i = 0; i < readingCount; i++) {
+      String code = readCode(buffer);
+      atmosphericInformation.accept(code, readAtmosphericInformation(buffer));
+    }
+    return logSequence;
+  }
+
+  private static void writeCode(DataOutputStream output, String code) throws IOException {
+    byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 255) {
+      throw new IOException("Airport code too long " + code);
+    }
+    output.writeByte(bytes.length);
+    output.write(bytes);
+  }
+
+  static String readCode(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.get() & 0xff];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeAtmosphericInformation(
+      DataOutputStream output, AtmosphericInformation atmosphericInformation) throws IOException {
+    DataPoint[] dataPoints = dataPointsOf(atmosphericInformation);
+    int mask = 0;
+    for (int i = 0; i < DATA_POINTS; i++) {
+      if (dataPoints[i] != null) {
+        mask |= 1 << i;
+      }
+    }
+    output.writeLong(atmosphericInformation.getLastUpdateTime());
+    output.writeByte(mask);
+    for (DataPoint dataPoint : dataPoints) {
+      if (dataPoint != null) {
+        output.writeDouble(dataPoint.getMean());
+        output.writeInt(dataPoint.getFirst());
+        output.writeInt(dataPoint.getSecond());
+        output.writeInt(dataPoint.getThird());
+        output.writeInt(dataPoint.getCount());
+      }
+    }
+  }
+
+  private static AtmosphericInformation readAtmosphericInformation(ByteBuffer buffer) {
+    long lastUpdateTime = buffer.getLong();
+    int mask = buffer.get();
+    DataPoint[] dataPoints = new DataPoint[DATA_POINTS];
+    for (int i = 0; i < DATA_POINTS; i++) {
+      if ((mask & 1 << i) != 0) {
+        DataPoint dataPoint = new DataPoint();
+        dataPoint.mean = buffer.getDouble();
+        dataPoint.first = buffer.getInt();
+        dataPoint.second = buffer.getInt();
+        dataPoint.third = buffer.getInt();
+        dataPoint.count = buffer.getInt();
+        dataPoints[i] = dataPoint;
+      }
+    }
+    return new AtmosphericInformation(
+        dataPoints[0],
+        dataPoints[1],
+        dataPoints[2],
+        dataPoints[3],
+        dataPoints[4],
+        dataPoints[5],
+        lastUpdateTime);
+  }
+
+  /** The data points in the order of the file */
+  private static DataPoint[] dataPointsOf(AtmosphericInformation atmosphericInformation) {
+    return new DataPoint[] {
+      atmosphericInformation.getTemperature(),
+      atmosphericInformation.getWind(),
+      atmosphericInformation.getHumidity(),
+      atmosphericInformation.getPrecipitation(),
+      atmosphericInformation.getPressure(),
+      atmosphericInformation.getCloudCover()
+    };
+  }
+}
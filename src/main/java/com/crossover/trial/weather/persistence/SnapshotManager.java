@@ -0,0 +1,218 @@
+package com.crossover.trial.weather.persistence;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.storage.AirportDataStorage;
+import com.crossover.trial.weather.model.storage.AtmosphericInfoStorage;
+import com.crossover.trial.weather.model.storage.FreshnessTracker;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.AtmosphericInformationSweeper;
+import com.crossover.trial.weather.utils.ConstantHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+
+/**
+ * Takes periodic snapshots of the airports and the atmospheric information and restores the last
+ * one on startup. Snapshots are on when the weather.snapshot.file system property names the
+ * snapshot file, they are taken every weather.snapshot.interval, 5m by default, and once more when
+ * the server stops.
+ *
+ * <p>The storages are copied without locking them, the atmospheric information is made of immutable
+ * snapshots so every airport is written in a consistent state while the requests keep being served.
+ * The copy is written by a background thread, see {@link SnapshotFile} for the format. Every
+ * snapshot records the sequence of the {@link WriteAheadLog} it was taken at, the log is replayed
+ * from there after the snapshot is restored and the older segments of the log are deleted.
+ *
+ * @author Victor Polanco
+ */
+public class SnapshotManager {
+
+  /** Logger for all logs inside this service */
+  public static final Logger LOGGER = Logger.getLogger(SnapshotManager.class.getName());
+
+  private static final String DEFAULT_INTERVAL = "5m";
+
+  /** The snapshot file, null when the snapshots are off */
+  private final Path file;
+
+  private final long interval;
+
+  private ScheduledExecutorService scheduler;
+
+  /** The log sequence of the restored snapshot */
+  private long logSequence;
+
+  private final AirportDataStorage airportDataMap;
+
+  private final AtmosphericInfoStorage atmosphericInformationMap;
+
+  private final FreshnessTracker freshnessTracker;
+
+  private final AtmosphericInformationSweeper atmosphericInformationSweeper;
+
+  private final WriteAheadLog writeAheadLog;
+
+  /**
+   * Create the snapshot manager of the given storages, the server binds a single instance of it.
+   *
+   * @param airportDataMap storage of the airport data
+   * @param atmosphericInformationMap storage of the atmospheric information
+   * @param freshnessTracker tracker of the information updated within the last day
+   * @param atmosphericInformationSweeper sweeper evicting the stale information
+   * @param writeAheadLog log of the changes, truncated after every snapshot
+   */
+  @Inject
+  public SnapshotManager(
+      AirportDataStorage airportDataMap,
+      AtmosphericInfoStorage atmosphericInformationMap,
+      FreshnessTracker freshnessTracker,
+      AtmosphericInformationSweeper atmosphericInformationSweeper,
+      WriteAheadLog writeAheadLog) {
+    this.airportDataMap = airportDataMap;
+    this.atmosphericInformationMap = atmosphericInformationMap;
+    this.freshnessTracker = freshnessTracker;
+    this.atmosphericInformationSweeper = atmosphericInformationSweeper;
+    this.writeAheadLog = writeAheadLog;
+    String fileName = System.getProperty("weather.snapshot.file");
+    file = fileName != null ? Paths.get(fileName) : null;
+    String interval = System.getProperty("weather.snapshot.interval", DEFAULT_INTERVAL);
+    long parsedInterval;
+    try {
+      parsedInterval = ConstantHelper.parseDuration(interval);
+    } catch (IllegalArgumentException e) {
+      LOGGER.log(Level.WARNING, "Invalid snapshot interval " + interval + ", using the default", e);
+      parsedInterval = ConstantHelper.parseDuration(DEFAULT_INTERVAL);
+    }
+    this.interval = Math.max(1, parsedInterval);
+  }
+
+  public boolean isEnabled() {
+    return file != null;
+  }
+
+  /**
+   * Restore the last snapshot, if there's one.
+   *
+   * @param airportService the service indexing the restored airports
+   * @return true if a snapshot was restored
+   */
+  public boolean restore(AirportService airportService) {
+    if (file == null || !Files.exists(file)) {
+      return false;
+    }
+    long start = System.nanoTime();
+    List<AirportData> airports = new ArrayList<>();
+    long[] readings = new long[1];
+    try {
+      logSequence =
+          SnapshotFile.read(
+              file,
+              airports::add,
+              (iataCode, atmosphericInformation) -> {
+                atmosphericInformationMap.put(iataCode, atmosphericInformation);
+                long lastUpdateTime = atmosphericInformation.getLastUpdateTime();
+                if (lastUpdateTime > 0) {
+                  freshnessTracker.update(0, lastUpdateTime);
+                  atmosphericInformationSweeper.schedule(iataCode, lastUpdateTime);
+                }
+                readings[0]++;
+              });
+    } catch (IOException e) {
+      LOGGER.log(Level.SEVERE, "Unable to restore the snapshot " + file, e);
+      return false;
+    }
+    // The readings go first so the airports are complete once they are indexed
+    airportService.addAirports(airports);
+    LOGGER.log(
+        Level.INFO,
+        String.format(
+            "Restored %d airports and %d readings from %s in %d ms",
+            airports.size(),
+            readings[0],
+            file,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    return true;
+  }
+
+  /**
+   * Get the sequence of the write-ahead log the restored snapshot was taken at.
+   *
+   * @return the sequence to replay the log from, 0 if no snapshot was restored
+   */
+  public long getLogSequence() {
+    return logSequence;
+  }
+
+  /** Start taking the periodic snapshots. */
+  public synchronized void start() {
+    if (file == null || scheduler != null) {
+      return;
+    }
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "weather-snapshot");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.scheduleWithFixedDelay(
+        this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Take a snapshot now.
+   *
+   * @throws IOException if the snapshot can't be written
+   */
+  public synchronized void snapshot() throws IOException {
+    if (file == null) {
+      return;
+    }
+    long start = System.nanoTime();
+    // Every change logged before the sequence is in the storages by now
+    long logSequence = writeAheadLog.checkpoint();
+    // Weakly consistent copies, the writers are never blocked
+    List<AirportData> airports = new ArrayList<>(airportDataMap.values());
+    List<Map.Entry<String, AtmosphericInformation>> readings =
+        new ArrayList<>(atmosphericInformationMap.entrySet());
+    SnapshotFile.write(file, airports, readings, logSequence);
+    writeAheadLog.truncate(logSequence);
+    if (LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.fine(
+          String.format(
+              "Snapshot of %d airports and %d readings written in %d ms",
+              airports.size(),
+              readings.size(),
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+  }
+
+  /** Stop the periodic snapshots and take a last one. */
+  public synchronized void close() {
+    if (scheduler == null) {
+      return;
+    }
+    scheduler.shutdownNow();
+    scheduler = null;
+    snapshotQuietly();
+  }
+
+  private void snapshotQuietly() {
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Unable to write the snapshot " + file, e);
+    }
+  }
+}
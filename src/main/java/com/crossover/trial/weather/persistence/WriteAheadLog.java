@@ -0,0 +1,837 @@
+package com.crossover.trial.weather.persistence;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.AtmosphericInformationService;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes made by the collectors, replayed on startup on top of the last
+ * snapshot so the changes made after it are not lost. The log is on when the weather.wal.dir
+ * system property names its directory, weather.wal.durability sets the default {@link Durability}
+ * of the requests, sync unless told otherwise, and a request can ask for another one with the
+ * X-Weather-Durability header.
+ *
+ * <p>The changes are logged while the storage is updated so the log follows the order of the
+ * updates of every airport. A record is encoded in a buffer of the thread and copied to a shared
+ * pending buffer, a single writer thread swaps it for an empty one, writes it and forces it to
+ * disk, so a single force covers every record appended while the previous one was running (group
+ * commit). A sync request waits for the force covering its last record, an async one doesn't.
+ * The waits are on {@link ReentrantLock} conditions rather than monitors, so a request running on a
+ * virtual thread unmounts while it waits for the force instead of pinning its carrier.
+ *
+ * <p>The log is made of segments named after the sequence number of their first record:
+ *
+ * <pre>
+ * int magic, int version, long sequence of the first record
+ * then per record: int payload length, int CRC32 of the payload, payload
+ * </pre>
+ *
+ * The payload is the record type followed by an added airport with its code, latitude and
+ * longitude, a deleted airport with its code, or an update with the airport code, the point type,
+ * the update time and the data point. A new segment is started once the current one grows past 64
+ * MB and on every snapshot, the segments holding only records older than the snapshot are deleted.
+ * A torn record, left by a crash while it was written, ends the replay of its segment.
+ *
+ * @author Victor Polanco
+ */
+public class WriteAheadLog {
+
+  /** Logger for all logs inside this service */
+  public static final Logger LOGGER = Logger.getLogger(WriteAheadLog.class.getName());
+
+  /** Request header choosing the durability of a single request */
+  public static final String DURABILITY_HEADER = "X-Weather-Durability";
+
+  /** WWAL in ASCII */
+  static final int MAGIC = 0x5757414c;
+
+  static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 16;
+
+  /** Length and checksum in front of every payload */
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private static final long SEGMENT_SIZE = 64L << 20;
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /** Large enough for an update with the longest code */
+  private static final int MAX_RECORD_SIZE = 512;
+
+  private static final String SEGMENT_SUFFIX = ".wal";
+
+  private static final byte AIRPORT_ADDED = 1;
+
+  private static final byte AIRPORT_DELETED = 2;
+
+  private static final byte DATA_POINT_UPDATED = 3;
+
+  private static final DataPointType[] TYPES = DataPointType.values();
+
+  /** The directory of the segments, null when the log is off */
+  private final Path directory;
+
+  private final Durability defaultDurability;
+
+  private final ThreadLocal<Scratch> scratch;
+
+  /** Changes in flight in the storage per epoch, see {@link #checkpoint()} */
+  private final LongAdder[] inFlight;
+
+  private volatile int epoch;
+
+  /** Guards the pending buffer, the sequence and the requests to the writer */
+  private final ReentrantLock lock;
+
+  /** Signalled to the writer when there are records to write, a roll or a close */
+  private final Condition writerWakeUp;
+
+  /** Signalled to the appenders when the writer took the pending records */
+  private final Condition roomAvailable;
+
+  private ByteBuffer pending;
+
+  /** Sequence of the next record appended */
+  private long nextSequence;
+
+  private volatile boolean running;
+
+  /** True once the sequence was read from the segments on disk */
+  private boolean recovered;
+
+  /** A new segment was requested, the older segments before the truncate sequence are deleted */
+  private boolean rollRequested;
+
+  private long truncateBefore;
+
+  /** Guards the durable sequence */
+  private final ReentrantLock durableLock;
+
+  /** Signalled when the durable sequence moves or the writer stops */
+  private final Condition durableChanged;
+
+  /** Every record below this sequence is on disk */
+  private long durableSequence;
+
+  /** The error that stopped the writer, the log drops every record after it */
+  private volatile IOException failure;
+
+  private Thread writer;
+
+  /** Private constructor preventing other classes to instantiate the class */
+  private WriteAheadLog() {
+    this(configuredDirectory(), configuredDurability());
+  }
+
+  /**
+   * Create a log in the given directory, the rest of the system shares the instance.
+   *
+   * @param directory the directory of the segments, null to turn the log off
+   * @param defaultDurability the durability of the requests that don't choose one
+   */
+  WriteAheadLog(Path directory, Durability defaultDurability) {
+    this.directory = directory;
+    this.defaultDurability = defaultDurability;
+    scratch = ThreadLocal.withInitial(Scratch::new);
+    inFlight = new LongAdder[] {new LongAdder(), new LongAdder()};
+    lock = new ReentrantLock();
+    writerWakeUp = lock.newCondition();
+    roomAvailable = lock.newCondition();
+    durableLock = new ReentrantLock();
+    durableChanged = durableLock.newCondition();
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the WriteAheadLog.
+   */
+  public static WriteAheadLog getInstance() {
+    return LogHolder.INSTANCE;
+  }
+
+  private static Path configuredDirectory() {
+    String directory = System.getProperty("weather.wal.dir");
+    return directory != null ? Paths.get(directory) : null;
+  }
+
+  private static Durability configuredDurability() {
+    String name = System.getProperty("weather.wal.durability");
+    Durability durability = Durability.fromName(name);
+    if (durability == null) {
+      if (name != null) {
+        LOGGER.warning("Invalid durability " + name + ", using sync");
+      }
+      durability = Durability.SYNC;
+    }
+    return durability;
+  }
+
+  public boolean isEnabled() {
+    return directory != null;
+  }
+
+  /**
+   * Resolve the durability requested by a collector.
+   *
+   * @param name of the durability, null for the default one
+   * @return the {@link Durability} or null if the name is not valid
+   */
+  public Durability getDurability(String name) {
+    return name == null ? defaultDurability : Durability.fromName(name);
+  }
+
+  /**
+   * Replay the changes logged from the given sequence on, usually the one of the restored
+   * snapshot. The log has to be recovered before it's started.
+   *
+   * @param fromSequence the sequence of the first change to replay
+   * @param airportService the service the airports are replayed on
+   * @param atmosphericInformationService the service the data points are replayed on
+   * @return the amount of changes replayed
+   * @throws IOException if the segments can't be read
+   */
+  public long recover(
+      long fromSequence,
+      AirportService airportService,
+      AtmosphericInformationService atmosphericInformationService)
+      throws IOException {
+    long start = System.nanoTime();
+    LogReplayer replayer = new LogReplayer(airportService, atmosphericInformationService);
+    long replayed = replay(fromSequence, replayer);
+    replayer.flush();
+    if (replayed > 0) {
+      LOGGER.log(
+          Level.INFO,
+          String.format(
+              "Replayed %d changes from %s in %d ms",
+              replayed,
+              directory,
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+    return replayed;
+  }
+
+  /**
+   * Replay the changes logged from the given sequence on.
+   *
+   * @param fromSequence the sequence of the first change to replay
+   * @param handler the handler of the changes, null to only find the end of the log
+   * @return the amount of changes replayed
+   */
+  long replay(long fromSequence, Handler handler) throws IOException {
+    long end = fromSequence;
+    long replayed = 0;
+    if (directory != null && Files.isDirectory(directory)) {
+      List<Long> segments = listSegments();
+      for (int i = 0; i < segments.size(); i++) {
+        long first = segments.get(i);
+        long next = i + 1 < segments.size() ? segments.get(i + 1) : Long.MAX_VALUE;
+        // Every record of the segment is older than the snapshot
+        if (next <= fromSequence) {
+          continue;
+        }
+        long segmentEnd = replaySegment(segmentPath(first), first, fromSequence, handler);
+        replayed += Math.max(0, segmentEnd - Math.max(first, fromSequence));
+        end = Math.max(end, segmentEnd);
+      }
+    }
+    lock.lock();
+    try {
+      nextSequence = Math.max(nextSequence, end);
+      recovered = true;
+    } finally {
+      lock.unlock();
+    }
+    return replayed;
+  }
+
+  /**
+   * Start logging the changes, a new segment is started after the last replayed change.
+   *
+   * @throws IOException if the segment can't be created
+   */
+  public void start() throws IOException {
+    if (directory == null || running) {
+      return;
+    }
+    if (!recovered) {
+      replay(0, null);
+    }
+    Files.createDirectories(directory);
+    long first;
+    lock.lock();
+    try {
+      first = nextSequence;
+    } finally {
+      lock.unlock();
+    }
+    FileChannel channel = openSegment(first);
+    durableLock.lock();
+    try {
+      durableSequence = first;
+    } finally {
+      durableLock.unlock();
+    }
+    lock.lock();
+    try {
+      pending = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      writer = new Thread(() -> writeLoop(channel, first), "weather-wal");
+      writer.setDaemon(true);
+      writer.start();
+      running = true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Write the pending changes and stop logging. */
+  public void close() {
+    Thread writer;
+    lock.lock();
+    try {
+      if (!running) {
+        return;
+      }
+      running = false;
+      writerWakeUp.signal();
+      roomAvailable.signalAll();
+      writer = this.writer;
+    } finally {
+      lock.unlock();
+    }
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Mark the start of a change of the storage, the change has to be logged before {@link
+   * #endChange(int)}.
+   *
+   * @return the ticket to hand to endChange
+   */
+  public int beginChange() {
+    if (!running) {
+      return -1;
+    }
+    while (true) {
+      int current = epoch;
+      inFlight[current].increment();
+      // A checkpoint flipping the epoch in between may have found the count still at zero
+      if (epoch == current) {
+        return current;
+      }
+      inFlight[current].decrement();
+    }
+  }
+
+  /**
+   * Mark the end of a change of the storage, it's visible to the readers.
+   *
+   * @param ticket returned by beginChange
+   */
+  public void endChange(int ticket) {
+    if (ticket >= 0) {
+      inFlight[ticket].decrement();
+    }
+  }
+
+  /**
+   * Get the sequence a snapshot starting now has to be replayed from. The changes logged before it
+   * may still be on their way to the storage, so the epoch of the changes is flipped and the
+   * changes of the previous one are waited for, after that every change below the sequence is
+   * visible in the storage. Replaying a change the snapshot already holds is harmless.
+   *
+   * <p>The sequence is read before the flip, so every change logged below it began in the epoch
+   * that is waited for. A change beginning after the flip is logged at or above it.
+   *
+   * @return the sequence of the first change the snapshot may miss
+   */
+  public synchronized long checkpoint() {
+    long sequence;
+    lock.lock();
+    try {
+      sequence = nextSequence;
+    } finally {
+      lock.unlock();
+    }
+    int previous = epoch;
+    epoch = 1 - previous;
+    while (inFlight[previous].sum() != 0) {
+      Thread.yield();
+    }
+    return sequence;
+  }
+
+  /**
+   * Start a new segment and delete the segments holding only changes older than the given
+   * sequence, called once a snapshot holding them is on disk.
+   *
+   * @param sequence the sequence of the snapshot
+   */
+  public void truncate(long sequence) {
+    lock.lock();
+    try {
+      if (!running) {
+        return;
+      }
+      rollRequested = true;
+      truncateBefore = Math.max(truncateBefore, sequence);
+      writerWakeUp.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Log a new airport.
+   *
+   * @param airportData the airport added
+   */
+  public void logAirportAdded(AirportData airportData) {
+    if (!running) {
+      return;
+    }
+    ByteBuffer record = begin(AIRPORT_ADDED);
+    putCode(record, airportData.getIata());
+    record.putDouble(airportData.getLatitude());
+    record.putDouble(airportData.getLongitude());
+    append(record);
+  }
+
+  /**
+   * Log a deleted airport.
+   *
+   * @param iataCode the code of the airport deleted
+   */
+  public void logAirportDeleted(String iataCode) {
+    if (!running) {
+      return;
+    }
+    ByteBuffer record = begin(AIRPORT_DELETED);
+    putCode(record, iataCode);
+    append(record);
+  }
+
+  /**
+   * Log an accepted data point.
+   *
+   * @param iataCode the code of the airport updated
+   * @param pointType the type of the data point
+   * @param dataPoint the data point
+   * @param updateTime the update time in milliseconds since UTC epoch
+   */
+  public void logDataPointUpdated(
+      String iataCode, DataPointType pointType, DataPoint dataPoint, long updateTime) {
+    if (!running) {
+      return;
+    }
+    ByteBuffer record = begin(DATA_POINT_UPDATED);
+    putCode(record, iataCode);
+    record.put((byte) pointType.ordinal());
+    record.putLong(updateTime);
+    record.putDouble(dataPoint.getMean());
+    record.putInt(dataPoint.getFirst());
+    record.putInt(dataPoint.getSecond());
+    record.putInt(dataPoint.getThird());
+    record.putInt(dataPoint.getCount());
+    append(record);
+  }
+
+  /**
+   * Wait for the changes logged by the current thread to be as durable as requested.
+   *
+   * @param durability the requested durability
+   * @return false if the log failed and the changes may not be on disk
+   */
+  public boolean await(Durability durability) {
+    if (failure != null) {
+      return false;
+    }
+    long sequence = scratch.get().lastSequence;
+    if (durability != Durability.SYNC || sequence < 0) {
+      return true;
+    }
+    boolean interrupted = false;
+    durableLock.lock();
+    try {
+      while (durableSequence <= sequence && failure == null) {
+        try {
+          durableChanged.await();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      return durableSequence > sequence;
+    } finally {
+      durableLock.unlock();
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** Start encoding a record in the buffer of the thread */
+  private ByteBuffer begin(byte type) {
+    ByteBuffer record = scratch.get().record;
+    record.clear();
+    record.position(RECORD_HEADER_SIZE);
+    record.put(type);
+    return record;
+  }
+
+  private static void putCode(ByteBuffer record, String code) {
+    byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 255) {
+      throw new IllegalArgumentException("Airport code too long " + code);
+    }
+    record.put((byte) bytes.length);
+    record.put(bytes);
+  }
+
+  /** Seal the record of the thread and copy it to the pending buffer */
+  private void append(ByteBuffer record) {
+    Scratch current = scratch.get();
+    record.flip();
+    int length = record.limit() - RECORD_HEADER_SIZE;
+    current.crc.reset();
+    current.crc.update(record.array(), RECORD_HEADER_SIZE, length);
+    record.putInt(0, length);
+    record.putInt(4, (int) current.crc.getValue());
+
+    boolean interrupted = false;
+    lock.lock();
+    try {
+      // The writer is behind, wait for it instead of growing the buffer
+      while (running && failure == null && pending.remaining() < record.remaining()) {
+        try {
+          roomAvailable.await();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (running && failure == null) {
+        if (pending.position() == 0) {
+          writerWakeUp.signal();
+        }
+        pending.put(record);
+        current.lastSequence = nextSequence++;
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Write the pending records as they come, a force per batch */
+  private void writeLoop(FileChannel segment, long first) {
+    FileChannel channel = segment;
+    long segmentSize = HEADER_SIZE;
+    long written = first;
+    ByteBuffer batch = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    try {
+      while (true) {
+        long through;
+        boolean roll;
+        long truncate;
+        lock.lock();
+        try {
+          while (running && pending.position() == 0 && !rollRequested) {
+            writerWakeUp.await();
+          }
+          if (!running && pending.position() == 0 && !rollRequested) {
+            break;
+          }
+          ByteBuffer full = pending;
+          pending = batch;
+          batch = full;
+          through = nextSequence;
+          roll = rollRequested;
+          truncate = truncateBefore;
+          rollRequested = false;
+          // Wake the appenders waiting for room
+          roomAvailable.signalAll();
+        } finally {
+          lock.unlock();
+        }
+        batch.flip();
+        // An empty segment is kept, the next one would start at the same sequence
+        if (segmentSize > HEADER_SIZE
+            && (roll || segmentSize + batch.remaining() > SEGMENT_SIZE)) {
+          channel.close();
+          channel = openSegment(written);
+          segmentSize = HEADER_SIZE;
+        }
+        if (roll) {
+          deleteSegmentsBefore(truncate);
+        }
+        segmentSize += batch.remaining();
+        while (batch.hasRemaining()) {
+          channel.write(batch);
+        }
+        channel.force(false);
+        batch.clear();
+        written = through;
+        durableLock.lock();
+        try {
+          durableSequence = through;
+          durableChanged.signalAll();
+        } finally {
+          durableLock.unlock();
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.log(Level.SEVERE, "Unable to write the log, the changes are no longer logged", e);
+      failure = e;
+    } catch (InterruptedException e) {
+      failure = new IOException("Log writer interrupted", e);
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Unable to close the log segment", e);
+      }
+      // Release the appenders and the requests waiting for a write that won't happen
+      lock.lock();
+      try {
+        roomAvailable.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      durableLock.lock();
+      try {
+        durableChanged.signalAll();
+      } finally {
+        durableLock.unlock();
+      }
+    }
+  }
+
+  private FileChannel openSegment(long first) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            segmentPath(first),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(VERSION).putLong(first).flip();
+    while (header.hasRemaining()) {
+      channel.write(header);
+    }
+    channel.force(true);
+    return channel;
+  }
+
+  private void deleteSegmentsBefore(long sequence) throws IOException {
+    List<Long> segments = listSegments();
+    // A segment can go once the next one starts at or before the sequence, the last one is open
+    for (int i = 0; i + 1 < segments.size() && segments.get(i + 1) <= sequence; i++) {
+      Files.deleteIfExists(segmentPath(segments.get(i)));
+    }
+  }
+
+  /** The first sequence of every segment, in order */
+  private List<Long> listSegments() throws IOException {
+    List<Long> segments = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        try {
+          segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+          LOGGER.warning("Ignoring the unexpected file " + file);
+        }
+      }
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  private Path segmentPath(long first) {
+    return directory.resolve(String.format("%020d%s", first, SEGMENT_SUFFIX));
+  }
+
+  /**
+   * Replay the records of a segment from the given sequence on.
+   *
+   * @return the sequence following the last valid record of the segment
+   */
+  private static long replaySegment(Path file, long first, long fromSequence, Handler handler)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.limit() < HEADER_SIZE
+          || buffer.getInt() != MAGIC
+          || buffer.getInt() != VERSION
+          || buffer.getLong() != first) {
+        LOGGER.warning("Ignoring the invalid log segment " + file);
+        return first;
+      }
+      long sequence = first;
+      CRC32 crc = new CRC32();
+      while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+        int length = buffer.getInt(buffer.position());
+        int checksum = buffer.getInt(buffer.position() + 4);
+        if (length <= 0 || length > buffer.remaining() - RECORD_HEADER_SIZE) {
+          break;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(buffer.position() + RECORD_HEADER_SIZE);
+        payload.limit(payload.position() + length);
+        crc.reset();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+        if (handler != null && sequence >= fromSequence) {
+          try {
+            decode(payload, handler);
+          } catch (BufferUnderflowException
+              | IllegalArgumentException
+              | IndexOutOfBoundsException e) {
+            throw new IOException("Invalid record " + sequence + " in " + file, e);
+          }
+        }
+        buffer.position(payload.limit());
+        sequence++;
+      }
+      if (buffer.hasRemaining()) {
+        LOGGER.warning("Ignoring the torn end of " + file + " after record " + sequence);
+      }
+      return sequence;
+    }
+  }
+
+  private static void decode(ByteBuffer payload, Handler handler) {
+    byte type = payload.get();
+    String code = SnapshotFile.readCode(payload);
+    switch (type) {
+      case AIRPORT_ADDED:
+        AirportData airportData = new AirportData();
+        airportData.setIata(code);
+        airportData.setLatitude(payload.getDouble());
+        airportData.setLongitude(payload.getDouble());
+        handler.airportAdded(airportData);
+        break;
+      case AIRPORT_DELETED:
+        handler.airportDeleted(code);
+        break;
+      case DATA_POINT_UPDATED:
+        DataPointType pointType = TYPES[payload.get()];
+        long updateTime = payload.getLong();
+        DataPoint dataPoint = new DataPoint();
+        dataPoint.mean = payload.getDouble();
+        dataPoint.first = payload.getInt();
+        dataPoint.second = payload.getInt();
+        dataPoint.third = payload.getInt();
+        dataPoint.count = payload.getInt();
+        handler.dataPointUpdated(code, pointType, dataPoint, updateTime);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown record type " + type);
+    }
+  }
+
+  /** Receives the changes read from the log */
+  interface Handler {
+    void airportAdded(AirportData airportData);
+
+    void airportDeleted(String iataCode);
+
+    void dataPointUpdated(
+        String iataCode, DataPointType pointType, DataPoint dataPoint, long updateTime);
+  }
+
+  /** Applies the changes to the services, consecutive airports are added as a single batch */
+  private static class LogReplayer implements Handler {
+    private final AirportService airportService;
+    private final AtmosphericInformationService atmosphericInformationService;
+    private final List<AirportData> airports = new ArrayList<>();
+
+    private LogReplayer(
+        AirportService airportService,
+        AtmosphericInformationService atmosphericInformationService) {
+      this.airportService = airportService;
+      this.atmosphericInformationService = atmosphericInformationService;
+    }
+
+    @Override
+    public void airportAdded(AirportData airportData) {
+      airports.add(airportData);
+    }
+
+    @Override
+    public void airportDeleted(String iataCode) {
+      flush();
+      airportService.deleteAirport(iataCode);
+    }
+
+    @Override
+    public void dataPointUpdated(
+        String iataCode, DataPointType pointType, DataPoint dataPoint, long updateTime) {
+      flush();
+      atmosphericInformationService.replayAtmosphericInformationUpdate(
+          iataCode, pointType, dataPoint, updateTime);
+    }
+
+    private void flush() {
+      if (airports.isEmpty()) {
+        return;
+      }
+      for (AirportData airportData : airports) {
+        atmosphericInformationService.addAtmosphericInformationForAirport(
+            airportData.getIata(), new AtmosphericInformation());
+      }
+      airportService.addAirports(airports);
+      airports.clear();
+    }
+  }
+
+  /** Record buffer and state of a thread */
+  private static class Scratch {
+    private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    /** Sequence of the last record appended by the thread */
+    private long lastSequence = -1;
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class LogHolder {
+    private static final WriteAheadLog INSTANCE = new WriteAheadLog();
+  }
+}
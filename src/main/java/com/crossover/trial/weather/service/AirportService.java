@@ -1,6 +1,7 @@
 package com.crossover.trial.weather.service;
 
 import com.crossover.trial.weather.model.AirportData;
+import java.util.Collection;
 import java.util.List;
 import javax.ws.rs.core.Response.Status;
 import org.jvnet.hk2.annotations.Contract;
@@ -11,6 +12,7 @@ import org.jvnet.hk2.annotations.Contract;
  *
  * @author Victor Polanco
  */
+@Contract
 public interface AirportService {
 
   /**
@@ -30,6 +32,26 @@ public interface AirportService {
    */
   public List<AirportData> getAirportDataInRadius(String iataCode, double radius);
 
+  /**
+   * For a given airport get the closest airports sorted by distance, not including the given
+   * airport.
+   *
+   * @param iataCode 3 letter code
+   * @param count the maximum amount of airports to return
+   * @return a list of {@link AirportData} closest first or null if the airport is not found
+   */
+  public List<AirportData> getNearestAirports(String iataCode, int count);
+
+  /**
+   * For the given coordinates get the closest airports sorted by distance.
+   *
+   * @param latitude in degrees
+   * @param longitude in degrees
+   * @param count the maximum amount of airports to return
+   * @return a list of {@link AirportData} closest first
+   */
+  public List<AirportData> getNearestAirports(double latitude, double longitude, int count);
+
   /**
    * Add a new known airport to our list.
    *
@@ -47,6 +69,16 @@ public interface AirportService {
    */
   public Status addAirport(String iataCode, String latitude, String longitude);
 
+  /**
+   * Add a batch of airports, the airports whose code is already known are skipped. The indexes are
+   * updated once for the whole batch, before its airports are published. The batch isn't published
+   * atomically, readers may see some of its airports before the rest.
+   *
+   * @param airports the airports to add, with valid coordinates
+   * @return the airports that were added
+   */
+  public List<AirportData> addAirports(Collection<AirportData> airports);
+
   /**
    * Delete an Airport from our System
    *
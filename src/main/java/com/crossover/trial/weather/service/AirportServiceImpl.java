@@ -1,13 +1,22 @@
 package com.crossover.trial.weather.service;
 
 import com.crossover.trial.weather.model.AirportData;
-import com.crossover.trial.weather.model.AtmosphericInformation;
-import com.crossover.trial.weather.model.storage.ConcurrentAirportDataStorage;
-import com.crossover.trial.weather.utils.ConstantHelper;
+import com.crossover.trial.weather.model.storage.AirportCoordinateTable;
+import com.crossover.trial.weather.model.storage.AirportDataStorage;
+import com.crossover.trial.weather.model.storage.AirportKdTree;
+import com.crossover.trial.weather.model.storage.AtmosphericInfoStorage;
+import com.crossover.trial.weather.model.storage.ObservationHistory;
+import com.crossover.trial.weather.model.storage.RadiusQueryCache;
+import com.crossover.trial.weather.model.storage.RollingAggregates;
+import com.crossover.trial.weather.persistence.WriteAheadLog;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import javax.inject.Inject;
 import javax.ws.rs.core.Response.Status;
 
 /**
@@ -19,12 +28,77 @@ import javax.ws.rs.core.Response.Status;
 public class AirportServiceImpl implements AirportService {
 
   /** Concurrent Storage singleton for the airport data */
-  private ConcurrentAirportDataStorage<String, AirportData> airportDataMap;
+  private AirportDataStorage airportDataMap;
+
+  /** Coordinate table singleton used to resolve the radius queries */
+  private AirportCoordinateTable airportCoordinateTable;
+
+  /** Nearest neighbour index singleton used for the closest airports queries */
+  private AirportKdTree airportKdTree;
+
+  /** Cache singleton of the resolved radius queries */
+  private RadiusQueryCache radiusQueryCache;
+
+  /** Storage singleton of the atmospheric information, its computes serialize the updates */
+  private AtmosphericInfoStorage atmosphericInformationMap;
+
+  /** History singleton of the last observations of every airport */
+  private ObservationHistory observationHistory;
+
+  /** Sliding window aggregates singleton of every airport */
+  private RollingAggregates rollingAggregates;
+
+  /** Write-ahead log singleton of the added and deleted airports */
+  private WriteAheadLog writeAheadLog;
 
   public static final Logger LOGGER = Logger.getLogger(AirportServiceImpl.class.getName());
 
+  /**
+   * Create the service on the shared storages and indexes, for the tests and the benchmarks. The
+   * server gets its instance from the {@link com.crossover.trial.weather.WeatherBinder}.
+   */
   public AirportServiceImpl() {
-    airportDataMap = ConcurrentAirportDataStorage.getInstance();
+    this(
+        AirportDataStorage.getInstance(),
+        AirportCoordinateTable.getInstance(),
+        AirportKdTree.getInstance(),
+        RadiusQueryCache.getInstance(),
+        AtmosphericInfoStorage.getInstance(),
+        ObservationHistory.getInstance(),
+        RollingAggregates.getInstance(),
+        WriteAheadLog.getInstance());
+  }
+
+  /**
+   * Create the service on the given storages, the server binds a single instance of the service.
+   *
+   * @param airportDataMap storage of the airport data
+   * @param airportCoordinateTable coordinates of the airports for the radius queries
+   * @param airportKdTree index of the airports for the nearest queries
+   * @param radiusQueryCache cache of the radius queries
+   * @param atmosphericInformationMap storage of the atmospheric information
+   * @param observationHistory history of the observations, dropped with the airport
+   * @param rollingAggregates aggregates of the observations, dropped with the airport
+   * @param writeAheadLog log of the added and deleted airports
+   */
+  @Inject
+  public AirportServiceImpl(
+      AirportDataStorage airportDataMap,
+      AirportCoordinateTable airportCoordinateTable,
+      AirportKdTree airportKdTree,
+      RadiusQueryCache radiusQueryCache,
+      AtmosphericInfoStorage atmosphericInformationMap,
+      ObservationHistory observationHistory,
+      RollingAggregates rollingAggregates,
+      WriteAheadLog writeAheadLog) {
+    this.airportDataMap = airportDataMap;
+    this.airportCoordinateTable = airportCoordinateTable;
+    this.airportKdTree = airportKdTree;
+    this.radiusQueryCache = radiusQueryCache;
+    this.atmosphericInformationMap = atmosphericInformationMap;
+    this.observationHistory = observationHistory;
+    this.rollingAggregates = rollingAggregates;
+    this.writeAheadLog = writeAheadLog;
   }
 
   /**
@@ -48,16 +122,68 @@ public class AirportServiceImpl implements AirportService {
   public List<AirportData> getAirportDataInRadius(String iataCode, double radius) {
     // Find the airport with the given code
     AirportData airportDataCenter = this.findAirportData(iataCode);
-    // If there's an airport data with the given code, return it
+    // If there's an airport data with the given code and a valid radius resolve the query
     // else return an empty list
-    if (airportDataCenter != null) {
-      return airportDataMap
-          .values()
-          .stream()
-          .filter(airport -> calculateDistance(airportDataCenter, airport) <= radius)
-          .collect(Collectors.toList());
+    if (airportDataCenter == null || !(radius >= 0)) {
+      return new ArrayList<>();
     }
-    return new ArrayList<>();
+
+    List<String> cachedIataCodes = radiusQueryCache.get(iataCode, radius);
+    if (cachedIataCodes != null) {
+      List<AirportData> airports = new ArrayList<>(cachedIataCodes.size());
+      for (String cachedIataCode : cachedIataCodes) {
+        AirportData airportData = airportDataMap.get(cachedIataCode);
+        if (airportData != null) {
+          airports.add(airportData);
+        }
+      }
+      return airports;
+    }
+
+    // The version has to be read before the query so a concurrent change is never cached
+    long version = radiusQueryCache.getVersion();
+    List<AirportData> airports =
+        airportCoordinateTable.getAirportsInRadius(airportDataCenter, radius);
+    radiusQueryCache.put(
+        airportDataCenter,
+        radius,
+        airports.stream().map(AirportData::getIata).collect(Collectors.toList()),
+        version);
+    return airports;
+  }
+
+  /**
+   * For a given airport get the closest airports sorted by distance, not including the given
+   * airport.
+   *
+   * @param iataCode 3 letter code
+   * @param count the maximum amount of airports to return
+   * @return a list of {@link AirportData} closest first or null if the airport is not found
+   */
+  @Override
+  public List<AirportData> getNearestAirports(String iataCode, int count) {
+    AirportData airportDataCenter = this.findAirportData(iataCode);
+    if (airportDataCenter == null) {
+      return null;
+    }
+    return airportKdTree.getNearest(
+        airportDataCenter.getLatitude(),
+        airportDataCenter.getLongitude(),
+        count,
+        airportDataCenter);
+  }
+
+  /**
+   * For the given coordinates get the closest airports sorted by distance.
+   *
+   * @param latitude in degrees
+   * @param longitude in degrees
+   * @param count the maximum amount of airports to return
+   * @return a list of {@link AirportData} closest first
+   */
+  @Override
+  public List<AirportData> getNearestAirports(double latitude, double longitude, int count) {
+    return airportKdTree.getNearest(latitude, longitude, count, null);
   }
 
   /**
@@ -87,16 +213,32 @@ public class AirportServiceImpl implements AirportService {
       convertedLatitude = Double.valueOf(latitude);
       convertedLongitude = Double.valueOf(longitude);
 
-      // If it was parsed correctly add a new airport to the system
-      airportDataMap.putIfAbsent(
-          iataCode,
-          new AirportData() {
-            {
-              setIata(iataCode);
-              setLatitude(convertedLatitude);
-              setLongitude(convertedLongitude);
-            }
-          });
+      // If it was parsed correctly add a new airport to the system, log it and index it, the index
+      // is updated inside of the compute so it can't interleave with a delete of the same airport
+      AirportData airportData = new AirportData();
+      airportData.setIata(iataCode);
+      airportData.setLatitude(convertedLatitude);
+      airportData.setLongitude(convertedLongitude);
+      AirportData published;
+      int change = writeAheadLog.beginChange();
+      try {
+        published =
+            airportDataMap.computeIfAbsent(
+                iataCode,
+                code -> {
+                  writeAheadLog.logAirportAdded(airportData);
+                  airportCoordinateTable.add(airportData);
+                  airportKdTree.add(airportData);
+                  return airportData;
+                });
+      } finally {
+        writeAheadLog.endChange(change);
+      }
+      // The cache is scanned after the compute so the stripe of the storage isn't held meanwhile,
+      // a query cached since the airport was indexed is evicted as well
+      if (published == airportData) {
+        radiusQueryCache.invalidateAdded(airportData);
+      }
     } catch (NumberFormatException e) {
       // If there's a number format exception there's a problem with the request!
       responseStatus = Status.BAD_REQUEST;
@@ -106,6 +248,60 @@ public class AirportServiceImpl implements AirportService {
     return responseStatus;
   }
 
+  /**
+   * Add a batch of airports, the airports whose code is already known are skipped. The indexes are
+   * built once for the whole batch, which is much cheaper than indexing the airports one by one,
+   * and only then are the airports published in the storage. An airport found in the storage is
+   * therefore always found by the radius and nearest queries as well. The batch isn't published
+   * atomically, readers may see some of its airports before the rest.
+   *
+   * @param airports the airports to add, with valid coordinates
+   * @return the airports that were added
+   */
+  @Override
+  public List<AirportData> addAirports(Collection<AirportData> airports) {
+    // The first airport of a code wins, like the adds one by one
+    Map<String, AirportData> candidates = new LinkedHashMap<>();
+    for (AirportData airportData : airports) {
+      if (!airportDataMap.containsKey(airportData.getIata())) {
+        candidates.putIfAbsent(airportData.getIata(), airportData);
+      }
+    }
+    if (candidates.isEmpty()) {
+      return new ArrayList<>();
+    }
+    airportCoordinateTable.addAll(candidates.values());
+    airportKdTree.addAll(candidates.values());
+    // Queries resolved from now on see the batch in the indexes
+    radiusQueryCache.clear();
+
+    List<AirportData> added = new ArrayList<>(candidates.size());
+    for (AirportData airportData : candidates.values()) {
+      AirportData published;
+      int change = writeAheadLog.beginChange();
+      try {
+        published =
+            airportDataMap.computeIfAbsent(
+                airportData.getIata(),
+                code -> {
+                  writeAheadLog.logAirportAdded(airportData);
+                  return airportData;
+                });
+      } finally {
+        writeAheadLog.endChange(change);
+      }
+      if (published == airportData) {
+        added.add(airportData);
+      } else {
+        // Another add of the code got in first, the indexes only drop this exact instance
+        airportCoordinateTable.remove(airportData);
+        airportKdTree.remove(airportData);
+      }
+    }
+    LOGGER.info("Added a batch of " + added.size() + " airports");
+    return added;
+  }
+
   /**
    * Delete an Airport from our System
    *
@@ -116,29 +312,39 @@ public class AirportServiceImpl implements AirportService {
   public Status deleteAirport(String iataCode) {
     Status responseStatus = Status.OK;
 
-    if (airportDataMap.containsKey(iataCode)) {
-      airportDataMap.remove(iataCode);
+    // The delete is logged inside of the compute so it's ordered with the adds of the same airport
+    AirportData[] removedHolder = new AirportData[1];
+    int change = writeAheadLog.beginChange();
+    try {
+      airportDataMap.computeIfPresent(
+          iataCode,
+          (code, airportData) -> {
+            writeAheadLog.logAirportDeleted(code);
+            removedHolder[0] = airportData;
+            return null;
+          });
+    } finally {
+      writeAheadLog.endChange(change);
+    }
+    AirportData removed = removedHolder[0];
+    if (removed != null) {
+      // The indexes only drop this exact instance, so a concurrent re-add is never lost
+      airportCoordinateTable.remove(removed);
+      airportKdTree.remove(removed);
+      radiusQueryCache.invalidateRemoved(removed);
+      // Dropped inside of a compute of the code, which serializes it with the appends of the
+      // updates, an update that found the airport before the delete doesn't append after it
+      atmosphericInformationMap.compute(
+          iataCode,
+          (code, current) -> {
+            observationHistory.remove(code);
+            rollingAggregates.remove(code);
+            return current;
+          });
     } else {
       responseStatus = Status.NOT_FOUND;
     }
 
     return responseStatus;
   }
-
-  /**
-   * Haversine distance between two airports.
-   *
-   * @param ad1 airport 1
-   * @param ad2 airport 2
-   * @return the distance in KM
-   */
-  private double calculateDistance(AirportData ad1, AirportData ad2) {
-    double deltaLat = Math.toRadians(ad2.latitude - ad1.latitude);
-    double deltaLon = Math.toRadians(ad2.longitude - ad1.longitude);
-    double a =
-        Math.pow(Math.sin(deltaLat / 2), 2)
-            + Math.pow(Math.sin(deltaLon / 2), 2) * Math.cos(ad1.latitude) * Math.cos(ad2.latitude);
-    double c = 2 * Math.asin(Math.sqrt(a));
-    return ConstantHelper.R * c;
-  }
 }
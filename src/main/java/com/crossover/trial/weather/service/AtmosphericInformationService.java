@@ -3,6 +3,9 @@ package com.crossover.trial.weather.service;
 import com.crossover.trial.weather.model.AirportData;
 import com.crossover.trial.weather.model.AtmosphericInformation;
 import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.web.Aggregate;
+import com.crossover.trial.weather.web.Observation;
 import java.util.List;
 import javax.ws.rs.core.Response.Status;
 import org.glassfish.jersey.spi.Contract;
@@ -61,4 +64,39 @@ public interface AtmosphericInformationService {
    */
   public Status updateAtmosphericInformationForAirport(
       String iataCode, String pointType, DataPoint dataPoint);
+
+  /**
+   * Apply a data point logged by the write-ahead log with its original update time, the update is
+   * not logged again.
+   *
+   * @param iataCode the airport to update it's atmospheric information
+   * @param pointType the data point type
+   * @param dataPoint the actual data point
+   * @param updateTime the time of the update in milliseconds since UTC epoch
+   * @return Status code indicating the state of the update
+   */
+  public Status replayAtmosphericInformationUpdate(
+      String iataCode, DataPointType pointType, DataPoint dataPoint, long updateTime);
+
+  /**
+   * Retrieve the observations of an airport for the given point type collected in a time window
+   *
+   * @param iataCode the three letter airport code
+   * @param pointType the data point type
+   * @param from the start of the window, inclusive, in milliseconds since UTC epoch
+   * @param to the end of the window, inclusive, in milliseconds since UTC epoch
+   * @return a list of {@link Observation} oldest first, or null if the airport is not found
+   */
+  public List<Observation> getObservationHistory(
+      String iataCode, DataPointType pointType, long from, long to);
+
+  /**
+   * Retrieve the aggregates of the data point means of an airport for the given point type over
+   * every configured window ending now
+   *
+   * @param iataCode the three letter airport code
+   * @param pointType the data point type
+   * @return a list of {@link Aggregate} per window, or null if the airport is not found
+   */
+  public List<Aggregate> getAggregates(String iataCode, DataPointType pointType);
 }
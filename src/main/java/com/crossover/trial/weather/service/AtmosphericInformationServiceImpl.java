@@ -2,14 +2,22 @@ package com.crossover.trial.weather.service;
 
 import com.crossover.trial.weather.model.AirportData;
 import com.crossover.trial.weather.model.AtmosphericInformation;
-import com.crossover.trial.weather.model.storage.ConcurrentAtmosphericInfoStorage;
 import com.crossover.trial.weather.model.DataPoint;
-import com.crossover.trial.weather.utils.ReflectionUtils;
-import java.lang.reflect.InvocationTargetException;
+import com.crossover.trial.weather.model.DataPointType;
+import com.crossover.trial.weather.model.storage.AirportDataStorage;
+import com.crossover.trial.weather.model.storage.AtmosphericInfoStorage;
+import com.crossover.trial.weather.model.storage.FreshnessTracker;
+import com.crossover.trial.weather.model.storage.ObservationHistory;
+import com.crossover.trial.weather.model.storage.RollingAggregates;
+import com.crossover.trial.weather.persistence.WriteAheadLog;
+import com.crossover.trial.weather.utils.DataPointHandlers;
+import com.crossover.trial.weather.web.Aggregate;
+import com.crossover.trial.weather.web.Observation;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.ws.rs.core.Response;
+import javax.inject.Inject;
 import javax.ws.rs.core.Response.Status;
 
 /**
@@ -25,11 +33,68 @@ public class AtmosphericInformationServiceImpl implements AtmosphericInformation
       Logger.getLogger(AtmosphericInformationServiceImpl.class.getName());
 
   /** Concurrent Storage singleton for the Atmospheric Information */
-  private ConcurrentAtmosphericInfoStorage<String, AtmosphericInformation>
-      atmosphericInformationMap;
+  private AtmosphericInfoStorage atmosphericInformationMap;
 
+  /** Concurrent Storage singleton for the airport data, used to check the airport exists */
+  private AirportDataStorage airportDataMap;
+
+  /** History singleton of the last observations of every airport */
+  private ObservationHistory observationHistory;
+
+  /** Sliding window aggregates singleton of every airport */
+  private RollingAggregates rollingAggregates;
+
+  /** Tracker singleton of the atmospheric information updated within the last day */
+  private FreshnessTracker freshnessTracker;
+
+  /** Sweeper singleton evicting the stale atmospheric information */
+  private AtmosphericInformationSweeper atmosphericInformationSweeper;
+
+  /** Write-ahead log singleton of the accepted data points */
+  private WriteAheadLog writeAheadLog;
+
+  /**
+   * Create the service on the shared storages, for the tests and the benchmarks. The server gets
+   * its instance from the {@link com.crossover.trial.weather.WeatherBinder}.
+   */
   public AtmosphericInformationServiceImpl() {
-    atmosphericInformationMap = ConcurrentAtmosphericInfoStorage.getInstance();
+    this(
+        AtmosphericInfoStorage.getInstance(),
+        AirportDataStorage.getInstance(),
+        ObservationHistory.getInstance(),
+        RollingAggregates.getInstance(),
+        FreshnessTracker.getInstance(),
+        AtmosphericInformationSweeper.getInstance(),
+        WriteAheadLog.getInstance());
+  }
+
+  /**
+   * Create the service on the given storages, the server binds a single instance of the service.
+   *
+   * @param atmosphericInformationMap storage of the atmospheric information
+   * @param airportDataMap storage of the airport data
+   * @param observationHistory history of the observations
+   * @param rollingAggregates aggregates of the observations
+   * @param freshnessTracker tracker of the information updated within the last day
+   * @param atmosphericInformationSweeper sweeper evicting the stale information
+   * @param writeAheadLog log of the accepted data points
+   */
+  @Inject
+  public AtmosphericInformationServiceImpl(
+      AtmosphericInfoStorage atmosphericInformationMap,
+      AirportDataStorage airportDataMap,
+      ObservationHistory observationHistory,
+      RollingAggregates rollingAggregates,
+      FreshnessTracker freshnessTracker,
+      AtmosphericInformationSweeper atmosphericInformationSweeper,
+      WriteAheadLog writeAheadLog) {
+    this.atmosphericInformationMap = atmosphericInformationMap;
+    this.airportDataMap = airportDataMap;
+    this.observationHistory = observationHistory;
+    this.rollingAggregates = rollingAggregates;
+    this.freshnessTracker = freshnessTracker;
+    this.atmosphericInformationSweeper = atmosphericInformationSweeper;
+    this.writeAheadLog = writeAheadLog;
   }
 
   /**
@@ -53,15 +118,15 @@ public class AtmosphericInformationServiceImpl implements AtmosphericInformation
   @Override
   public List<AtmosphericInformation> getAtmosphericInformationForAirports(
       List<AirportData> airportData) {
-    // return a list of atmospheric information of the given airports
-    return new ArrayList<AtmosphericInformation>() {
-      {
-        airportData
-            .stream()
-            .filter(airport -> atmosphericInformationMap.containsKey(airport.getIata()))
-            .forEach(airport -> add(atmosphericInformationMap.get(airport.getIata())));
+    // A single get per airport, the sweeper may remove an entry between two lookups
+    List<AtmosphericInformation> atmosphericInformation = new ArrayList<>(airportData.size());
+    for (AirportData airport : airportData) {
+      AtmosphericInformation information = atmosphericInformationMap.get(airport.getIata());
+      if (information != null) {
+        atmosphericInformation.add(information);
       }
-    };
+    }
+    return atmosphericInformation;
   }
 
   /**
@@ -88,9 +153,13 @@ public class AtmosphericInformationServiceImpl implements AtmosphericInformation
      * Insert a new association of airport iataCode with an Atmospheric information in the case the
      * atmospheric information is not given just create an empty association
      */
-    atmosphericInformationMap.putIfAbsent(
-        iataCode,
-        atmosphericInformation != null ? atmosphericInformation : new AtmosphericInformation());
+    if (atmosphericInformation == null) {
+      atmosphericInformation = new AtmosphericInformation();
+    }
+    if (atmosphericInformationMap.putIfAbsent(iataCode, atmosphericInformation) == null
+        && atmosphericInformation.getLastUpdateTime() > 0) {
+      freshnessTracker.update(0, atmosphericInformation.getLastUpdateTime());
+    }
   }
 
   /**
@@ -105,37 +174,122 @@ public class AtmosphericInformationServiceImpl implements AtmosphericInformation
   public Status updateAtmosphericInformationForAirport(
       String iataCode, String pointType, DataPoint dataPoint) {
 
-    // Get the lower case of the pointType
-    pointType = pointType.toLowerCase();
-    // Set an OK status code
-    Status responseStatus = Response.Status.OK;
+    // Resolve the point type, unknown types are a bad request
+    DataPointType dataPointType = DataPointType.fromName(pointType);
+    if (dataPointType == null || dataPoint == null) {
+      if (LOGGER.isLoggable(Level.FINE)) {
+        LOGGER.fine("Bad request of the data point type " + iataCode + " - " + pointType);
+      }
+      return Status.BAD_REQUEST;
+    }
+
+    // There's no resource to update for an unknown airport code
+    if (!airportDataMap.containsKey(iataCode)) {
+      if (LOGGER.isLoggable(Level.FINE)) {
+        LOGGER.fine("No such airport data found on the system " + iataCode);
+      }
+      return Status.NOT_FOUND;
+    }
+
+    update(iataCode, dataPointType, dataPoint, System.currentTimeMillis());
+    return Status.OK;
+  }
+
+  /**
+   * Apply a data point logged by the write-ahead log with its original update time, the update is
+   * not logged again.
+   *
+   * @param iataCode the airport to update it's atmospheric information
+   * @param pointType the data point type
+   * @param dataPoint the actual data point
+   * @param updateTime the time of the update in milliseconds since UTC epoch
+   * @return Status code indicating the state of the update
+   */
+  @Override
+  public Status replayAtmosphericInformationUpdate(
+      String iataCode, DataPointType pointType, DataPoint dataPoint, long updateTime) {
+    if (!airportDataMap.containsKey(iataCode)) {
+      return Status.NOT_FOUND;
+    }
+    update(iataCode, pointType, dataPoint, updateTime);
+    return Status.OK;
+  }
 
+  /** Update the atmospheric information of a known airport */
+  private void update(
+      String iataCode, DataPointType dataPointType, DataPoint dataPoint, long updateTime) {
+    // Publish a new snapshot of the atmospheric information, the compute serializes the writers of
+    // the same airport so no update is lost while readers keep reading the previous snapshot.
+    // The information is created on the first update and out of range values are ignored.
+    // The accepted data points are logged, appended to the history and the aggregates and move the
+    // airport in the freshness tracker inside the compute as well, so they have a single writer
+    // per airport and follow the order of the updates.
+    AtmosphericInformation stored;
+    int change = writeAheadLog.beginChange();
     try {
-      // Get the atmospheric information corresponding to the iataCode
-      AtmosphericInformation atmosphericInformation =
-          atmosphericInformationMap.getOrDefault(iataCode, new AtmosphericInformation());
-      // Set the property to the atmospheric information.
-      ReflectionUtils.setPropertyToAtmosphericInfo(atmosphericInformation, pointType, dataPoint);
-      // Set the atmospheric information for the airport for the first time
-      atmosphericInformationMap.putIfAbsent(iataCode, atmosphericInformation);
-    } catch (NoSuchMethodException e) {
-      // If there's a no such method exception the pointType is incorrect so we return bad request
-      responseStatus = Status.BAD_REQUEST;
-      LOGGER.info("Bad request of the data point type " + iataCode + " - " + pointType);
-    } catch (IllegalAccessException e) {
-      // The pointType is incorrect so we return bad request
-      responseStatus = Status.BAD_REQUEST;
-      LOGGER.info("Invalid data point type for atmospheric information " + pointType);
-      e.printStackTrace();
-    } catch (InvocationTargetException e) {
-      /**
-       * If there's a null pointer exception it means that there's no atmospheric information for
-       * the given airport code, a 404 not found is returned because there's no resource for the
-       * given code
-       */
-      responseStatus = Status.NOT_FOUND;
-      LOGGER.info("No such airport data found on the system " + iataCode);
+      stored =
+          atmosphericInformationMap.compute(
+              iataCode,
+              (code, current) -> {
+                // The airport may have been deleted since it was checked, its history is dropped
+                // inside of a compute of the code as well so nothing is appended after that
+                if (!airportDataMap.containsKey(code)) {
+                  return current;
+                }
+                AtmosphericInformation base =
+                    current != null ? current : new AtmosphericInformation();
+                AtmosphericInformation updated =
+                    DataPointHandlers.apply(base, dataPointType, dataPoint, updateTime);
+                if (updated != base) {
+                  writeAheadLog.logDataPointUpdated(code, dataPointType, dataPoint, updateTime);
+                  freshnessTracker.update(base.getLastUpdateTime(), updateTime);
+                  observationHistory.append(code, dataPointType, dataPoint, updateTime);
+                  rollingAggregates.add(code, dataPointType, updateTime, dataPoint.getMean());
+                }
+                return updated;
+              });
+    } finally {
+      writeAheadLog.endChange(change);
+    }
+    // Only an airport with readings needs an expiry
+    if (stored != null && stored.getLastUpdateTime() == updateTime) {
+      atmosphericInformationSweeper.schedule(iataCode, updateTime);
+    }
+  }
+
+  /**
+   * Retrieve the observations of an airport for the given point type collected in a time window
+   *
+   * @param iataCode the three letter airport code
+   * @param pointType the data point type
+   * @param from the start of the window, inclusive, in milliseconds since UTC epoch
+   * @param to the end of the window, inclusive, in milliseconds since UTC epoch
+   * @return a list of {@link Observation} oldest first, or null if the airport is not found
+   */
+  @Override
+  public List<Observation> getObservationHistory(
+      String iataCode, DataPointType pointType, long from, long to) {
+    if (!airportDataMap.containsKey(iataCode)) {
+      return null;
+    }
+    List<Observation> observations = observationHistory.getWindow(iataCode, pointType, from, to);
+    // A known airport without observations yet has an empty history
+    return observations != null ? observations : new ArrayList<>();
+  }
+
+  /**
+   * Retrieve the aggregates of the data point means of an airport for the given point type over
+   * every configured window ending now
+   *
+   * @param iataCode the three letter airport code
+   * @param pointType the data point type
+   * @return a list of {@link Aggregate} per window, or null if the airport is not found
+   */
+  @Override
+  public List<Aggregate> getAggregates(String iataCode, DataPointType pointType) {
+    if (!airportDataMap.containsKey(iataCode)) {
+      return null;
     }
-    return responseStatus;
+    return rollingAggregates.getAggregates(iataCode, pointType, System.currentTimeMillis());
   }
 }
@@ -0,0 +1,225 @@
+package com.crossover.trial.weather.service;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.storage.AtmosphericInfoStorage;
+import com.crossover.trial.weather.model.storage.FreshnessTracker;
+import com.crossover.trial.weather.utils.ConstantHelper;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+
+/**
+ * Evicts the atmospheric information of the airports that stopped sending updates. The time to
+ * live is given by the weather.atmospheric.ttl system property in minutes, hours or days, like 30d,
+ * and the eviction is off when it's not set.
+ *
+ * <p>Every updated airport gets a single expiry in a {@link DelayQueue} ordered by its last update
+ * time plus the time to live, later updates don't add more. A daemon thread waits for the next
+ * expiry and checks the airport again, an airport updated meanwhile is scheduled again for its new
+ * expiry and a stale one is removed from the storage, so its readings leave the radius responses
+ * until its collector comes back. Nothing scans the storage and the collectors never wait for the
+ * sweeper.
+ *
+ * @author Victor Polanco
+ */
+public class AtmosphericInformationSweeper {
+
+  /** Logger for all logs inside this service */
+  public static final Logger LOGGER =
+      Logger.getLogger(AtmosphericInformationSweeper.class.getName());
+
+  /** Time to live of the readings in milliseconds, 0 when the eviction is off */
+  private final long timeToLive;
+
+  private final AtmosphericInfoStorage atmosphericInformationMap;
+
+  private final FreshnessTracker freshnessTracker;
+
+  private final DelayQueue<Expiry> expiries;
+
+  /** Airports with an expiry in the queue */
+  private final Set<String> scheduled;
+
+  private final LongAdder evicted;
+
+  /**
+   * Create a sweeper of the configured time to live on the given storage, the server binds a single
+   * instance of the sweeper.
+   *
+   * @param atmosphericInformationMap storage of the atmospheric information to evict from
+   * @param freshnessTracker tracker of the information updated within the last day
+   */
+  @Inject
+  public AtmosphericInformationSweeper(
+      AtmosphericInfoStorage atmosphericInformationMap, FreshnessTracker freshnessTracker) {
+    this(configuredTimeToLive(), atmosphericInformationMap, freshnessTracker);
+  }
+
+  /**
+   * Create a sweeper on the shared storage, for the tests.
+   *
+   * @param timeToLive the time to live of the readings in milliseconds, 0 turns the eviction off
+   */
+  AtmosphericInformationSweeper(long timeToLive) {
+    this(timeToLive, AtmosphericInfoStorage.getInstance(), FreshnessTracker.getInstance());
+  }
+
+  /**
+   * Create a sweeper, the eviction thread starts right away when the time to live is positive.
+   *
+   * @param timeToLive the time to live of the readings in milliseconds, 0 turns the eviction off
+   * @param atmosphericInformationMap storage of the atmospheric information to evict from
+   * @param freshnessTracker tracker of the information updated within the last day
+   */
+  private AtmosphericInformationSweeper(
+      long timeToLive,
+      AtmosphericInfoStorage atmosphericInformationMap,
+      FreshnessTracker freshnessTracker) {
+    this.timeToLive = timeToLive;
+    this.atmosphericInformationMap = atmosphericInformationMap;
+    this.freshnessTracker = freshnessTracker;
+    expiries = new DelayQueue<>();
+    scheduled = ConcurrentHashMap.newKeySet();
+    evicted = new LongAdder();
+    if (timeToLive > 0) {
+      LOGGER.log(Level.INFO, "Evicting the atmospheric information after " + timeToLive + "ms");
+      Thread sweeper = new Thread(this::sweep, "weather-ttl-sweeper");
+      sweeper.setDaemon(true);
+      sweeper.start();
+    }
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the AtmosphericInformationSweeper.
+   */
+  public static AtmosphericInformationSweeper getInstance() {
+    return SweeperHolder.INSTANCE;
+  }
+
+  /**
+   * Schedule the expiry of an updated airport, unless it already has one.
+   *
+   * @param iataCode the airport code
+   * @param lastUpdateTime the time of the update in milliseconds since UTC epoch
+   */
+  public void schedule(String iataCode, long lastUpdateTime) {
+    if (timeToLive > 0 && scheduled.add(iataCode)) {
+      expiries.offer(new Expiry(iataCode, lastUpdateTime + timeToLive));
+    }
+  }
+
+  /**
+   * Get the counters of the sweeper.
+   *
+   * @return {@link Map} with the time to live, the evicted airports and the scheduled expiries
+   */
+  public Map<String, Long> getStatistics() {
+    Map<String, Long> statistics = new HashMap<>();
+    statistics.put("ttl", timeToLive);
+    statistics.put("evicted", evicted.sum());
+    statistics.put("scheduled", (long) scheduled.size());
+    return statistics;
+  }
+
+  /** Loop of the sweeper thread */
+  private void sweep() {
+    while (true) {
+      Expiry expiry;
+      try {
+        expiry = expiries.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      // Unmark first, an update racing with the check schedules the airport itself
+      scheduled.remove(expiry.iataCode);
+      expire(expiry.iataCode, System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Remove the atmospheric information of an airport if it's stale, otherwise schedule it again
+   * for its current expiry.
+   *
+   * @param iataCode the airport code
+   * @param now the current time in milliseconds since UTC epoch
+   */
+  void expire(String iataCode, long now) {
+    long[] lastUpdateTime = new long[1];
+    // The removal is conditional on the same snapshot, an update never gets lost
+    atmosphericInformationMap.computeIfPresent(
+        iataCode,
+        (code, current) -> {
+          lastUpdateTime[0] = current.getLastUpdateTime();
+          // An airport without readings has nothing to evict
+          if (current.getLastUpdateTime() == 0 || current.getLastUpdateTime() + timeToLive > now) {
+            return current;
+          }
+          freshnessTracker.remove(current.getLastUpdateTime());
+          evicted.increment();
+          return null;
+        });
+    if (lastUpdateTime[0] == 0) {
+      return;
+    }
+    if (lastUpdateTime[0] + timeToLive > now) {
+      schedule(iataCode, lastUpdateTime[0]);
+    } else if (LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.fine("Evicted the atmospheric information of " + iataCode);
+    }
+  }
+
+  /** The expiry of an airport */
+  private static class Expiry implements Delayed {
+    private final String iataCode;
+    private final long deadline;
+
+    private Expiry(String iataCode, long deadline) {
+      this.iataCode = iataCode;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(deadline, ((Expiry) other).deadline);
+    }
+  }
+
+  /** The time to live of the weather.atmospheric.ttl system property, 0 when it's not set */
+  private static long configuredTimeToLive() {
+    String timeToLive = System.getProperty("weather.atmospheric.ttl");
+    if (timeToLive == null) {
+      return 0;
+    }
+    try {
+      return ConstantHelper.parseDuration(timeToLive);
+    } catch (IllegalArgumentException e) {
+      LOGGER.log(Level.WARNING, "Invalid time to live " + timeToLive + ", eviction is off", e);
+      return 0;
+    }
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class SweeperHolder {
+    private static final AtmosphericInformationSweeper INSTANCE =
+        new AtmosphericInformationSweeper(
+            AtmosphericInfoStorage.getInstance(), FreshnessTracker.getInstance());
+  }
+}
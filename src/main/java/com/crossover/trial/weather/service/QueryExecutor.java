@@ -0,0 +1,158 @@
+package com.crossover.trial.weather.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Runs the asynchronous queries on their own bounded pool, so a burst of expensive queries waits
+ * for these threads instead of taking every worker of the server away from the collectors. The
+ * pool is configured with system properties:
+ *
+ * <ul>
+ *   <li>weather.query.threads, the threads running the queries, one per core by default
+ *   <li>weather.query.queue, the queries waiting for a thread, 64 by default
+ *   <li>weather.query.timeout, the milliseconds a query may wait and run, 5000 by default
+ *   <li>weather.query.retry, the seconds of the Retry-After of the rejected queries, 1 by default
+ * </ul>
+ *
+ * <p>A query that finds the queue full is answered right away with a 503 and a Retry-After, and so
+ * is one that times out, so the latency of the queries is bounded by the timeout instead of
+ * growing with the backlog. A query that times out while queued is dropped without running.
+ *
+ * @author Victor Polanco
+ */
+public class QueryExecutor {
+
+  /** Logger for all logs inside this service */
+  public static final Logger LOGGER = Logger.getLogger(QueryExecutor.class.getName());
+
+  private final ThreadPoolExecutor executor;
+
+  private final long timeout;
+
+  private final int retryAfter;
+
+  private final LongAdder rejected;
+
+  private final LongAdder timedOut;
+
+  /**
+   * Create an executor with its threads started on demand.
+   *
+   * @param threads amount of threads running the queries
+   * @param queueLimit amount of queries waiting for a thread
+   * @param timeout milliseconds a query may wait and run
+   * @param retryAfter seconds the rejected clients are told to wait
+   */
+  QueryExecutor(int threads, int queueLimit, long timeout, int retryAfter) {
+    AtomicInteger count = new AtomicInteger();
+    executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueLimit),
+            runnable -> {
+              Thread thread = new Thread(runnable, "weather-query-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.timeout = timeout;
+    this.retryAfter = retryAfter;
+    rejected = new LongAdder();
+    timedOut = new LongAdder();
+    LOGGER.log(
+        Level.INFO,
+        "Running the queries on " + threads + " threads, " + queueLimit + " queued at most");
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the QueryExecutor.
+   */
+  public static QueryExecutor getInstance() {
+    return ExecutorHolder.INSTANCE;
+  }
+
+  /**
+   * Run a query and resume the response with its result, or with a 503 if the queue is full or the
+   * query times out.
+   *
+   * @param asyncResponse the suspended response of the query
+   * @param query builds the response, it runs on a thread of the executor
+   */
+  public void submit(AsyncResponse asyncResponse, Supplier<Response> query) {
+    asyncResponse.setTimeoutHandler(
+        response -> {
+          timedOut.increment();
+          response.resume(unavailable());
+        });
+    asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+    try {
+      executor.execute(
+          () -> {
+            // Nobody waits for a query that timed out in the queue
+            if (asyncResponse.isDone()) {
+              return;
+            }
+            try {
+              asyncResponse.resume(query.get());
+            } catch (RuntimeException e) {
+              asyncResponse.resume(e);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      asyncResponse.resume(unavailable());
+    }
+  }
+
+  /**
+   * Get the counters of the executor.
+   *
+   * @return {@link Map} with the active and queued queries, and the rejected and timed out ones
+   */
+  public Map<String, Long> getStatistics() {
+    Map<String, Long> statistics = new HashMap<>();
+    statistics.put("active", (long) executor.getActiveCount());
+    statistics.put("queued", (long) executor.getQueue().size());
+    statistics.put("rejected", rejected.sum());
+    statistics.put("timed_out", timedOut.sum());
+    return statistics;
+  }
+
+  /** Stop the threads, the queued queries are dropped */
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private Response unavailable() {
+    return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, retryAfter)
+        .build();
+  }
+
+  /** Private static inner class holder of the instance of the {@link QueryExecutor} */
+  private static class ExecutorHolder {
+    private static final QueryExecutor INSTANCE =
+        new QueryExecutor(
+            Integer.getInteger("weather.query.threads", Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger("weather.query.queue", 64),
+            Long.getLong("weather.query.timeout", 5000),
+            Integer.getInteger("weather.query.retry", 1));
+  }
+}
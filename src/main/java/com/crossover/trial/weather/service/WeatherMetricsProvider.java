@@ -1,26 +1,28 @@
 package com.crossover.trial.weather.service;
 
 import com.crossover.trial.weather.model.AirportData;
-import com.crossover.trial.weather.model.AtmosphericInformation;
-import com.crossover.trial.weather.model.storage.ConcurrentAirportDataStorage;
-import com.crossover.trial.weather.model.storage.ConcurrentAtmosphericInfoStorage;
-import com.crossover.trial.weather.utils.ConstantHelper;
-import com.crossover.trial.weather.utils.GsonFactory;
+import com.crossover.trial.weather.model.storage.AirportDataStorage;
+import com.crossover.trial.weather.model.storage.FreshnessTracker;
+import com.crossover.trial.weather.model.storage.IataKeyedMap;
+import com.crossover.trial.weather.model.storage.RadiusQueryCache;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.function.ObjDoubleConsumer;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import javax.inject.Inject;
 
 /**
  * Weather metrics provider, used to recollect data on all the services, this is used in all
  * operations and retrieve health and status information.
  *
+ * <p>The request frequencies are counted with a {@link LongAdder} per airport and per radius, so
+ * concurrent queries for the same airport increment striped cells instead of racing on a boxed
+ * value. The snapshots for the ping iterate the maps without locking the writers.
+ *
  * @author Victor Polanco.
  */
 public class WeatherMetricsProvider {
@@ -28,67 +30,130 @@ public class WeatherMetricsProvider {
   // Logger for the metrics class.
   public static final Logger LOGGER = Logger.getLogger("Weather Metrics");
 
-  /** Concurrent mappings of the frequencies of {@link AirportData} and radius */
-  private ConcurrentHashMap<String, Integer> airportDataMetrics;
+  /** Concurrent mappings of the frequencies of {@link AirportData}, keyed by the packed codes */
+  private IataKeyedMap<LongAdder> airportDataMetrics;
+
+  /** Radius frequencies, keyed by the radius truncated to whole km */
+  private ConcurrentHashMap<Integer, LongAdder> radiusMetrics;
+
+  /** Storage of the airport data whose airports are counted */
+  private AirportDataStorage airportDataMap;
+
+  /** Cache of the radius queries */
+  private RadiusQueryCache radiusQueryCache;
 
-  private ConcurrentHashMap<Integer, Integer> radiusMetrics;
+  /** Sweeper evicting the stale atmospheric information */
+  private AtmosphericInformationSweeper atmosphericInformationSweeper;
 
-  private WeatherMetricsProvider() {
+  /** Executor of the asynchronous queries */
+  private QueryExecutor queryExecutor;
+
+  /** Tracker of the atmospheric information updated within the last day */
+  private FreshnessTracker freshnessTracker;
+
+  /**
+   * Create the metrics of the given services and storages, the server binds a single instance of
+   * the provider.
+   *
+   * @param airportDataMap storage of the airport data
+   * @param radiusQueryCache cache of the radius queries
+   * @param atmosphericInformationSweeper sweeper evicting the stale information
+   * @param queryExecutor executor of the asynchronous queries
+   * @param freshnessTracker tracker of the information updated within the last day
+   */
+  @Inject
+  public WeatherMetricsProvider(
+      AirportDataStorage airportDataMap,
+      RadiusQueryCache radiusQueryCache,
+      AtmosphericInformationSweeper atmosphericInformationSweeper,
+      QueryExecutor queryExecutor,
+      FreshnessTracker freshnessTracker) {
     LOGGER.log(Level.INFO, "Instantiating a new metrics object");
-    this.airportDataMetrics = new ConcurrentHashMap<>();
+    this.airportDataMap = airportDataMap;
+    this.radiusQueryCache = radiusQueryCache;
+    this.atmosphericInformationSweeper = atmosphericInformationSweeper;
+    this.queryExecutor = queryExecutor;
+    this.freshnessTracker = freshnessTracker;
+    this.airportDataMetrics = new IataKeyedMap<>();
     this.radiusMetrics = new ConcurrentHashMap<>();
   }
 
   /** Dummy method to initiate the metrics object with the hard coded airports */
   public void initMetrics() {
-    ConcurrentAirportDataStorage<String, Integer> storage =
-        ConcurrentAirportDataStorage.getInstance();
-    LOGGER.log(Level.INFO, "Refreshing the metrics with all airports: \n" + storage.keySet());
-    storage.keySet().forEach(entry -> airportDataMetrics.put(entry, 0));
+    // A restored storage may hold millions of airports, so only their count is logged
+    LOGGER.log(Level.INFO, "Refreshing the metrics with " + airportDataMap.size() + " airports");
+    airportDataMap.keySet().forEach(entry -> airportDataMetrics.put(entry, new LongAdder()));
   }
 
   /**
    * Get the metrics of all radius that were requested during the history of the airport weather
    * application.
    *
-   * @return {@link HashMap<Integer, Integer>} of the metrics.
+   * @return {@link HashMap<Integer, Long>} of the metrics.
    */
-  public HashMap<Integer, Integer> getRadiusMetrics() {
-    LOGGER.log(Level.INFO, "Getting the radius metrics: \n" + GsonFactory.toJson(radiusMetrics));
-    return new HashMap<>(radiusMetrics);
+  public HashMap<Integer, Long> getRadiusMetrics() {
+    HashMap<Integer, Long> snapshot = snapshot(radiusMetrics);
+    if (LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.log(Level.FINE, "Getting the radius metrics: " + snapshot);
+    }
+    return snapshot;
   }
 
   /**
    * Get the metrics of all airport that were requested/modified during the history of the airport
    * weather application.
    *
-   * @return {@link HashMap<String, Integer>} of the metrics.
+   * @return {@link HashMap<String, Long>} of the metrics.
+   */
+  public HashMap<String, Long> getAirportMetrics() {
+    HashMap<String, Long> snapshot = snapshot(airportDataMetrics);
+    if (LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.log(Level.FINE, "Getting the airport metrics: " + snapshot);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Get the hit and miss counters of the radius query cache.
+   *
+   * @return {@link Map} with the hits, misses and size of the cache.
    */
-  public HashMap<String, Integer> getAirportMetrics() {
-    LOGGER.log(
-        Level.INFO, "Getting the airport metrics: \n" + GsonFactory.toJson(airportDataMetrics));
-    return new HashMap<>(airportDataMetrics);
+  public Map<String, Long> getRadiusCacheMetrics() {
+    return radiusQueryCache.getStatistics();
   }
 
   /**
-   * Get the data size of all atmospheric information held in the system.
+   * Get the counters of the eviction of the stale atmospheric information.
+   *
+   * @return {@link Map} with the time to live, the evicted airports and the scheduled expiries.
+   */
+  public Map<String, Long> getEvictionMetrics() {
+    return atmosphericInformationSweeper.getStatistics();
+  }
+
+  /**
+   * Get the load of the executor of the asynchronous queries.
+   *
+   * @return {@link Map} with the active, queued, rejected and timed out queries.
+   */
+  public Map<String, Long> getQueryExecutorMetrics() {
+    return queryExecutor.getStatistics();
+  }
+
+  /**
+   * Get the data size of all atmospheric information held in the system, the amount of airports
+   * updated within the last day.
    *
    * @return the data size of the atmospheric information list.
    */
   public long getAtmosphericInfoDataSize() {
-    // Get the instance of the concurrent atmospheric information storage.
-    ConcurrentAtmosphericInfoStorage<String, AtmosphericInformation> storage =
-        ConcurrentAtmosphericInfoStorage.getInstance();
-    LOGGER.log(Level.INFO, "Getting the atmospheric data size " + storage.entrySet());
-    // Get the count of the updated atmospheric information that were updated no later than one day
-    return storage
-        .entrySet()
-        .stream()
-        .filter(
-            entry ->
-                entry.getValue().getLastUpdateTime()
-                    > System.currentTimeMillis() - ConstantHelper.ONE_DAY)
-        .count();
+    // Read the count of the atmospheric information updated no later than one day, maintained on
+    // every update so the storage is never scanned
+    long dataSize = freshnessTracker.getFreshCount(System.currentTimeMillis());
+    if (LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.log(Level.FINE, "Getting the atmospheric data size " + dataSize);
+    }
+    return dataSize;
   }
 
   /**
@@ -98,9 +163,7 @@ public class WeatherMetricsProvider {
    * @param iataCode 3 digit code of the airport.
    */
   public void updateAirportMetrics(String iataCode) {
-    LOGGER.log(Level.INFO, "Updating airport metrics\n");
-    Integer newValue = airportDataMetrics.getOrDefault(iataCode, 0) + 1;
-    airportDataMetrics.put(iataCode, newValue);
+    counterOf(airportDataMetrics, iataCode).increment();
   }
 
   /**
@@ -110,18 +173,39 @@ public class WeatherMetricsProvider {
    * @param radius in km.
    */
   public void updateRadiusMetrics(Double radius) {
-    LOGGER.log(Level.INFO, "Updating radius metrics\n");
-    Integer newValue = radiusMetrics.getOrDefault(radius, 0) + 1;
-    radiusMetrics.put(radius.intValue(), newValue);
+    counterOf(radiusMetrics, radius.intValue()).increment();
+  }
+
+  /** Get the counter of a key, the common case of a known key doesn't lock the map bin */
+  private static <K> LongAdder counterOf(ConcurrentMap<K, LongAdder> metrics, K key) {
+    LongAdder counter = metrics.get(key);
+    if (counter == null) {
+      counter = metrics.computeIfAbsent(key, k -> new LongAdder());
+    }
+    return counter;
+  }
+
+  /** Sum the counters, the iteration is weakly consistent and never blocks the updates */
+  private static <K> HashMap<K, Long> snapshot(ConcurrentMap<K, LongAdder> metrics) {
+    HashMap<K, Long> snapshot = new HashMap<>();
+    metrics.forEach((key, counter) -> snapshot.put(key, counter.sum()));
+    return snapshot;
   }
 
   /** Private inner class holder of the instance of the {@link WeatherMetricsProvider} */
   private static class MetricsHolder {
-    private static WeatherMetricsProvider INSTANCE = new WeatherMetricsProvider();
+    private static final WeatherMetricsProvider INSTANCE =
+        new WeatherMetricsProvider(
+            AirportDataStorage.getInstance(),
+            RadiusQueryCache.getInstance(),
+            AtmosphericInformationSweeper.getInstance(),
+            QueryExecutor.getInstance(),
+            FreshnessTracker.getInstance());
   }
 
   /**
-   * Get the metrics provider instance currently active on the system.
+   * Get the shared metrics provider, for the tests and the benchmarks. The server gets its instance
+   * from the {@link com.crossover.trial.weather.WeatherBinder}.
    *
    * @return {@link WeatherMetricsProvider} instance.
    */
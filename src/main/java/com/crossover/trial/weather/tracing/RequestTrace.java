@@ -0,0 +1,67 @@
+package com.crossover.trial.weather.tracing;
+
+/**
+ * A sampled request, what was requested, how it was answered and how long it took.
+ *
+ * @author Victor Polanco
+ */
+public class RequestTrace {
+
+  /** the time the request was received, in milliseconds since UTC epoch */
+  private final long timestamp;
+
+  /** the HTTP method */
+  private final String method;
+
+  /** the matched path template, keeps the path parameters out of the trace */
+  private final String pathTemplate;
+
+  /** the HTTP status code of the response */
+  private final int status;
+
+  /** the time spent handling the request, in nanoseconds */
+  private final long latency;
+
+  public RequestTrace(
+      long timestamp, String method, String pathTemplate, int status, long latency) {
+    this.timestamp = timestamp;
+    this.method = method;
+    this.pathTemplate = pathTemplate;
+    this.status = status;
+    this.latency = latency;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public String getPathTemplate() {
+    return pathTemplate;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public long getLatency() {
+    return latency;
+  }
+
+  @Override
+  public String toString() {
+    return timestamp
+        + " "
+        + method
+        + " "
+        + pathTemplate
+        + " "
+        + status
+        + " "
+        + latency / 1000
+        + "us";
+  }
+}
@@ -0,0 +1,227 @@
+package com.crossover.trial.weather.tracing;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Sampled request tracing. The request threads only flip a coin and, for the sampled requests,
+ * offer a trace to a {@link TraceRingBuffer}. A daemon thread drains the buffer into a rotating log
+ * file so no request waits on the file or on a lock.
+ *
+ * <p>Tracing is off unless the weather.tracing.rate system property sets a sampling rate between 0
+ * and 1, and the rate can be changed while running. The traces are written to the files given by
+ * the weather.tracing.file pattern of the {@link FileHandler}, weather-trace0.log to
+ * weather-trace4.log in the temporary directory by default, rotating every 10MB.
+ *
+ * @author Victor Polanco
+ */
+public class RequestTracer {
+
+  /** Logger for all logs inside this service */
+  public static final Logger LOGGER = Logger.getLogger("WeatherTracing");
+
+  /** Logger of the traces, kept apart from the application logs */
+  private static final Logger TRACE_LOGGER = Logger.getLogger("WeatherTracing.traces");
+
+  private static final String FILE_PATTERN =
+      System.getProperty("weather.tracing.file", "%t/weather-trace%g.log");
+
+  private static final int FILE_LIMIT = 10 * 1024 * 1024;
+
+  private static final int FILE_COUNT = 5;
+
+  private static final int BUFFER_CAPACITY = Integer.getInteger("weather.tracing.buffer", 8192);
+
+  /** Maximum amount of traces written before checking whether the tracer was closed */
+  private static final int DRAIN_BATCH = 1024;
+
+  /** Pause of the drainer when the buffer is empty */
+  private static final long IDLE_PAUSE = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final TraceRingBuffer traceRingBuffer;
+
+  /** Probability of tracing a request, 0 disables the tracing */
+  private volatile double samplingRate;
+
+  private final LongAdder recorded;
+
+  private final LongAdder dropped;
+
+  private Thread drainer;
+
+  private Handler handler;
+
+  private volatile boolean closed;
+
+  /** Private constructor preventing other classes to instantiate the class */
+  private RequestTracer() {
+    traceRingBuffer = new TraceRingBuffer(BUFFER_CAPACITY);
+    recorded = new LongAdder();
+    dropped = new LongAdder();
+    Double rate = parseRate(System.getProperty("weather.tracing.rate"));
+    if (rate != null) {
+      setSamplingRate(rate);
+    }
+  }
+
+  /**
+   * Get instance method
+   *
+   * @return the instance of the RequestTracer.
+   */
+  public static RequestTracer getInstance() {
+    return TracerHolder.INSTANCE;
+  }
+
+  /**
+   * Parse a sampling rate.
+   *
+   * @param rateString the rate as a string
+   * @return the rate, or null if it's not a number in [0, 1]
+   */
+  public static Double parseRate(String rateString) {
+    if (rateString == null) {
+      return null;
+    }
+    try {
+      double rate = Double.parseDouble(rateString);
+      return rate >= 0 && rate <= 1 ? rate : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Decide whether the current request is traced, a single volatile read when tracing is off.
+   *
+   * @return true if the request has to be traced
+   */
+  public boolean shouldSample() {
+    double rate = samplingRate;
+    return rate > 0 && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate);
+  }
+
+  /**
+   * Record the trace of a sampled request, dropped if the drainer falls behind.
+   *
+   * @param trace the trace of the request
+   */
+  public void record(RequestTrace trace) {
+    if (traceRingBuffer.offer(trace)) {
+      recorded.increment();
+    } else {
+      dropped.increment();
+    }
+  }
+
+  public double getSamplingRate() {
+    return samplingRate;
+  }
+
+  /**
+   * Change the sampling rate, the first positive rate starts the drainer.
+   *
+   * @param samplingRate the probability of tracing a request in [0, 1]
+   */
+  public synchronized void setSamplingRate(double samplingRate) {
+    if (closed) {
+      return;
+    }
+    if (samplingRate > 0 && drainer == null) {
+      startDrainer();
+    }
+    this.samplingRate = samplingRate;
+    LOGGER.log(Level.INFO, "Request tracing sampling rate set to " + samplingRate);
+  }
+
+  /**
+   * Get the counters of the tracer.
+   *
+   * @return {@link Map} with the sampling rate and the recorded and dropped traces
+   */
+  public Map<String, Number> getStatistics() {
+    Map<String, Number> statistics = new HashMap<>();
+    statistics.put("rate", samplingRate);
+    statistics.put("recorded", recorded.sum());
+    statistics.put("dropped", dropped.sum());
+    return statistics;
+  }
+
+  /** Stop the tracing, writes the traces left in the buffer and closes the file. */
+  public synchronized void close() {
+    samplingRate = 0;
+    closed = true;
+    if (drainer != null) {
+      drainer.interrupt();
+      try {
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void startDrainer() {
+    try {
+      handler = new FileHandler(FILE_PATTERN, FILE_LIMIT, FILE_COUNT, true);
+    } catch (IOException e) {
+      // Keep the tracing on, the records go to the application log handlers instead
+      LOGGER.log(Level.WARNING, "Unable to open the trace file " + FILE_PATTERN, e);
+    }
+    if (handler != null) {
+      handler.setFormatter(new TraceFormatter());
+      TRACE_LOGGER.addHandler(handler);
+      TRACE_LOGGER.setUseParentHandlers(false);
+    }
+    drainer = new Thread(this::drain, "weather-trace-drainer");
+    drainer.setDaemon(true);
+    drainer.start();
+  }
+
+  /** Loop of the drainer thread */
+  private void drain() {
+    while (!closed) {
+      if (traceRingBuffer.drain(this::write, DRAIN_BATCH) == 0) {
+        LockSupport.parkNanos(IDLE_PAUSE);
+      }
+    }
+    // Write what was recorded before closing
+    while (traceRingBuffer.drain(this::write, DRAIN_BATCH) > 0) {
+      // keep draining
+    }
+    if (handler != null) {
+      handler.close();
+    }
+  }
+
+  private void write(RequestTrace trace) {
+    TRACE_LOGGER.log(Level.INFO, trace.toString());
+  }
+
+  /** Writes a trace per line, the trace already holds its timestamp */
+  private static class TraceFormatter extends Formatter {
+    @Override
+    public String format(LogRecord record) {
+      return record.getMessage() + System.lineSeparator();
+    }
+  }
+
+  /**
+   * Private static inner class to serve as a holder for the instance this pattern makes a thread
+   * safe environment to hold the instance of the class.
+   */
+  private static class TracerHolder {
+    private static final RequestTracer INSTANCE = new RequestTracer();
+  }
+}
@@ -0,0 +1,108 @@
+package com.crossover.trial.weather.tracing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue of the sampled traces, with many request threads offering and a single
+ * thread draining. Every slot has a sequence number telling whether it's free for the producer of
+ * a position or filled for the consumer, so producers only race on a compare and set of the tail.
+ * Traces are dropped, never waited for, when the buffer is full.
+ *
+ * @author Victor Polanco
+ */
+public class TraceRingBuffer {
+
+  private final int mask;
+
+  private final AtomicReferenceArray<RequestTrace> slots;
+
+  private final AtomicLongArray sequences;
+
+  /** Next position to be claimed by a producer */
+  private final AtomicLong tail;
+
+  /** Next position to be drained, only the consumer moves it */
+  private long head;
+
+  /**
+   * Create a ring buffer.
+   *
+   * @param capacity the amount of traces held, rounded up to a power of two
+   */
+  public TraceRingBuffer(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    mask = size - 1;
+    slots = new AtomicReferenceArray<>(size);
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    tail = new AtomicLong();
+  }
+
+  /**
+   * Add a trace, never blocks.
+   *
+   * @param trace the trace to add
+   * @return false if the buffer is full and the trace was dropped
+   */
+  public boolean offer(RequestTrace trace) {
+    long position = tail.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          slots.lazySet(index, trace);
+          // Publishes the trace to the consumer
+          sequences.set(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        // The slot still holds a trace from the previous lap
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Remove the available traces, must only be called by a single thread.
+   *
+   * @param consumer receiving the traces in order
+   * @param limit maximum amount of traces to drain
+   * @return the amount of traces drained
+   */
+  public int drain(Consumer<RequestTrace> consumer, int limit) {
+    int drained = 0;
+    while (drained < limit) {
+      int index = (int) head & mask;
+      // A trace whose producer hasn't published it yet ends the drain
+      if (sequences.get(index) != head + 1) {
+        break;
+      }
+      RequestTrace trace = slots.get(index);
+      slots.lazySet(index, null);
+      // Frees the slot for the producer of the next lap
+      sequences.set(index, head + mask + 1);
+      head++;
+      drained++;
+      consumer.accept(trace);
+    }
+    return drained;
+  }
+
+  /**
+   * Get the amount of traces the buffer holds.
+   *
+   * @return the capacity
+   */
+  public int capacity() {
+    return mask + 1;
+  }
+}
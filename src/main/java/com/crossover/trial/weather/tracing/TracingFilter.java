@@ -0,0 +1,83 @@
+package com.crossover.trial.weather.tracing;
+
+import java.util.List;
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.ext.Provider;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.uri.UriTemplate;
+
+/**
+ * Traces the requests sampled by the {@link RequestTracer}. The start is taken before the resource
+ * is matched and the trace is recorded when the response is ready, before its entity is written.
+ *
+ * @author Victor Polanco
+ */
+@Provider
+@PreMatching
+public class TracingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+  /** Request property holding the start of a sampled request */
+  private static final String START_PROPERTY = TracingFilter.class.getName() + ".start";
+
+  /** Template of the requests not matching any resource */
+  private static final String UNMATCHED = "unmatched";
+
+  private final RequestTracer requestTracer;
+
+  /**
+   * Create the filter of the tracer bound by the server.
+   *
+   * @param requestTracer tracer sampling and recording the requests
+   */
+  @Inject
+  public TracingFilter(RequestTracer requestTracer) {
+    this.requestTracer = requestTracer;
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+    if (requestTracer.shouldSample()) {
+      requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+  }
+
+  @Override
+  public void filter(
+      ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+    Object start = requestContext.getProperty(START_PROPERTY);
+    if (start == null) {
+      return;
+    }
+    long latency = System.nanoTime() - (Long) start;
+    requestTracer.record(
+        new RequestTrace(
+            System.currentTimeMillis() - latency / 1000000,
+            requestContext.getMethod(),
+            pathTemplate(requestContext),
+            responseContext.getStatus(),
+            latency));
+  }
+
+  /** The templates are matched from the outermost resource, the list holds them innermost first */
+  private static String pathTemplate(ContainerRequestContext requestContext) {
+    List<UriTemplate> templates =
+        ((ExtendedUriInfo) requestContext.getUriInfo()).getMatchedTemplates();
+    if (templates.isEmpty()) {
+      return UNMATCHED;
+    }
+    StringBuilder pathTemplate = new StringBuilder();
+    for (int i = templates.size() - 1; i >= 0; i--) {
+      String template = templates.get(i).getTemplate();
+      if (!template.startsWith("/")) {
+        pathTemplate.append('/');
+      }
+      pathTemplate.append(template);
+    }
+    return pathTemplate.toString();
+  }
+}
@@ -0,0 +1,122 @@
+package com.crossover.trial.weather.utils;
+
+import com.crossover.trial.weather.model.AirportData;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser of the airports.dat lines. Two layouts are accepted, the OpenFlights one with an id and a
+ * name before the city, 11 or more columns, and the documented one starting with the city, 9 or 10
+ * columns. Fields may be quoted, a quoted field can hold commas and doubled quotes.
+ *
+ * @author Victor Polanco
+ */
+public final class AirportCsvParser {
+
+  /** Minimum columns of the OpenFlights layout: id, name, city, country, IATA, ICAO, lat, long... */
+  private static final int OPEN_FLIGHTS_COLUMNS = 11;
+
+  /** Minimum columns of the documented layout: city, country, IATA, ICAO, lat, long... */
+  private static final int DOCUMENTED_COLUMNS = 9;
+
+  /** OpenFlights value of the fields that aren't assigned */
+  private static final String UNASSIGNED = "\\N";
+
+  private AirportCsvParser() {}
+
+  /**
+   * Split a line into its fields, removing the quotes.
+   *
+   * @param line a line of the file, without the line terminator
+   * @return the fields of the line
+   */
+  public static List<String> split(String line) {
+    List<String> fields = new ArrayList<>(14);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0, length = line.length(); i < length; i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < length && line.charAt(i + 1) == '"') {
+          // A doubled quote inside a quoted field
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /**
+   * Parse the airport of a line.
+   *
+   * @param line a line of the file, without the line terminator
+   * @return the airport of the line
+   * @throws IllegalArgumentException if the line doesn't hold a valid airport, with the reason
+   */
+  public static AirportData parse(String line) {
+    List<String> fields = split(line);
+    int iataColumn;
+    if (fields.size() >= OPEN_FLIGHTS_COLUMNS) {
+      iataColumn = 4;
+    } else if (fields.size() >= DOCUMENTED_COLUMNS) {
+      iataColumn = 2;
+    } else {
+      throw new IllegalArgumentException("Unexpected amount of columns " + fields.size());
+    }
+    // The ICAO code sits between the IATA code and the coordinates
+    String iataCode = fields.get(iataColumn).trim();
+    String latitude = fields.get(iataColumn + 2).trim();
+    String longitude = fields.get(iataColumn + 3).trim();
+
+    if (iataCode.isEmpty() || UNASSIGNED.equals(iataCode)) {
+      throw new IllegalArgumentException("No IATA code");
+    }
+    if (!isValidCode(iataCode)) {
+      throw new IllegalArgumentException("Invalid IATA code " + iataCode);
+    }
+    double convertedLatitude;
+    double convertedLongitude;
+    try {
+      convertedLatitude = Double.parseDouble(latitude);
+      convertedLongitude = Double.parseDouble(longitude);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid coordinates " + latitude + "," + longitude);
+    }
+    if (!ConstantHelper.isValidLocation(convertedLatitude, convertedLongitude)) {
+      throw new IllegalArgumentException("Invalid coordinates " + latitude + "," + longitude);
+    }
+
+    AirportData airportData = new AirportData();
+    airportData.setIata(iataCode);
+    airportData.setLatitude(convertedLatitude);
+    airportData.setLongitude(convertedLongitude);
+    return airportData;
+  }
+
+  /** IATA codes are 3 letters, FAA codes may hold digits */
+  private static boolean isValidCode(String code) {
+    if (code.length() != 3) {
+      return false;
+    }
+    for (int i = 0; i < code.length(); i++) {
+      char c = code.charAt(i);
+      if (!(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9')) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
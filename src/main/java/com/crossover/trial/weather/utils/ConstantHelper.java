@@ -1,5 +1,7 @@
 package com.crossover.trial.weather.utils;
 
+import java.util.concurrent.TimeUnit;
+
 /** Constant helper class, contains static properties and methods used across the system */
 public class ConstantHelper {
 
@@ -29,4 +31,83 @@ public class ConstantHelper {
       return Double.NaN;
     }
   }
+
+  /**
+   * Validate if a given string is an actual non negative integer and returns the parsed integer.
+   *
+   * @param countString the integer to be validated
+   * @return the converted integer or null if it's not a valid non negative integer
+   */
+  public static Integer getValidCount(String countString) {
+    try {
+      // Try to parse the given count string.
+      int count = Integer.parseInt(countString.trim());
+      return count >= 0 ? count : null;
+    } catch (NullPointerException | NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Validate if a given string is an actual non negative timestamp and returns the parsed one.
+   *
+   * @param timestampString the timestamp in milliseconds since UTC epoch, may be null
+   * @param defaultTimestamp the timestamp returned when the string is null or empty
+   * @return the converted timestamp or null if it's not a valid non negative timestamp
+   */
+  public static Long getValidTimestamp(String timestampString, long defaultTimestamp) {
+    if (timestampString == null || timestampString.trim().isEmpty()) {
+      return defaultTimestamp;
+    }
+    try {
+      long timestamp = Long.parseLong(timestampString.trim());
+      return timestamp >= 0 ? timestamp : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Parse a duration given as an amount of minutes, hours or days, like 30m, 6h or 7d.
+   *
+   * @param duration the duration string
+   * @return the duration in milliseconds
+   * @throws IllegalArgumentException if the duration is not valid
+   */
+  public static long parseDuration(String duration) {
+    String trimmed = duration == null ? "" : duration.trim();
+    if (trimmed.length() < 2) {
+      throw new IllegalArgumentException("Invalid duration " + duration);
+    }
+    long amount;
+    try {
+      amount = Long.parseLong(trimmed.substring(0, trimmed.length() - 1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid duration " + duration);
+    }
+    if (amount < 0) {
+      throw new IllegalArgumentException("Invalid duration " + duration);
+    }
+    switch (trimmed.charAt(trimmed.length() - 1)) {
+      case 'm':
+        return TimeUnit.MINUTES.toMillis(amount);
+      case 'h':
+        return TimeUnit.HOURS.toMillis(amount);
+      case 'd':
+        return TimeUnit.DAYS.toMillis(amount);
+      default:
+        throw new IllegalArgumentException("Invalid duration unit " + duration);
+    }
+  }
+
+  /**
+   * Validate if the given coordinates are a valid latitude and longitude.
+   *
+   * @param latitude in degrees
+   * @param longitude in degrees
+   * @return true if the latitude is in [-90, 90] and the longitude in [-180, 180]
+   */
+  public static boolean isValidLocation(double latitude, double longitude) {
+    return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+  }
 }
@@ -0,0 +1,91 @@
+package com.crossover.trial.weather.utils;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.DoublePredicate;
+
+/**
+ * Dispatch table of the collected data points, holds for every {@link DataPointType} the range of
+ * valid mean values and the property of the {@link AtmosphericInformation} it updates. The table is
+ * built once when the class is loaded.
+ *
+ * <p>{@link AtmosphericInformation} is immutable, so the handlers produce a new snapshot with the
+ * updated property that the caller has to publish.
+ *
+ * @author Victor Polanco
+ */
+public final class DataPointHandlers {
+
+  private static final Map<DataPointType, Handler> HANDLERS = new EnumMap<>(DataPointType.class);
+
+  static {
+    register(DataPointType.WIND, mean -> mean >= 0, AtmosphericInformation::withWind);
+    register(
+        DataPointType.TEMPERATURE,
+        mean -> mean >= -50 && mean < 100,
+        AtmosphericInformation::withTemperature);
+    register(
+        DataPointType.HUMIDTY, mean -> mean >= 0 && mean < 100, AtmosphericInformation::withHumidity);
+    register(
+        DataPointType.PRESSURE,
+        mean -> mean >= 650 && mean < 800,
+        AtmosphericInformation::withPressure);
+    register(
+        DataPointType.CLOUDCOVER,
+        mean -> mean >= 0 && mean < 100,
+        AtmosphericInformation::withCloudCover);
+    register(
+        DataPointType.PRECIPITATION,
+        mean -> mean >= 0 && mean < 100,
+        AtmosphericInformation::withPrecipitation);
+  }
+
+  private DataPointHandlers() {}
+
+  /**
+   * Get a snapshot of the atmospheric information with the data point set, if its mean is in the
+   * valid range of the given type.
+   *
+   * @param atmosphericInformation the current atmospheric information of the airport
+   * @param pointType the type of the data point
+   * @param dataPoint the data point to set
+   * @param updateTime the new last update time, in milliseconds since UTC epoch
+   * @return the updated snapshot, or the given one if the data point is not valid
+   */
+  public static AtmosphericInformation apply(
+      AtmosphericInformation atmosphericInformation,
+      DataPointType pointType,
+      DataPoint dataPoint,
+      long updateTime) {
+    Handler handler = HANDLERS.get(pointType);
+    if (!handler.validator.test(dataPoint.getMean())) {
+      return atmosphericInformation;
+    }
+    return handler.updater.update(atmosphericInformation, dataPoint, updateTime);
+  }
+
+  private static void register(DataPointType pointType, DoublePredicate validator, Updater updater) {
+    HANDLERS.put(pointType, new Handler(validator, updater));
+  }
+
+  /** Copies an atmospheric information replacing one of its data points */
+  @FunctionalInterface
+  private interface Updater {
+    AtmosphericInformation update(
+        AtmosphericInformation atmosphericInformation, DataPoint dataPoint, long updateTime);
+  }
+
+  /** The validator and updater of a data point type */
+  private static class Handler {
+    private final DoublePredicate validator;
+    private final Updater updater;
+
+    private Handler(DoublePredicate validator, Updater updater) {
+      this.validator = validator;
+      this.updater = updater;
+    }
+  }
+}
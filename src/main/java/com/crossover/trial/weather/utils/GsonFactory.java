@@ -1,6 +1,7 @@
 package com.crossover.trial.weather.utils;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 import java.lang.reflect.Type;
 
 /**
@@ -11,12 +12,26 @@ import java.lang.reflect.Type;
  */
 public class GsonFactory {
 
+  /** Gson instances are thread safe and costly to build, every call shares this one */
+  private static final Gson GSON = new Gson();
+
   public static <T> T getGsonFromJsonString(String jsonString, Type typeOfT) {
-    return new Gson().fromJson(jsonString, typeOfT);
+    return GSON.fromJson(jsonString, typeOfT);
   }
 
   public static String toJson(Object object) {
-    return new Gson().toJson(object);
+    return GSON.toJson(object);
+  }
+
+  /**
+   * Read the next value of a streaming reader as the given type.
+   *
+   * @param jsonReader positioned right before the value
+   * @param typeOfT the type of the value
+   * @return the parsed value, or null for a json null
+   */
+  public static <T> T getGsonFromJsonReader(JsonReader jsonReader, Type typeOfT) {
+    return GSON.fromJson(jsonReader, typeOfT);
   }
 
 }
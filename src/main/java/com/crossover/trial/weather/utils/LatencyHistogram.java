@@ -0,0 +1,174 @@
+package com.crossover.trial.weather.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of latencies with a fixed relative precision, in the manner of
+ * HdrHistogram. Values below 128 are counted exactly, larger values fall in log-linear buckets 64
+ * per power of two, so any recorded value is reported within 1.6% of itself whatever its
+ * magnitude. Recording is a single atomic increment and never allocates.
+ *
+ * <p>A load generator sending requests on a schedule has to record what the requests it couldn't
+ * send while waiting on a slow response would have seen, otherwise the stall is reported as a
+ * single slow request. {@link #recordValueWithExpectedInterval} adds those missing samples.
+ *
+ * @author Victor Polanco
+ */
+public class LatencyHistogram {
+
+  /** Values below this are counted exactly */
+  private static final int LINEAR_LIMIT = 128;
+
+  /** Buckets per power of two above the linear range */
+  private static final int SUB_BUCKETS = 64;
+
+  private static final int SUB_BUCKET_BITS = 6;
+
+  /** The exact range and the log-linear buckets for every power of two up to 2^63 */
+  private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+
+  private final AtomicLong totalCount;
+
+  private final AtomicLong max;
+
+  public LatencyHistogram() {
+    counts = new AtomicLongArray(BUCKETS);
+    totalCount = new AtomicLong();
+    max = new AtomicLong();
+  }
+
+  /**
+   * Record a value.
+   *
+   * @param value the non negative value to record
+   */
+  public void recordValue(long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value " + value);
+    }
+    counts.incrementAndGet(indexOf(value));
+    totalCount.incrementAndGet();
+    long currentMax = max.get();
+    while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+      currentMax = max.get();
+    }
+  }
+
+  /**
+   * Record a value measured by a sender expecting to send a request every given interval. A value
+   * larger than the interval means the sender missed some sends, the values those requests would
+   * have seen are recorded as well, each one an interval lower than the previous one.
+   *
+   * @param value the non negative value to record
+   * @param expectedInterval the expected interval between values, ignored if not positive
+   */
+  public void recordValueWithExpectedInterval(long value, long expectedInterval) {
+    recordValue(value);
+    if (expectedInterval <= 0) {
+      return;
+    }
+    for (long missing = value - expectedInterval;
+        missing >= expectedInterval;
+        missing -= expectedInterval) {
+      recordValue(missing);
+    }
+  }
+
+  /**
+   * Add the values of another histogram to this one.
+   *
+   * @param other the histogram to add
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      long count = other.counts.get(i);
+      if (count > 0) {
+        counts.addAndGet(i, count);
+      }
+    }
+    totalCount.addAndGet(other.totalCount.get());
+    long otherMax = other.max.get();
+    long currentMax = max.get();
+    while (otherMax > currentMax && !max.compareAndSet(currentMax, otherMax)) {
+      currentMax = max.get();
+    }
+  }
+
+  public long getTotalCount() {
+    return totalCount.get();
+  }
+
+  public long getMaxValue() {
+    return max.get();
+  }
+
+  /**
+   * Get the value at the given percentile, the highest value of its bucket so the percentiles are
+   * never reported lower than measured.
+   *
+   * @param percentile in [0, 100]
+   * @return the value at the percentile, 0 if the histogram is empty
+   */
+  public long getValueAtPercentile(double percentile) {
+    long total = totalCount.get();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValueOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Get the mean of the recorded values, within the precision of the buckets.
+   *
+   * @return the mean, 0 if the histogram is empty
+   */
+  public double getMean() {
+    long total = 0;
+    double sum = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      long count = counts.get(i);
+      if (count > 0) {
+        total += count;
+        // The middle of the bucket
+        sum += count * ((lowestValueOf(i) + highestValueOf(i)) / 2.0);
+      }
+    }
+    return total == 0 ? 0 : sum / total;
+  }
+
+  private static int indexOf(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    // Keep the 7 most significant bits, the top one is always set
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  private static long lowestValueOf(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+    return (long) ((index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+  }
+
+  private static long highestValueOf(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+    return lowestValueOf(index) + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,50 @@
+package com.crossover.trial.weather.web;
+
+/**
+ * Aggregate of the data point means collected by an airport for a point type over a window of
+ * time. The minimum, maximum and mean are null when no data point was collected in the window.
+ *
+ * @author Victor Polanco
+ */
+public class Aggregate {
+
+  /** the name of the window, like 1h */
+  private final String window;
+
+  /** the amount of data points collected in the window */
+  private final long count;
+
+  private final Double min;
+
+  private final Double max;
+
+  private final Double mean;
+
+  public Aggregate(String window, long count, Double min, Double max, Double mean) {
+    this.window = window;
+    this.count = count;
+    this.min = min;
+    this.max = max;
+    this.mean = mean;
+  }
+
+  public String getWindow() {
+    return window;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public Double getMin() {
+    return min;
+  }
+
+  public Double getMax() {
+    return max;
+  }
+
+  public Double getMean() {
+    return mean;
+  }
+}
@@ -0,0 +1,66 @@
+package com.crossover.trial.weather.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import of airports, the amount of airports loaded, of the ones skipped because
+ * their code was already known and of the rejected lines, along with the reason of the first
+ * rejections.
+ *
+ * @author Victor Polanco
+ */
+public class AirportImportSummary {
+
+  /** Amount of rejected lines whose reason is reported */
+  public static final int REPORTED_REJECTIONS = 20;
+
+  /** the amount of new airports */
+  private int loaded;
+
+  /** the amount of airports whose code was already known */
+  private int duplicates;
+
+  /** the amount of lines without a valid airport */
+  private int rejected;
+
+  /** the line number and reason of the first rejected lines */
+  private final List<String> rejections = new ArrayList<>();
+
+  public int getLoaded() {
+    return loaded;
+  }
+
+  public void setLoaded(int loaded) {
+    this.loaded = loaded;
+  }
+
+  public int getDuplicates() {
+    return duplicates;
+  }
+
+  public void setDuplicates(int duplicates) {
+    this.duplicates = duplicates;
+  }
+
+  public int getRejected() {
+    return rejected;
+  }
+
+  public List<String> getRejections() {
+    return rejections;
+  }
+
+  /**
+   * Count a rejected line, only the first rejections keep their reason.
+   *
+   * @param lineNumber the number of the line, starting at 1
+   * @param reason why the line was rejected
+   */
+  public void reject(int lineNumber, String reason) {
+    rejected++;
+    if (rejections.size() < REPORTED_REJECTIONS) {
+      rejections.add("line " + lineNumber + ": " + reason);
+    }
+  }
+}
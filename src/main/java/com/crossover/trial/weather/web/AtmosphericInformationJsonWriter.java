@@ -0,0 +1,230 @@
+package com.crossover.trial.weather.web;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Writes the lists of {@link AtmosphericInformation} returned by the weather queries straight to
+ * the response stream. The fields are emitted by hand in the order Jackson uses for these classes,
+ * so the output is byte for byte the same json without the reflective serializers or an
+ * intermediate tree.
+ *
+ * <p>The entity has to be wrapped in a {@link javax.ws.rs.core.GenericEntity} for the writer to see
+ * the element type of the list.
+ *
+ * @author Victor Polanco
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class AtmosphericInformationJsonWriter
+    implements MessageBodyWriter<List<AtmosphericInformation>> {
+
+  private static final byte[] NULL = ascii("null");
+  private static final byte[] TEMPERATURE = ascii("{\"temperature\":");
+  private static final byte[] WIND = ascii(",\"wind\":");
+  private static final byte[] HUMIDITY = ascii(",\"humidity\":");
+  private static final byte[] PRECIPITATION = ascii(",\"precipitation\":");
+  private static final byte[] PRESSURE = ascii(",\"pressure\":");
+  private static final byte[] CLOUD_COVER = ascii(",\"cloudCover\":");
+  private static final byte[] LAST_UPDATE_TIME = ascii(",\"lastUpdateTime\":");
+  private static final byte[] MEAN = ascii("{\"mean\":");
+  private static final byte[] FIRST = ascii(",\"first\":");
+  private static final byte[] SECOND = ascii(",\"second\":");
+  private static final byte[] THIRD = ascii(",\"third\":");
+  private static final byte[] COUNT = ascii(",\"count\":");
+
+  /** Integral doubles below this magnitude are printed by Double.toString as digits and ".0" */
+  private static final double PLAIN_DOUBLE_LIMIT = 1e7;
+
+  private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+
+  @Override
+  public boolean isWriteable(
+      Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    if (!List.class.isAssignableFrom(type) || !(genericType instanceof ParameterizedType)) {
+      return false;
+    }
+    Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+    return arguments.length == 1 && arguments[0] == AtmosphericInformation.class;
+  }
+
+  @Override
+  public long getSize(
+      List<AtmosphericInformation> atmosphericInformation,
+      Class<?> type,
+      Type genericType,
+      Annotation[] annotations,
+      MediaType mediaType) {
+    // Deprecated by JAX-RS 2.0, the length is computed by the container
+    return -1;
+  }
+
+  @Override
+  public void writeTo(
+      List<AtmosphericInformation> atmosphericInformation,
+      Class<?> type,
+      Type genericType,
+      Annotation[] annotations,
+      MediaType mediaType,
+      MultivaluedMap<String, Object> httpHeaders,
+      OutputStream entityStream)
+      throws IOException {
+    write(atmosphericInformation, entityStream);
+  }
+
+  /**
+   * Write a list of atmospheric information as a json list.
+   *
+   * @param atmosphericInformation the list to write
+   * @param outputStream the stream to write to, it's not closed
+   */
+  public static void write(
+      List<AtmosphericInformation> atmosphericInformation, OutputStream outputStream)
+      throws IOException {
+    JsonOutput out = new JsonOutput(outputStream);
+    out.write('[');
+    for (int i = 0, size = atmosphericInformation.size(); i < size; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      writeAtmosphericInformation(out, atmosphericInformation.get(i));
+    }
+    out.write(']');
+    out.flush();
+  }
+
+  private static void writeAtmosphericInformation(
+      JsonOutput out, AtmosphericInformation atmosphericInformation) throws IOException {
+    if (atmosphericInformation == null) {
+      out.write(NULL);
+      return;
+    }
+    out.write(TEMPERATURE);
+    writeDataPoint(out, atmosphericInformation.getTemperature());
+    out.write(WIND);
+    writeDataPoint(out, atmosphericInformation.getWind());
+    out.write(HUMIDITY);
+    writeDataPoint(out, atmosphericInformation.getHumidity());
+    out.write(PRECIPITATION);
+    writeDataPoint(out, atmosphericInformation.getPrecipitation());
+    out.write(PRESSURE);
+    writeDataPoint(out, atmosphericInformation.getPressure());
+    out.write(CLOUD_COVER);
+    writeDataPoint(out, atmosphericInformation.getCloudCover());
+    out.write(LAST_UPDATE_TIME);
+    out.writeLong(atmosphericInformation.getLastUpdateTime());
+    out.write('}');
+  }
+
+  private static void writeDataPoint(JsonOutput out, DataPoint dataPoint) throws IOException {
+    if (dataPoint == null) {
+      out.write(NULL);
+      return;
+    }
+    out.write(MEAN);
+    writeDouble(out, dataPoint.getMean());
+    out.write(FIRST);
+    out.writeLong(dataPoint.getFirst());
+    out.write(SECOND);
+    out.writeLong(dataPoint.getSecond());
+    out.write(THIRD);
+    out.writeLong(dataPoint.getThird());
+    out.write(COUNT);
+    out.writeLong(dataPoint.getCount());
+    out.write('}');
+  }
+
+  /** Same text as Jackson, Double.toString quoted when not finite */
+  private static void writeDouble(JsonOutput out, double value) throws IOException {
+    if (value == (long) value
+        && Math.abs(value) < PLAIN_DOUBLE_LIMIT
+        && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+      // The common case of the collectors, avoids formatting a String
+      out.writeLong((long) value);
+      out.write('.');
+      out.write('0');
+    } else if (Double.isNaN(value) || Double.isInfinite(value)) {
+      out.write('"');
+      out.write(ascii(Double.toString(value)));
+      out.write('"');
+    } else {
+      out.write(ascii(Double.toString(value)));
+    }
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /** Buffered output of ascii json, formats the numbers in place */
+  private static class JsonOutput {
+    private final OutputStream outputStream;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+
+    private JsonOutput(OutputStream outputStream) {
+      this.outputStream = outputStream;
+    }
+
+    private void write(char value) throws IOException {
+      ensure(1);
+      buffer[position++] = (byte) value;
+    }
+
+    private void write(byte[] value) throws IOException {
+      ensure(value.length);
+      System.arraycopy(value, 0, buffer, position, value.length);
+      position += value.length;
+    }
+
+    private void writeLong(long value) throws IOException {
+      if (value == Long.MIN_VALUE) {
+        write(ascii(Long.toString(value)));
+        return;
+      }
+      // 19 digits and the sign
+      ensure(20);
+      if (value < 0) {
+        buffer[position++] = '-';
+        value = -value;
+      }
+      int start = position;
+      do {
+        buffer[position++] = (byte) ('0' + value % 10);
+        value /= 10;
+      } while (value != 0);
+      // The digits were written backwards
+      for (int i = start, j = position - 1; i < j; i++, j--) {
+        byte digit = buffer[i];
+        buffer[i] = buffer[j];
+        buffer[j] = digit;
+      }
+    }
+
+    private void ensure(int length) throws IOException {
+      // The values are short constants and numbers, they always fit an empty buffer
+      if (position + length > buffer.length) {
+        outputStream.write(buffer, 0, position);
+        position = 0;
+      }
+    }
+
+    private void flush() throws IOException {
+      outputStream.write(buffer, 0, position);
+      position = 0;
+      outputStream.flush();
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.crossover.trial.weather.web;
+
+/**
+ * Outcome of a single record of a batch update, echoes the record's airport and point type along
+ * with the HTTP status code the equivalent single update would have returned.
+ *
+ * @author Victor Polanco
+ */
+public class BatchRecordStatus {
+
+  /** the three letter IATA code of the record */
+  private final String iata;
+
+  /** the data point type of the record */
+  private final String pointType;
+
+  /** the HTTP status code of the record */
+  private final int status;
+
+  public BatchRecordStatus(String iata, String pointType, int status) {
+    this.iata = iata;
+    this.pointType = pointType;
+    this.status = status;
+  }
+
+  public String getIata() {
+    return iata;
+  }
+
+  public String getPointType() {
+    return pointType;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+}
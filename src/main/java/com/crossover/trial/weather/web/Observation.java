@@ -0,0 +1,55 @@
+package com.crossover.trial.weather.web;
+
+/**
+ * A data point of the observation history of an airport along with the time it was collected.
+ *
+ * @author Victor Polanco
+ */
+public class Observation {
+
+  /** the time the data point was collected, in milliseconds since UTC epoch */
+  private final long timestamp;
+
+  private final double mean;
+
+  private final int first;
+
+  private final int second;
+
+  private final int third;
+
+  private final int count;
+
+  public Observation(long timestamp, double mean, int first, int second, int third, int count) {
+    this.timestamp = timestamp;
+    this.mean = mean;
+    this.first = first;
+    this.second = second;
+    this.third = third;
+    this.count = count;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public double getMean() {
+    return mean;
+  }
+
+  public int getFirst() {
+    return first;
+  }
+
+  public int getSecond() {
+    return second;
+  }
+
+  public int getThird() {
+    return third;
+  }
+
+  public int getCount() {
+    return count;
+  }
+}
@@ -0,0 +1,64 @@
+package com.crossover.trial.weather;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.crossover.trial.weather.controller.RestWeatherCollectorEndpoint;
+import com.crossover.trial.weather.controller.RestWeatherQueryEndpoint;
+import com.crossover.trial.weather.model.storage.AirportDataStorage;
+import com.crossover.trial.weather.model.storage.AtmosphericInfoStorage;
+import com.crossover.trial.weather.model.storage.StorageBackend;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.AtmosphericInformationService;
+import javax.ws.rs.core.Response;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WeatherBinderTest {
+
+  private ServiceLocator serviceLocator;
+
+  @Before
+  public void setUp() throws Exception {
+    serviceLocator = ServiceLocatorUtilities.bind(new WeatherBinder(StorageBackend.PRIMITIVE));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    serviceLocator.shutdown();
+  }
+
+  @Test
+  public void testServicesAreSingletons() throws Exception {
+    assertSame(
+        serviceLocator.getService(AirportService.class),
+        serviceLocator.getService(AirportService.class));
+    assertSame(
+        serviceLocator.getService(AtmosphericInformationService.class),
+        serviceLocator.getService(AtmosphericInformationService.class));
+    assertSame(
+        StorageBackend.PRIMITIVE.getAtmosphericInfoStorage(),
+        serviceLocator.getService(AtmosphericInfoStorage.class));
+    assertSame(
+        AirportDataStorage.getInstance(), serviceLocator.getService(AirportDataStorage.class));
+  }
+
+  @Test
+  public void testEndpointsShareTheServices() throws Exception {
+    RestWeatherCollectorEndpoint collector =
+        serviceLocator.createAndInitialize(RestWeatherCollectorEndpoint.class);
+    RestWeatherQueryEndpoint query =
+        serviceLocator.createAndInitialize(RestWeatherQueryEndpoint.class);
+
+    Response response = collector.addAirport("ZZY", "10.5", "20.5");
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    assertSame(
+        serviceLocator.getService(AirportService.class).findAirportData("ZZY"),
+        collector.getAirport("ZZY").getEntity());
+    assertEquals(Response.Status.OK.getStatusCode(), query.weather("ZZY", "0").getStatus());
+    collector.deleteAirport("ZZY");
+  }
+}
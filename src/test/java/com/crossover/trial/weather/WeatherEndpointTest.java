@@ -2,10 +2,15 @@ package com.crossover.trial.weather;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import javax.ws.rs.core.Response;
 
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -15,15 +20,25 @@ import com.crossover.trial.weather.controller.WeatherCollectorEndpoint;
 import com.crossover.trial.weather.controller.WeatherQueryEndpoint;
 import com.crossover.trial.weather.model.AtmosphericInformation;
 import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.storage.StorageBackend;
+import com.crossover.trial.weather.service.AirportService;
+import com.crossover.trial.weather.service.WeatherMetricsProvider;
+import com.crossover.trial.weather.web.BatchRecordStatus;
+import com.crossover.trial.weather.web.Observation;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 
 public class WeatherEndpointTest {
 
-  private WeatherQueryEndpoint _query = new RestWeatherQueryEndpoint();
+  private ServiceLocator _locator =
+      ServiceLocatorUtilities.bind(new WeatherBinder(StorageBackend.configured()));
 
-  private WeatherCollectorEndpoint _update = new RestWeatherCollectorEndpoint();
+  private WeatherQueryEndpoint _query =
+      _locator.createAndInitialize(RestWeatherQueryEndpoint.class);
+
+  private WeatherCollectorEndpoint _update =
+      _locator.createAndInitialize(RestWeatherCollectorEndpoint.class);
 
   private Gson _gson = new Gson();
 
@@ -31,7 +46,9 @@ public class WeatherEndpointTest {
 
   @Before
   public void setUp() throws Exception {
-    RestWeatherCollectorEndpoint.init();
+    RestWeatherCollectorEndpoint.init(
+        _locator.getService(AirportService.class),
+        _locator.getService(WeatherMetricsProvider.class));
     _dp =
         new DataPoint.Builder()
             .withCount(10)
@@ -44,6 +61,11 @@ public class WeatherEndpointTest {
     _query.weather("BOS", "0").getEntity();
   }
 
+  @After
+  public void tearDown() throws Exception {
+    _locator.shutdown();
+  }
+
   @Test
   public void testQueryPing() throws Exception {
     String ping = _query.ping();
@@ -138,5 +160,64 @@ public class WeatherEndpointTest {
     assertEquals(ais.get(0).getWind(), windDp);
     assertEquals(ais.get(0).getCloudCover(), cloudCoverDp);
   }
-}
 
+  @Test
+  public void testBatchUpdate() throws Exception {
+    DataPoint pressureDp =
+        new DataPoint.Builder()
+            .withCount(5)
+            .withFirst(700)
+            .withMedian(710)
+            .withLast(720)
+            .withMean(712)
+            .build();
+    String records =
+        "[{\"iata\":\"BOS\",\"pointType\":\"pressure\",\"dataPoint\":"
+            + _gson.toJson(pressureDp)
+            + "},{\"iata\":\"BOS\",\"pointType\":\"visibility\",\"dataPoint\":"
+            + _gson.toJson(pressureDp)
+            + "},{\"iata\":\"XXX\",\"pointType\":\"pressure\",\"dataPoint\":"
+            + _gson.toJson(pressureDp)
+            + "}]";
+
+    Response response =
+        _update.updateWeatherBatch(
+            new ByteArrayInputStream(records.getBytes(StandardCharsets.UTF_8)));
+    assertEquals(200, response.getStatus());
+    List<BatchRecordStatus> statuses = (List<BatchRecordStatus>) response.getEntity();
+    assertEquals(3, statuses.size());
+    assertEquals(200, statuses.get(0).getStatus());
+    assertEquals(400, statuses.get(1).getStatus());
+    assertEquals(404, statuses.get(2).getStatus());
+
+    List<AtmosphericInformation> ais =
+        (List<AtmosphericInformation>) _query.weather("BOS", "0").getEntity();
+    assertEquals(ais.get(0).getPressure(), pressureDp);
+
+    response =
+        _update.updateWeatherBatch(
+            new ByteArrayInputStream("[{\"iata\":".getBytes(StandardCharsets.UTF_8)));
+    assertEquals(400, response.getStatus());
+  }
+
+  @Test
+  public void testHistory() throws Exception {
+    long before = System.currentTimeMillis();
+    double mean = _dp.getMean();
+    _update.updateWeather("LGA", "humidity", _gson.toJson(_dp));
+    // Out of range, not part of the history
+    _dp.setMean(200);
+    _update.updateWeather("LGA", "humidity", _gson.toJson(_dp));
+
+    List<Observation> observations =
+        (List<Observation>)
+            _query.history("LGA", "humidity", String.valueOf(before), null).getEntity();
+    assertEquals(1, observations.size());
+    assertEquals(mean, observations.get(0).getMean(), 0);
+    assertEquals(10, observations.get(0).getCount());
+
+    assertEquals(404, _query.history("XXX", "humidity", null, null).getStatus());
+    assertEquals(400, _query.history("LGA", "visibility", null, null).getStatus());
+    assertEquals(400, _query.history("LGA", "humidity", "yesterday", null).getStatus());
+  }
+}
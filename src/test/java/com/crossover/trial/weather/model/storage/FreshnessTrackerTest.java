@@ -0,0 +1,57 @@
+package com.crossover.trial.weather.model.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class FreshnessTrackerTest {
+
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private final long start = 1000 * DAY;
+
+  @Test
+  public void testUpdatesMoveTheEntries() throws Exception {
+    FreshnessTracker tracker = new FreshnessTracker();
+    tracker.update(0, start);
+    tracker.update(0, start + MINUTE);
+    assertEquals(2, tracker.getFreshCount(start + MINUTE));
+
+    // The second update of an entry doesn't count it twice
+    tracker.update(start, start + 2 * MINUTE);
+    assertEquals(2, tracker.getFreshCount(start + 2 * MINUTE));
+  }
+
+  @Test
+  public void testEntriesExpireAfterADay() throws Exception {
+    FreshnessTracker tracker = new FreshnessTracker();
+    tracker.update(0, start);
+    tracker.update(0, start + 10 * MINUTE);
+    assertEquals(2, tracker.getFreshCount(start + DAY - MINUTE));
+    assertEquals(1, tracker.getFreshCount(start + DAY));
+
+    // Moving an expired entry counts it again
+    tracker.update(start, start + DAY);
+    assertEquals(2, tracker.getFreshCount(start + DAY));
+    assertEquals(1, tracker.getFreshCount(start + DAY + 10 * MINUTE));
+    assertEquals(0, tracker.getFreshCount(start + 3 * DAY));
+
+    // Updates older than a day are never counted
+    tracker.update(0, start + DAY);
+    assertEquals(0, tracker.getFreshCount(start + 3 * DAY));
+  }
+
+  @Test
+  public void testReusedSlotsExpireTheirPreviousDay() throws Exception {
+    FreshnessTracker tracker = new FreshnessTracker();
+    tracker.update(0, start);
+    // The same minute of the next day lands on the same slot before anything expired it
+    tracker.update(0, start + DAY);
+    assertEquals(1, tracker.getFreshCount(start + DAY));
+    tracker.update(start + DAY, start + DAY + MINUTE);
+    assertEquals(1, tracker.getFreshCount(start + DAY + MINUTE));
+  }
+}
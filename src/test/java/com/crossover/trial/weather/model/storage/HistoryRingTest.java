@@ -0,0 +1,55 @@
+package com.crossover.trial.weather.model.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.web.Observation;
+import java.util.List;
+import org.junit.Test;
+
+public class HistoryRingTest {
+
+  private static DataPoint dataPoint(int value) {
+    return new DataPoint.Builder()
+        .withFirst(value)
+        .withMedian(value)
+        .withLast(value + 2)
+        .withMean(value)
+        .withCount(value * 10)
+        .build();
+  }
+
+  @Test
+  public void testKeepsTheLastObservations() throws Exception {
+    HistoryRing ring = new HistoryRing(4);
+    assertTrue(ring.getWindow(0, Long.MAX_VALUE).isEmpty());
+    for (int i = 1; i <= 6; i++) {
+      ring.append(1000 * i, dataPoint(i));
+    }
+
+    List<Observation> observations = ring.getWindow(0, Long.MAX_VALUE);
+    assertEquals(4, observations.size());
+    assertEquals(3000, observations.get(0).getTimestamp());
+    assertEquals(6000, observations.get(3).getTimestamp());
+    assertEquals(6.0, observations.get(3).getMean(), 0);
+    assertEquals(6, observations.get(3).getFirst());
+    assertEquals(6, observations.get(3).getSecond());
+    assertEquals(8, observations.get(3).getThird());
+    assertEquals(60, observations.get(3).getCount());
+  }
+
+  @Test
+  public void testWindowBoundsAreInclusive() throws Exception {
+    HistoryRing ring = new HistoryRing(8);
+    for (int i = 1; i <= 6; i++) {
+      ring.append(1000 * i, dataPoint(i));
+    }
+
+    List<Observation> observations = ring.getWindow(2000, 4000);
+    assertEquals(3, observations.size());
+    assertEquals(2000, observations.get(0).getTimestamp());
+    assertEquals(4000, observations.get(2).getTimestamp());
+    assertTrue(ring.getWindow(7000, 8000).isEmpty());
+  }
+}
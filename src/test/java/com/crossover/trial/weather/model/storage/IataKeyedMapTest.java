@@ -0,0 +1,106 @@
+package com.crossover.trial.weather.model.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.Test;
+
+public class IataKeyedMapTest {
+
+  /** Distinct 3 letter code of an index */
+  private static String code(int index) {
+    return new String(
+        new char[] {
+          (char) ('A' + index / 676 % 26), (char) ('A' + index / 26 % 26), (char) ('A' + index % 26)
+        });
+  }
+
+  @Test
+  public void testPackedCodes() throws Exception {
+    assertEquals(IataCode.NONE, IataCode.pack(""));
+    assertEquals(IataCode.NONE, IataCode.pack("bos"));
+    assertEquals(IataCode.NONE, IataCode.pack("B0S"));
+    assertEquals(IataCode.NONE, IataCode.pack("ABCDEFG"));
+    assertTrue(IataCode.pack("ZZZ") < 1 << 15);
+    for (String code : new String[] {"A", "BOS", "ZZZ", "KJFK", "ZZZZZZ"}) {
+      assertEquals(code, IataCode.unpack(IataCode.pack(code)));
+    }
+  }
+
+  @Test
+  public void testPackedAndUnpackedCodes() throws Exception {
+    IataKeyedMap<String> map = new IataKeyedMap<>();
+    assertNull(map.put("BOS", "Boston"));
+    assertNull(map.put("bos", "lower case boston"));
+    assertEquals("Boston", map.putIfAbsent("BOS", "other"));
+    assertEquals("Boston", map.get("BOS"));
+    assertEquals("lower case boston", map.get("bos"));
+    assertNull(map.get("JFK"));
+    assertNull(map.get(42));
+
+    Map<String, String> copy = new HashMap<>(map);
+    assertEquals(2, copy.size());
+    assertEquals("Boston", copy.get("BOS"));
+
+    assertFalse(map.remove("BOS", "other"));
+    assertEquals("Boston", map.remove("BOS"));
+    assertNull(map.computeIfPresent("BOS", (code, value) -> value + "!"));
+    assertEquals("Boston again", map.computeIfAbsent("BOS", code -> "Boston again"));
+    map.keySet().remove("bos");
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void testComputeRunsOnceWhileTheTableGrows() throws Exception {
+    IataKeyedMap<LongAdder> map = new IataKeyedMap<>();
+    AtomicInteger created = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < 4; thread++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                for (int i = 0; i < 20_000; i++) {
+                  map.computeIfAbsent(
+                          code(i % 10_000),
+                          code -> {
+                            created.incrementAndGet();
+                            return new LongAdder();
+                          })
+                      .increment();
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    assertEquals(10_000, created.get());
+    assertEquals(10_000, map.size());
+    long total = 0;
+    for (LongAdder counter : map.values()) {
+      total += counter.sum();
+    }
+    assertEquals(80_000, total);
+
+    // Removing every code empties the map and its views
+    for (int i = 0; i < 10_000; i++) {
+      map.remove(code(i));
+    }
+    assertTrue(map.isEmpty());
+    assertEquals(0, new HashMap<>(map).size());
+  }
+}
@@ -0,0 +1,109 @@
+package com.crossover.trial.weather.model.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class OffHeapAtmosphericInfoStorageTest {
+
+  private static DataPoint dataPoint(double mean, int first, int second, int third, int count) {
+    DataPoint dataPoint = new DataPoint();
+    dataPoint.mean = mean;
+    dataPoint.first = first;
+    dataPoint.second = second;
+    dataPoint.third = third;
+    dataPoint.count = count;
+    return dataPoint;
+  }
+
+  @Test
+  public void testRecordsRoundTrip() throws Exception {
+    OffHeapAtmosphericInfoStorage storage = new OffHeapAtmosphericInfoStorage(false);
+    assertNull(storage.putIfAbsent("BOS", new AtmosphericInformation()));
+    storage.compute(
+        "BOS",
+        (code, current) -> current.withWind(dataPoint(12.345678901, 1, 5, 9, 20), 1000));
+    storage.compute(
+        "BOS", (code, current) -> current.withPressure(dataPoint(700.5, 650, 700, 750, 3), 2000));
+
+    AtmosphericInformation bos = storage.get("BOS");
+    assertEquals(2000, bos.getLastUpdateTime());
+    assertEquals(12.345678901, bos.getWind().getMean(), 0);
+    assertEquals(9, bos.getWind().getThird());
+    assertEquals(20, bos.getWind().getCount());
+    assertEquals(700.5, bos.getPressure().getMean(), 0);
+    assertNull(bos.getTemperature());
+    assertNull(storage.get("JFK"));
+  }
+
+  @Test
+  public void testFloatRecordsAreSmaller() throws Exception {
+    OffHeapAtmosphericInfoStorage doubles = new OffHeapAtmosphericInfoStorage(false);
+    OffHeapAtmosphericInfoStorage floats = new OffHeapAtmosphericInfoStorage(true);
+    assertEquals(304, doubles.getRecordSize());
+    assertEquals(208, floats.getRecordSize());
+
+    floats.put("BOS", new AtmosphericInformation().withWind(dataPoint(12.3, 1, 5, 9, 20), 1000));
+    assertEquals(12.3, floats.get("BOS").getWind().getMean(), 1e-6);
+    assertEquals(5, floats.get("BOS").getWind().getSecond());
+  }
+
+  @Test
+  public void testComputeRunsOnceAndUnchangedValuesAreKept() throws Exception {
+    OffHeapAtmosphericInfoStorage storage = new OffHeapAtmosphericInfoStorage(false);
+    AtomicInteger calls = new AtomicInteger();
+    AtmosphericInformation stored =
+        storage.compute(
+            "BOS",
+            (code, current) -> {
+              calls.incrementAndGet();
+              return new AtmosphericInformation().withWind(dataPoint(1, 1, 1, 1, 1), 1000);
+            });
+    assertEquals(1, calls.get());
+    assertEquals(1000, stored.getLastUpdateTime());
+
+    // Returning the decoded value leaves the record alone
+    AtmosphericInformation[] decoded = new AtmosphericInformation[1];
+    AtmosphericInformation unchanged =
+        storage.compute(
+            "BOS",
+            (code, current) -> {
+              decoded[0] = current;
+              return current;
+            });
+    assertSame(decoded[0], unchanged);
+    assertNull(storage.computeIfPresent("JFK", (code, current) -> current));
+    assertEquals(1, storage.size());
+  }
+
+  @Test
+  public void testRemovedSlotsAreReused() throws Exception {
+    OffHeapAtmosphericInfoStorage storage = new OffHeapAtmosphericInfoStorage(false);
+    for (int i = 0; i < 2000; i++) {
+      storage.put(
+          "A" + i, new AtmosphericInformation().withWind(dataPoint(i, i, i, i, i), 1000 + i));
+    }
+    long allocated = storage.getAllocatedBytes();
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(1000 + i, storage.remove("A" + i).getLastUpdateTime());
+    }
+    for (int i = 0; i < 1000; i++) {
+      storage.put("B" + i, new AtmosphericInformation());
+    }
+    assertEquals(allocated, storage.getAllocatedBytes());
+    assertEquals(2000, storage.size());
+
+    Map<String, AtmosphericInformation> copy = new TreeMap<>(storage);
+    assertEquals(2000, copy.size());
+    assertNull(copy.get("A0"));
+    assertNull(copy.get("B0").getWind());
+    assertEquals(1999.0, copy.get("A1999").getWind().getMean(), 0);
+  }
+}
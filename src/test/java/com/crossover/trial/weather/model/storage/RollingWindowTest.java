@@ -0,0 +1,56 @@
+package com.crossover.trial.weather.model.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.crossover.trial.weather.web.Aggregate;
+import org.junit.Test;
+
+public class RollingWindowTest {
+
+  private static final long HOUR = 3600_000;
+
+  /** A window of an hour in 12 buckets of 5 minutes */
+  private static final long BUCKET = HOUR / 12;
+
+  @Test
+  public void testAggregatesTheWindow() throws Exception {
+    RollingWindow window = new RollingWindow("1h", HOUR, 12);
+    long start = 100 * HOUR;
+    window.add(start, 10);
+    window.add(start + BUCKET, 30);
+    window.add(start + BUCKET + 1, 20);
+
+    Aggregate aggregate = window.aggregate(start + 2 * BUCKET);
+    assertEquals("1h", aggregate.getWindow());
+    assertEquals(3, aggregate.getCount());
+    assertEquals(10, aggregate.getMin(), 0);
+    assertEquals(30, aggregate.getMax(), 0);
+    assertEquals(20, aggregate.getMean(), 0);
+  }
+
+  @Test
+  public void testExpiredBucketsRollOff() throws Exception {
+    RollingWindow window = new RollingWindow("1h", HOUR, 12);
+    long start = 100 * HOUR;
+    window.add(start, 10);
+    window.add(start + 6 * BUCKET, 20);
+
+    // The first bucket leaves the window an hour later
+    assertEquals(2, window.aggregate(start + 11 * BUCKET).getCount());
+    Aggregate aggregate = window.aggregate(start + 12 * BUCKET);
+    assertEquals(1, aggregate.getCount());
+    assertEquals(20, aggregate.getMin(), 0);
+
+    // A new value reuses the bucket of the first one
+    window.add(start + 12 * BUCKET, 40);
+    assertEquals(30, window.aggregate(start + 12 * BUCKET).getMean(), 0);
+    // Values older than the reused bucket are out of every window
+    window.add(start, 1000);
+    assertEquals(2, window.aggregate(start + 12 * BUCKET).getCount());
+
+    aggregate = window.aggregate(start + 30 * BUCKET);
+    assertEquals(0, aggregate.getCount());
+    assertNull(aggregate.getMean());
+  }
+}
@@ -0,0 +1,99 @@
+package com.crossover.trial.weather.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnapshotFileTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static AirportData airport(String iata, double latitude, double longitude) {
+    AirportData airportData = new AirportData();
+    airportData.setIata(iata);
+    airportData.setLatitude(latitude);
+    airportData.setLongitude(longitude);
+    return airportData;
+  }
+
+  private Path writeSnapshot() throws IOException {
+    DataPoint wind =
+        new DataPoint.Builder()
+            .withFirst(1)
+            .withMedian(4)
+            .withLast(9)
+            .withMean(4)
+            .withCount(12)
+            .build();
+    DataPoint pressure = new DataPoint.Builder().withMean(700).withMedian(700).withCount(3).build();
+    Map<String, AtmosphericInformation> readings = new LinkedHashMap<>();
+    readings.put(
+        "BOS", new AtmosphericInformation().withWind(wind, 1000).withPressure(pressure, 2000));
+    readings.put("JFK", new AtmosphericInformation());
+
+    Path file = folder.getRoot().toPath().resolve("weather.snapshot");
+    SnapshotFile.write(
+        file,
+        new ArrayList<>(
+            Arrays.asList(
+                airport("BOS", 42.364347, -71.005181), airport("JFK", 40.639751, -73.778925))),
+        readings.entrySet(),
+        42);
+    return file;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Path file = writeSnapshot();
+    List<AirportData> airports = new ArrayList<>();
+    Map<String, AtmosphericInformation> readings = new LinkedHashMap<>();
+    assertEquals(42, SnapshotFile.read(file, airports::add, readings::put));
+
+    assertEquals(2, airports.size());
+    assertEquals("JFK", airports.get(1).getIata());
+    assertEquals(-73.778925, airports.get(1).getLongitude(), 0);
+
+    AtmosphericInformation bos = readings.get("BOS");
+    assertEquals(2000, bos.getLastUpdateTime());
+    assertEquals(4.0, bos.getWind().getMean(), 0);
+    assertEquals(1, bos.getWind().getFirst());
+    assertEquals(12, bos.getWind().getCount());
+    assertEquals(700.0, bos.getPressure().getMean(), 0);
+    assertNull(bos.getTemperature());
+    assertEquals(0, readings.get("JFK").getLastUpdateTime());
+    assertNull(readings.get("JFK").getWind());
+  }
+
+  @Test
+  public void testCorruptedSnapshotIsRejected() throws Exception {
+    Path file = writeSnapshot();
+    try (RandomAccessFile snapshot = new RandomAccessFile(file.toFile(), "rw")) {
+      snapshot.seek(30);
+      snapshot.write(snapshot.read() ^ 0xff);
+    }
+    List<AirportData> airports = new ArrayList<>();
+    try {
+      SnapshotFile.read(file, airports::add, (iataCode, atmosphericInformation) -> {});
+      fail("A corrupted snapshot was read");
+    } catch (IOException e) {
+      // expected
+    }
+    assertEquals(Collections.emptyList(), airports);
+  }
+}
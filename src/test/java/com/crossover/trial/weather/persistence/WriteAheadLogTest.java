@@ -0,0 +1,221 @@
+package com.crossover.trial.weather.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.DataPointType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WriteAheadLogTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static AirportData airport(String iata) {
+    AirportData airportData = new AirportData();
+    airportData.setIata(iata);
+    airportData.setLatitude(42.364347);
+    airportData.setLongitude(-71.005181);
+    return airportData;
+  }
+
+  private static DataPoint dataPoint(int mean) {
+    return new DataPoint.Builder().withMean(mean).withMedian(mean).withCount(3).build();
+  }
+
+  /** Log an airport, an update and a delete and close the log */
+  private void writeChanges(Path directory) throws IOException {
+    WriteAheadLog writeAheadLog = new WriteAheadLog(directory, Durability.SYNC);
+    assertEquals(0, writeAheadLog.replay(0, new Recorder()));
+    writeAheadLog.start();
+    writeAheadLog.logAirportAdded(airport("BOS"));
+    writeAheadLog.logDataPointUpdated("BOS", DataPointType.WIND, dataPoint(12), 1000);
+    writeAheadLog.logAirportDeleted("BOS");
+    assertTrue(writeAheadLog.await(Durability.SYNC));
+    writeAheadLog.close();
+  }
+
+  @Test
+  public void testReplay() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    writeChanges(directory);
+
+    Recorder recorder = new Recorder();
+    WriteAheadLog writeAheadLog = new WriteAheadLog(directory, Durability.SYNC);
+    assertEquals(3, writeAheadLog.replay(0, recorder));
+    assertEquals(
+        Stream.of("added BOS 42.364347 -71.005181", "updated BOS WIND 12.0 3 1000", "deleted BOS")
+            .collect(Collectors.toList()),
+        recorder.changes);
+
+    recorder = new Recorder();
+    assertEquals(1, new WriteAheadLog(directory, Durability.SYNC).replay(2, recorder));
+    assertEquals("deleted BOS", recorder.changes.get(0));
+  }
+
+  @Test
+  public void testTornRecordEndsTheReplay() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    writeChanges(directory);
+    Path segment;
+    try (Stream<Path> files = Files.list(directory)) {
+      segment = files.findFirst().get();
+    }
+    // Half of a record, as left by a crash while it was written
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2, 3}));
+    }
+
+    WriteAheadLog writeAheadLog = new WriteAheadLog(directory, Durability.ASYNC);
+    assertEquals(3, writeAheadLog.replay(0, new Recorder()));
+    // The new changes go after the last valid record
+    writeAheadLog.start();
+    writeAheadLog.logAirportAdded(airport("JFK"));
+    writeAheadLog.close();
+
+    Recorder recorder = new Recorder();
+    assertEquals(4, new WriteAheadLog(directory, Durability.SYNC).replay(0, recorder));
+    assertEquals("added JFK 42.364347 -71.005181", recorder.changes.get(3));
+  }
+
+  @Test
+  public void testTruncateDeletesTheSnapshottedSegments() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    writeChanges(directory);
+
+    WriteAheadLog writeAheadLog = new WriteAheadLog(directory, Durability.SYNC);
+    writeAheadLog.replay(0, new Recorder());
+    writeAheadLog.start();
+    writeAheadLog.logAirportAdded(airport("JFK"));
+    long sequence = writeAheadLog.checkpoint();
+    writeAheadLog.truncate(sequence);
+    writeAheadLog.logAirportDeleted("JFK");
+    assertTrue(writeAheadLog.await(Durability.SYNC));
+    writeAheadLog.close();
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(1, files.count());
+    }
+    Recorder recorder = new Recorder();
+    assertEquals(1, new WriteAheadLog(directory, Durability.SYNC).replay(sequence, recorder));
+    assertEquals("deleted JFK", recorder.changes.get(0));
+  }
+
+  @Test
+  public void testCheckpointWaitsForTheChangesInFlight() throws Exception {
+    WriteAheadLog writeAheadLog = new WriteAheadLog(folder.getRoot().toPath(), Durability.ASYNC);
+    writeAheadLog.replay(0, new Recorder());
+    writeAheadLog.start();
+    int ticket = writeAheadLog.beginChange();
+    writeAheadLog.logAirportAdded(airport("BOS"));
+    CompletableFuture<Long> checkpoint = CompletableFuture.supplyAsync(writeAheadLog::checkpoint);
+    Thread.sleep(100);
+    // The change is logged but not in the storage yet
+    assertFalse(checkpoint.isDone());
+    writeAheadLog.endChange(ticket);
+    assertEquals(1L, (long) checkpoint.get(10, TimeUnit.SECONDS));
+    writeAheadLog.close();
+  }
+
+  @Test
+  public void testChangesBelowTheCheckpointAreVisible() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    WriteAheadLog writeAheadLog = new WriteAheadLog(directory, Durability.ASYNC);
+    writeAheadLog.replay(0, new Recorder());
+    writeAheadLog.start();
+    int changes = 50_000;
+    // Tick of the clock at which every change was in the storage
+    AtomicLongArray visibleAt = new AtomicLongArray(changes);
+    AtomicLong clock = new AtomicLong();
+    AtomicInteger ids = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    List<Future<?>> writers = new ArrayList<>();
+    for (int thread = 0; thread < 3; thread++) {
+      writers.add(
+          executor.submit(
+              () -> {
+                for (int id = ids.getAndIncrement(); id < changes; id = ids.getAndIncrement()) {
+                  int ticket = writeAheadLog.beginChange();
+                  writeAheadLog.logDataPointUpdated("BOS", DataPointType.WIND, dataPoint(1), id);
+                  visibleAt.set(id, clock.incrementAndGet());
+                  writeAheadLog.endChange(ticket);
+                }
+              }));
+    }
+    // The snapshot copies the storage once the checkpoint returns
+    List<long[]> checkpoints = new ArrayList<>();
+    while (ids.get() < changes) {
+      long sequence = writeAheadLog.checkpoint();
+      checkpoints.add(new long[] {sequence, clock.get()});
+    }
+    for (Future<?> writer : writers) {
+      writer.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    assertTrue(writeAheadLog.await(Durability.SYNC));
+    writeAheadLog.close();
+
+    Recorder recorder = new Recorder();
+    assertEquals(changes, new WriteAheadLog(directory, Durability.SYNC).replay(0, recorder));
+    // Latest tick at which the changes below every sequence were all in the storage
+    long[] allVisibleAt = new long[changes + 1];
+    for (int sequence = 0; sequence < changes; sequence++) {
+      int id = Integer.parseInt(recorder.changes.get(sequence).split(" ")[5]);
+      allVisibleAt[sequence + 1] = Math.max(allVisibleAt[sequence], visibleAt.get(id));
+    }
+    for (long[] checkpoint : checkpoints) {
+      assertTrue(allVisibleAt[(int) checkpoint[0]] <= checkpoint[1]);
+    }
+  }
+
+  private static class Recorder implements WriteAheadLog.Handler {
+    private final List<String> changes = new ArrayList<>();
+
+    @Override
+    public void airportAdded(AirportData airportData) {
+      changes.add(
+          "added "
+              + airportData.getIata()
+              + " "
+              + airportData.getLatitude()
+              + " "
+              + airportData.getLongitude());
+    }
+
+    @Override
+    public void airportDeleted(String iataCode) {
+      changes.add("deleted " + iataCode);
+    }
+
+    @Override
+    public void dataPointUpdated(
+        String iataCode, DataPointType pointType, DataPoint dataPoint, long updateTime) {
+      changes.add(
+          String.format(
+              "updated %s %s %s %d %d",
+              iataCode, pointType, dataPoint.getMean(), dataPoint.getCount(), updateTime));
+    }
+  }
+}
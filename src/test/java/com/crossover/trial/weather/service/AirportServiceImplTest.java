@@ -0,0 +1,233 @@
+package com.crossover.trial.weather.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.crossover.trial.weather.model.AirportData;
+import com.crossover.trial.weather.model.storage.AirportCoordinateTable;
+import com.crossover.trial.weather.utils.ConstantHelper;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import javax.ws.rs.core.Response.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AirportServiceImplTest {
+
+  private static final int AIRPORTS = 500;
+
+  private AirportService airportService = new AirportServiceImpl();
+
+  private List<String> codes = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    Random random = new Random(42);
+    for (int i = 0; i < AIRPORTS; i++) {
+      String code = String.format("T%03d", i);
+      // Cluster a quarter of the airports around the poles and the anti meridian
+      double latitude = i % 4 == 0 ? 85 + random.nextDouble() * 5 : random.nextDouble() * 180 - 90;
+      double longitude = i % 4 == 1 ? 179 + random.nextDouble() * 2 : random.nextDouble() * 360;
+      if (longitude > 180) {
+        longitude -= 360;
+      }
+      assertEquals(
+          Status.OK,
+          airportService.addAirport(code, String.valueOf(latitude), String.valueOf(longitude)));
+      codes.add(code);
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    codes.forEach(airportService::deleteAirport);
+  }
+
+  @Test
+  public void testRadiusMatchesFullScan() throws Exception {
+    double[] radii = {0, 10, 250, 1000, 5000, 15000, 25000};
+    for (String code : codes.subList(0, 40)) {
+      AirportData center = airportService.findAirportData(code);
+      for (double radius : radii) {
+        Set<String> expected =
+            airportService
+                .getAllAirportData()
+                .stream()
+                .filter(airport -> haversine(center, airport) <= radius)
+                .map(AirportData::getIata)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Set<String> actual =
+            airportService
+                .getAirportDataInRadius(code, radius)
+                .stream()
+                .map(AirportData::getIata)
+                .collect(Collectors.toCollection(TreeSet::new));
+        assertEquals(code + " within " + radius, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testNearestMatchesFullScan() throws Exception {
+    // Delete some airports so the index has both pending additions and removals
+    for (String code : codes.subList(AIRPORTS - 60, AIRPORTS)) {
+      airportService.deleteAirport(code);
+    }
+    for (String code : codes.subList(0, 40)) {
+      AirportData center = airportService.findAirportData(code);
+      for (int count : new int[] {0, 1, 5, 50}) {
+        List<String> expected =
+            airportService
+                .getAllAirportData()
+                .stream()
+                .filter(airport -> !airport.getIata().equals(code))
+                .sorted(Comparator.comparingDouble(airport -> haversine(center, airport)))
+                .limit(count)
+                .map(AirportData::getIata)
+                .collect(Collectors.toList());
+        List<String> actual =
+            airportService
+                .getNearestAirports(code, count)
+                .stream()
+                .map(AirportData::getIata)
+                .collect(Collectors.toList());
+        assertEquals(code + " nearest " + count, expected, actual);
+      }
+    }
+    assertNull(airportService.getNearestAirports("ZZZ", 5));
+    assertEquals(
+        airportService.getNearestAirports(codes.get(0), 3),
+        airportService
+            .getNearestAirports(
+                airportService.findAirportData(codes.get(0)).getLatitude(),
+                airportService.findAirportData(codes.get(0)).getLongitude(),
+                4)
+            .subList(1, 4));
+  }
+
+  @Test
+  public void testDeletedAirportLeavesTheRadius() throws Exception {
+    assertEquals(Status.OK, airportService.addAirport("ZZA", "10.0", "10.0"));
+    assertEquals(Status.OK, airportService.addAirport("ZZB", "10.1", "10.1"));
+    assertEquals(2, airportService.getAirportDataInRadius("ZZA", 50).size());
+
+    assertEquals(Status.OK, airportService.deleteAirport("ZZB"));
+    assertEquals(Status.NOT_FOUND, airportService.deleteAirport("ZZB"));
+    assertEquals(1, airportService.getAirportDataInRadius("ZZA", 50).size());
+
+    assertEquals(Status.OK, airportService.deleteAirport("ZZA"));
+    assertTrue(airportService.getAirportDataInRadius("ZZA", 50).isEmpty());
+  }
+
+  @Test
+  public void testCachedRadiusAgreesWithTheTableAtTheBoundary() throws Exception {
+    AirportCoordinateTable airportCoordinateTable = AirportCoordinateTable.getInstance();
+    Random random = new Random(7);
+    for (String code : codes.subList(0, 200)) {
+      AirportData center = airportService.findAirportData(code);
+      AirportData added = new AirportData();
+      added.setLatitude(Math.max(-90, Math.min(90, center.getLatitude() + random.nextGaussian())));
+      added.setLongitude(center.getLongitude() + random.nextGaussian());
+      // The airport is right at the boundary of the cached radius
+      double radius = haversine(center, added);
+      airportService.getAirportDataInRadius(code, radius);
+      assertEquals(
+          Status.OK,
+          airportService.addAirport(
+              "ZZB", String.valueOf(added.getLatitude()), String.valueOf(added.getLongitude())));
+      try {
+        assertEquals(
+            airportCoordinateTable
+                .getAirportsInRadius(center, radius)
+                .stream()
+                .map(AirportData::getIata)
+                .collect(Collectors.toSet()),
+            airportService
+                .getAirportDataInRadius(code, radius)
+                .stream()
+                .map(AirportData::getIata)
+                .collect(Collectors.toSet()));
+      } finally {
+        airportService.deleteAirport("ZZB");
+      }
+    }
+  }
+
+  @Test
+  public void testCachedRadiusFollowsTopologyChanges() throws Exception {
+    assertEquals(Status.OK, airportService.addAirport("ZZC", "-20.0", "-20.0"));
+    assertEquals(1, airportService.getAirportDataInRadius("ZZC", 100).size());
+    // Served from the cache
+    assertEquals(1, airportService.getAirportDataInRadius("ZZC", 100).size());
+
+    assertEquals(Status.OK, airportService.addAirport("ZZD", "-20.1", "-20.1"));
+    assertEquals(2, airportService.getAirportDataInRadius("ZZC", 100).size());
+    // Airports out of the radius don't change the result
+    assertEquals(Status.OK, airportService.addAirport("ZZE", "-30.0", "-30.0"));
+    assertEquals(2, airportService.getAirportDataInRadius("ZZC", 100).size());
+
+    assertEquals(Status.OK, airportService.deleteAirport("ZZD"));
+    assertEquals(1, airportService.getAirportDataInRadius("ZZC", 100).size());
+    assertEquals(Status.OK, airportService.deleteAirport("ZZE"));
+    assertEquals(Status.OK, airportService.deleteAirport("ZZC"));
+    assertTrue(airportService.getAirportDataInRadius("ZZC", 100).isEmpty());
+  }
+
+  @Test
+  public void testBatchAddIndexesOnce() throws Exception {
+    // Warm the cache so the batch has to invalidate it
+    assertEquals(1, airportService.getAirportDataInRadius(codes.get(0), 0).size());
+    List<AirportData> batch = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      AirportData airportData = new AirportData();
+      airportData.setIata(String.format("B%03d", i));
+      airportData.setLatitude(airportService.findAirportData(codes.get(0)).getLatitude());
+      airportData.setLongitude(airportService.findAirportData(codes.get(0)).getLongitude());
+      batch.add(airportData);
+    }
+    // Known codes are skipped
+    AirportData known = new AirportData();
+    known.setIata(codes.get(1));
+    batch.add(known);
+    // So is a code repeated in the batch, it's never indexed
+    AirportData repeated = new AirportData();
+    repeated.setIata("B000");
+    repeated.setLatitude(batch.get(0).getLatitude());
+    repeated.setLongitude(batch.get(0).getLongitude());
+    batch.add(repeated);
+
+    List<AirportData> added = airportService.addAirports(batch);
+    try {
+      assertEquals(100, added.size());
+      assertEquals(101, airportService.getAirportDataInRadius(codes.get(0), 0).size());
+      assertEquals(100, airportService.getNearestAirports(codes.get(0), 100).size());
+      assertTrue(
+          airportService
+              .getNearestAirports(codes.get(0), 100)
+              .stream()
+              .allMatch(airport -> airport.getIata().startsWith("B")));
+      assertTrue(airportService.addAirports(batch).isEmpty());
+    } finally {
+      added.forEach(airportData -> airportService.deleteAirport(airportData.getIata()));
+    }
+    assertEquals(1, airportService.getAirportDataInRadius(codes.get(0), 0).size());
+  }
+
+  private static double haversine(AirportData ad1, AirportData ad2) {
+    double lat1 = Math.toRadians(ad1.getLatitude());
+    double lat2 = Math.toRadians(ad2.getLatitude());
+    double deltaLat = lat2 - lat1;
+    double deltaLon = Math.toRadians(ad2.getLongitude() - ad1.getLongitude());
+    double a =
+        Math.pow(Math.sin(deltaLat / 2), 2)
+            + Math.pow(Math.sin(deltaLon / 2), 2) * Math.cos(lat1) * Math.cos(lat2);
+    return ConstantHelper.R * 2 * Math.asin(Math.sqrt(a));
+  }
+}
@@ -0,0 +1,96 @@
+package com.crossover.trial.weather.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.crossover.trial.weather.WeatherBinder;
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.crossover.trial.weather.model.storage.AtmosphericInfoStorage;
+import com.crossover.trial.weather.model.storage.StorageBackend;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.junit.After;
+import org.junit.Test;
+
+public class AtmosphericInformationSweeperTest {
+
+  private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+  private AtmosphericInfoStorage storage = AtmosphericInfoStorage.getInstance();
+
+  private static AtmosphericInformation updatedAt(long lastUpdateTime) {
+    DataPoint wind = new DataPoint.Builder().withMean(10).withCount(1).build();
+    return new AtmosphericInformation().withWind(wind, lastUpdateTime);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    storage.remove("SWA");
+    storage.remove("SWB");
+    storage.remove("SWC");
+    storage.remove("SWD");
+    StorageBackend.HEAP.getAtmosphericInfoStorage().remove("SWD");
+  }
+
+  @Test
+  public void testOnlyStaleInformationIsEvicted() throws Exception {
+    AtmosphericInformationSweeper sweeper = new AtmosphericInformationSweeper(HOUR);
+    long now = System.currentTimeMillis();
+    storage.put("SWA", updatedAt(now));
+    storage.put("SWB", new AtmosphericInformation());
+
+    sweeper.expire("SWA", now + HOUR - 1);
+    assertTrue(storage.containsKey("SWA"));
+    // Still fresh, so it was scheduled again
+    assertEquals(1, (long) sweeper.getStatistics().get("scheduled"));
+
+    sweeper.expire("SWA", now + HOUR);
+    assertFalse(storage.containsKey("SWA"));
+    assertEquals(1, (long) sweeper.getStatistics().get("evicted"));
+
+    // Airports without readings are never evicted
+    sweeper.expire("SWB", now + HOUR);
+    assertTrue(storage.containsKey("SWB"));
+  }
+
+  @Test
+  public void testSweeperEvictsInTheBackground() throws Exception {
+    AtmosphericInformationSweeper sweeper = new AtmosphericInformationSweeper(100);
+    long now = System.currentTimeMillis();
+    storage.put("SWC", updatedAt(now));
+    sweeper.schedule("SWC", now);
+    sweeper.schedule("SWC", now);
+    assertEquals(1, (long) sweeper.getStatistics().get("scheduled"));
+
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+    while (storage.containsKey("SWC") && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertFalse(storage.containsKey("SWC"));
+    assertEquals(1, (long) sweeper.getStatistics().get("evicted"));
+  }
+
+  @Test
+  public void testBoundSweeperEvictsFromTheBackendOfTheBinder() throws Exception {
+    AtmosphericInfoStorage heapStorage = StorageBackend.HEAP.getAtmosphericInfoStorage();
+    ServiceLocator serviceLocator =
+        ServiceLocatorUtilities.bind(new WeatherBinder(StorageBackend.HEAP));
+    try {
+      AtmosphericInformationSweeper sweeper =
+          serviceLocator.getService(AtmosphericInformationSweeper.class);
+      long now = System.currentTimeMillis();
+      storage.put("SWD", updatedAt(now - HOUR));
+      heapStorage.put("SWD", updatedAt(now - HOUR));
+
+      // The eviction is off in the tests, so anything updated before now is stale
+      sweeper.expire("SWD", now);
+      assertFalse(heapStorage.containsKey("SWD"));
+      assertTrue(storage.containsKey("SWD"));
+    } finally {
+      serviceLocator.shutdown();
+    }
+  }
+}
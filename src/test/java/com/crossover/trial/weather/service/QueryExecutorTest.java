@@ -0,0 +1,193 @@
+package com.crossover.trial.weather.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+import org.junit.After;
+import org.junit.Test;
+
+public class QueryExecutorTest {
+
+  private final QueryExecutor queryExecutor = new QueryExecutor(1, 1, 60_000, 3);
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    queryExecutor.close();
+  }
+
+  /** Occupy the only thread of the executor until the test releases it */
+  private RecordingResponse blockTheThread() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    RecordingResponse blocking = new RecordingResponse();
+    queryExecutor.submit(
+        blocking,
+        () -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return Response.ok().build();
+        });
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    return blocking;
+  }
+
+  @Test
+  public void testQueryRunsOnTheExecutor() throws Exception {
+    RecordingResponse response = new RecordingResponse();
+    queryExecutor.submit(response, () -> Response.ok(Thread.currentThread().getName()).build());
+    Response result = response.await();
+    assertEquals(200, result.getStatus());
+    assertTrue(((String) result.getEntity()).startsWith("weather-query-"));
+  }
+
+  @Test
+  public void testFullQueueIsRejectedRightAway() throws Exception {
+    RecordingResponse blocking = blockTheThread();
+    RecordingResponse queued = new RecordingResponse();
+    queryExecutor.submit(queued, () -> Response.ok().build());
+    RecordingResponse rejected = new RecordingResponse();
+    queryExecutor.submit(rejected, () -> Response.ok().build());
+
+    // Answered before the thread is free
+    assertTrue(rejected.isDone());
+    assertEquals(503, rejected.await().getStatus());
+    assertEquals("3", rejected.await().getHeaderString("Retry-After"));
+    assertFalse(queued.isDone());
+
+    release.countDown();
+    assertEquals(200, blocking.await().getStatus());
+    assertEquals(200, queued.await().getStatus());
+    assertEquals(1L, (long) queryExecutor.getStatistics().get("rejected"));
+  }
+
+  @Test
+  public void testTimedOutQueryIsNotRun() throws Exception {
+    RecordingResponse blocking = blockTheThread();
+    AtomicInteger runs = new AtomicInteger();
+    RecordingResponse queued = new RecordingResponse();
+    queryExecutor.submit(
+        queued,
+        () -> {
+          runs.incrementAndGet();
+          return Response.ok().build();
+        });
+    queued.timeOut();
+    assertEquals(503, queued.await().getStatus());
+
+    release.countDown();
+    assertEquals(200, blocking.await().getStatus());
+    // Wait for the executor to go through its queue
+    long deadline = System.currentTimeMillis() + 10_000;
+    Map<String, Long> statistics = queryExecutor.getStatistics();
+    while (statistics.get("queued") + statistics.get("active") > 0
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      statistics = queryExecutor.getStatistics();
+    }
+    assertEquals(0, runs.get());
+    assertEquals(1L, (long) statistics.get("timed_out"));
+  }
+
+  /** Suspended response that records the first resume, its timeout is fired by the test */
+  private static class RecordingResponse implements AsyncResponse {
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    private volatile TimeoutHandler timeoutHandler;
+
+    Response await() throws Exception {
+      return (Response) result.get(10, TimeUnit.SECONDS);
+    }
+
+    void timeOut() {
+      timeoutHandler.handleTimeout(this);
+    }
+
+    @Override
+    public boolean resume(Object response) {
+      return result.complete(response);
+    }
+
+    @Override
+    public boolean resume(Throwable response) {
+      return result.completeExceptionally(response);
+    }
+
+    @Override
+    public boolean cancel() {
+      return false;
+    }
+
+    @Override
+    public boolean cancel(int retryAfter) {
+      return false;
+    }
+
+    @Override
+    public boolean cancel(Date retryAfter) {
+      return false;
+    }
+
+    @Override
+    public boolean isSuspended() {
+      return !result.isDone();
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+
+    @Override
+    public boolean isDone() {
+      return result.isDone();
+    }
+
+    @Override
+    public boolean setTimeout(long time, TimeUnit unit) {
+      return true;
+    }
+
+    @Override
+    public void setTimeoutHandler(TimeoutHandler handler) {
+      timeoutHandler = handler;
+    }
+
+    @Override
+    public Collection<Class<?>> register(Class<?> callback) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(
+        Class<?> callback, Class<?>... callbacks) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<Class<?>> register(Object callback) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.crossover.trial.weather.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class WeatherMetricsProviderTest {
+
+  private static final int THREADS = 8;
+
+  private static final int UPDATES = 20000;
+
+  private WeatherMetricsProvider weatherMetricsProvider = WeatherMetricsProvider.getInstance();
+
+  @Test
+  public void testConcurrentUpdatesAreNotLost() throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  return;
+                }
+                for (int j = 0; j < UPDATES; j++) {
+                  weatherMetricsProvider.updateAirportMetrics("MTQ");
+                  weatherMetricsProvider.updateRadiusMetrics(j % 2 == 0 ? 12345.0 : 12345.9);
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(
+        Long.valueOf(THREADS * UPDATES), weatherMetricsProvider.getAirportMetrics().get("MTQ"));
+    // Both radius fall in the same whole km
+    assertEquals(
+        Long.valueOf(THREADS * UPDATES), weatherMetricsProvider.getRadiusMetrics().get(12345));
+  }
+}
@@ -0,0 +1,81 @@
+package com.crossover.trial.weather.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class TraceRingBufferTest {
+
+  @Test
+  public void testDropsWhenFull() throws Exception {
+    TraceRingBuffer traceRingBuffer = new TraceRingBuffer(4);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(traceRingBuffer.offer(trace(0, i)));
+    }
+    assertFalse(traceRingBuffer.offer(trace(0, 4)));
+
+    List<RequestTrace> drained = new ArrayList<>();
+    assertEquals(2, traceRingBuffer.drain(drained::add, 2));
+    // The drained slots are free for the next lap
+    assertTrue(traceRingBuffer.offer(trace(0, 5)));
+    assertEquals(3, traceRingBuffer.drain(drained::add, 10));
+    assertEquals(0, traceRingBuffer.drain(drained::add, 10));
+
+    long[] expected = {0, 1, 2, 3, 5};
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], drained.get(i).getLatency());
+    }
+  }
+
+  @Test
+  public void testConcurrentProducers() throws Exception {
+    int producers = 4;
+    int traces = 50000;
+    TraceRingBuffer traceRingBuffer = new TraceRingBuffer(256);
+    AtomicInteger accepted = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int i = 0; i < traces; i++) {
+                  if (traceRingBuffer.offer(trace(producer, i))) {
+                    accepted.incrementAndGet();
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+
+    // Every producer's traces come out in order, and nothing accepted is lost
+    long[] last = {-1, -1, -1, -1};
+    int[] drained = {0};
+    boolean[] ordered = {true};
+    while (threads.stream().anyMatch(Thread::isAlive) || drained[0] < accepted.get()) {
+      traceRingBuffer.drain(
+          trace -> {
+            int producer = trace.getStatus();
+            ordered[0] &= trace.getLatency() > last[producer];
+            last[producer] = trace.getLatency();
+            drained[0]++;
+          },
+          64);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(ordered[0]);
+    assertEquals(accepted.get(), drained[0]);
+  }
+
+  private static RequestTrace trace(int producer, long sequence) {
+    return new RequestTrace(0, "GET", "/query/ping", producer, sequence);
+  }
+}
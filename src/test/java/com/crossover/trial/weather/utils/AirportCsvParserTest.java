@@ -0,0 +1,55 @@
+package com.crossover.trial.weather.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.crossover.trial.weather.model.AirportData;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class AirportCsvParserTest {
+
+  @Test
+  public void testSplitQuotedFields() throws Exception {
+    assertEquals(
+        Arrays.asList("1", "Name, with comma", "Say \"hi\"", "", "BOS"),
+        AirportCsvParser.split("1,\"Name, with comma\",\"Say \"\"hi\"\"\",,BOS"));
+  }
+
+  @Test
+  public void testParseBothLayouts() throws Exception {
+    AirportData openFlights =
+        AirportCsvParser.parse(
+            "1,\"General Edward Lawrence Logan Intl\",\"Boston\",\"United States\",\"BOS\","
+                + "\"KBOS\",42.364347,-71.005181,19,-5,\"A\"");
+    assertEquals("BOS", openFlights.getIata());
+    assertEquals(42.364347, openFlights.getLatitude(), 0);
+    assertEquals(-71.005181, openFlights.getLongitude(), 0);
+
+    AirportData documented =
+        AirportCsvParser.parse(
+            "\"London, City\",\"United Kingdom\",\"LCY\",\"EGLC\",51.505278,0.055278,19,0,\"E\"");
+    assertEquals("LCY", documented.getIata());
+    assertEquals(51.505278, documented.getLatitude(), 0);
+    assertEquals(0.055278, documented.getLongitude(), 0);
+  }
+
+  @Test
+  public void testRejectsInvalidRows() throws Exception {
+    assertRejected("1,\"Unassigned\",\"City\",\"Country\",\\N,\"ABCD\",10,10,0,0,\"U\"");
+    assertRejected("1,\"Empty\",\"City\",\"Country\",\"\",\"ABCD\",10,10,0,0,\"U\"");
+    assertRejected("1,\"Lower\",\"City\",\"Country\",\"bos\",\"ABCD\",10,10,0,0,\"U\"");
+    assertRejected("1,\"North\",\"City\",\"Country\",\"NNN\",\"ABCD\",91,10,0,0,\"U\"");
+    assertRejected("1,\"Text\",\"City\",\"Country\",\"TTT\",\"ABCD\",north,10,0,0,\"U\"");
+    assertRejected("\"City\",\"Country\",\"SSS\"");
+  }
+
+  private static void assertRejected(String line) {
+    try {
+      AirportCsvParser.parse(line);
+      fail("Accepted " + line);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.crossover.trial.weather.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testPercentilesWithinPrecision() throws Exception {
+    Random random = new Random(42);
+    LatencyHistogram latencyHistogram = new LatencyHistogram();
+    long[] values = new long[100000];
+    for (int i = 0; i < values.length; i++) {
+      // Spread over many orders of magnitude
+      values[i] = (long) Math.exp(random.nextDouble() * 30);
+      latencyHistogram.recordValue(values[i]);
+    }
+    Arrays.sort(values);
+
+    assertEquals(values.length, latencyHistogram.getTotalCount());
+    assertEquals(values[values.length - 1], latencyHistogram.getMaxValue());
+    for (double percentile : new double[] {1, 25, 50, 90, 99, 99.9, 100}) {
+      long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+      long actual = latencyHistogram.getValueAtPercentile(percentile);
+      assertTrue(percentile + ": " + actual + " < " + expected, actual >= expected);
+      assertTrue(percentile + ": " + actual + " > " + expected, actual <= expected * 1.016 + 1);
+    }
+  }
+
+  @Test
+  public void testExpectedIntervalRecordsTheMissedRequests() throws Exception {
+    LatencyHistogram latencyHistogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      latencyHistogram.recordValueWithExpectedInterval(10, 100);
+    }
+    // A 10 second stall while sending every 100ms hides 99 requests
+    latencyHistogram.recordValueWithExpectedInterval(10000, 100);
+
+    assertEquals(199, latencyHistogram.getTotalCount());
+    // Without the correction the median would be 10
+    assertTrue(latencyHistogram.getValueAtPercentile(75) >= 4900);
+    assertEquals(10, latencyHistogram.getValueAtPercentile(25));
+  }
+}
@@ -0,0 +1,89 @@
+package com.crossover.trial.weather.web;
+
+import static org.junit.Assert.assertEquals;
+
+import com.crossover.trial.weather.model.AtmosphericInformation;
+import com.crossover.trial.weather.model.DataPoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class AtmosphericInformationJsonWriterTest {
+
+  /** Means the collectors don't send but the writer has to format like Jackson anyway */
+  private static final double[] EDGE_MEANS = {
+    -0.0, 1e7, -1e7, 9999999.0, 0.1, 1e-5, 123.456, Double.MAX_VALUE, Double.MIN_VALUE,
+    Double.POSITIVE_INFINITY, Double.NaN
+  };
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void testMatchesJackson() throws Exception {
+    Random random = new Random(42);
+    List<AtmosphericInformation> atmosphericInformation = new ArrayList<>();
+    atmosphericInformation.add(new AtmosphericInformation());
+    for (int i = 0; i < 500; i++) {
+      long updateTime = random.nextBoolean() ? random.nextLong() : random.nextInt(1000);
+      AtmosphericInformation information = new AtmosphericInformation();
+      // Leave some data points null
+      if (random.nextBoolean()) {
+        information = information.withTemperature(randomDataPoint(random, i), updateTime);
+      }
+      if (random.nextBoolean()) {
+        information = information.withWind(randomDataPoint(random, i), updateTime);
+      }
+      if (random.nextBoolean()) {
+        information = information.withHumidity(randomDataPoint(random, i), updateTime);
+      }
+      if (random.nextBoolean()) {
+        information = information.withPrecipitation(randomDataPoint(random, i), updateTime);
+      }
+      if (random.nextBoolean()) {
+        information = information.withPressure(randomDataPoint(random, i), updateTime);
+      }
+      if (random.nextBoolean()) {
+        information = information.withCloudCover(randomDataPoint(random, i), updateTime);
+      }
+      atmosphericInformation.add(information);
+    }
+
+    assertEquals(jackson(atmosphericInformation), written(atmosphericInformation));
+    assertEquals(
+        jackson(Collections.<AtmosphericInformation>emptyList()),
+        written(Collections.<AtmosphericInformation>emptyList()));
+  }
+
+  private DataPoint randomDataPoint(Random random, int i) {
+    DataPoint dataPoint =
+        new DataPoint.Builder()
+            .withFirst(random.nextInt())
+            .withMean(random.nextInt(2000) - 1000)
+            .withMedian(random.nextInt(100))
+            .withLast(i % 7 == 0 ? Integer.MIN_VALUE : random.nextInt())
+            .withCount(random.nextInt(1000))
+            .build();
+    if (i % 3 == 0) {
+      dataPoint.setMean(random.nextDouble() * 1000 - 500);
+    } else if (i % 5 == 0) {
+      dataPoint.setMean(EDGE_MEANS[i % EDGE_MEANS.length]);
+    }
+    return dataPoint;
+  }
+
+  private String jackson(List<AtmosphericInformation> atmosphericInformation) throws Exception {
+    return new String(
+        objectMapper.writeValueAsBytes(atmosphericInformation), StandardCharsets.UTF_8);
+  }
+
+  private String written(List<AtmosphericInformation> atmosphericInformation) throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    AtmosphericInformationJsonWriter.write(atmosphericInformation, outputStream);
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+}